@@ -47,10 +47,11 @@ if wait_for_kafka; then
     echo "Creating PIXEL-V2 topics..."
     
     # Switzerland (CH) Flow Topics
-    create_topic "ICHSIC-flow-summary-topic" 1 1
-    create_topic "ICHSIC-log-event-topic" 1 1
+    # Log topics are keyed by flow occurrence and consumed by several consumers per pod
+    create_topic "ICHSIC-flow-summary-topic" 6 1
+    create_topic "ICHSIC-log-event-topic" 6 1
     create_topic "ICHSIC-distribution-topic" 1 1
-    create_topic "ICHSIC-error-event-topic" 1 1
+    create_topic "ICHSIC-error-event-topic" 6 1
     
     # General PIXEL-V2 Topics
     create_topic "pixel-v2transaction-audit-topic" 1 1
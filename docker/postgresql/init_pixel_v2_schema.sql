@@ -18,9 +18,12 @@ BEGIN
 END $$;
 
 -- Create sequence for flow occurrence ID generation
+-- Pooled-lo: each nextval reserves INCREMENT BY ids for FlowOccurIdAllocator (k-db-tx). Existing
+-- databases: ALTER SEQUENCE pixel_v2.flow_occurence_id_seq INCREMENT BY 1000; once every node
+-- allocates through FlowOccurIdAllocator
 CREATE SEQUENCE IF NOT EXISTS pixel_v2.flow_occurence_id_seq
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 1000
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -60,9 +63,13 @@ CREATE INDEX IF NOT EXISTS idx_tb_messages_source ON pixel_v2.tb_messages(source
 CREATE INDEX IF NOT EXISTS idx_tb_messages_received_at ON pixel_v2.tb_messages(received_at);
 CREATE INDEX IF NOT EXISTS idx_tb_messages_created_at ON pixel_v2.tb_messages(created_at);
 
--- Create log events table for Camel route logging
+-- Create log events table for Camel route logging.
+-- Range-partitioned by day on DATATS (LOG_DAY, being generated, cannot be the partition key): the
+-- k-db-tx partition manager creates daily partitions ahead of time with their B-tree indexes,
+-- moves the partitions of the previous days to a BRIN index on DATATS and applies the retention.
+-- Secondary indexes are therefore per partition; the primary key must include the partition key.
 CREATE TABLE IF NOT EXISTS pixel_v2.log_event (
-    LOGID VARCHAR(64) PRIMARY KEY NOT NULL,
+    LOGID VARCHAR(64) NOT NULL,
     DATATS TIMESTAMP(6) NOT NULL,
     FLOWID VARCHAR(64) NOT NULL,
     HALFFLOWID VARCHAR(64) NOT NULL,
@@ -99,8 +106,26 @@ CREATE TABLE IF NOT EXISTS pixel_v2.log_event (
     XMLMSGACTION VARCHAR(256),
     MSGRESUBMITIND VARCHAR(64),
     MSGBODY TEXT,
-    LOG_DAY DATE GENERATED ALWAYS AS (DATATS::DATE) STORED
-);
+    LOG_DAY DATE GENERATED ALWAYS AS (DATATS::DATE) STORED,
+
+    CONSTRAINT log_event_pkey PRIMARY KEY (LOGID, DATATS)
+) PARTITION BY RANGE (DATATS);
+
+-- Rows outside the daily partitions (late replays, skewed client clocks)
+CREATE TABLE IF NOT EXISTS pixel_v2.log_event_default PARTITION OF pixel_v2.log_event DEFAULT;
+
+-- Partitions for today and the next days; afterwards maintained by the application
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR i IN 0..3 LOOP
+        day := CURRENT_DATE + i;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS pixel_v2.log_event_p%s PARTITION OF pixel_v2.log_event FOR VALUES FROM (%L) TO (%L)',
+            to_char(day, 'YYYYMMDD'), day, day + 1);
+    END LOOP;
+END $$;
 
 CREATE TABLE pixel_v2.exception (
   LOGID VARCHAR(64) PRIMARY KEY NOT NULL,
@@ -130,11 +155,10 @@ CREATE TABLE IF NOT EXISTS pixel_v2.application_context (
   VALUE TEXT,
   
   -- Unique constraint on logid and name combination
-  CONSTRAINT uq_app_context_logid_name UNIQUE (LOGID, NAME),
+  CONSTRAINT uq_app_context_logid_name UNIQUE (LOGID, NAME)
   
-  -- Foreign key to log_event table
-  CONSTRAINT fk_app_context_log_event FOREIGN KEY (LOGID) 
-    REFERENCES pixel_v2.log_event(LOGID) ON DELETE CASCADE
+  -- No foreign key to log_event: LOGID alone is not unique in the partitioned table, and the
+  -- partition manager deletes the contexts of the partitions it drops
 );
 
 -- Create indexes for application context queries
@@ -149,18 +173,8 @@ CREATE INDEX IF NOT EXISTS idx_exception_component ON pixel_v2.exception(COMPONE
 CREATE INDEX IF NOT EXISTS idx_exception_severity ON pixel_v2.exception(SEVERITY);
 CREATE INDEX IF NOT EXISTS idx_exception_type ON pixel_v2.exception(TYPE);
 
--- Create indexes for log events queries (matching JPA @Index annotations)
-CREATE INDEX IF NOT EXISTS idx_log_datats ON pixel_v2.log_event(DATATS);
-CREATE INDEX IF NOT EXISTS idx_log_flowid ON pixel_v2.log_event(FLOWID);
-CREATE INDEX IF NOT EXISTS idx_log_flowcode ON pixel_v2.log_event(FLOWCODE);
-CREATE INDEX IF NOT EXISTS idx_log_component ON pixel_v2.log_event(COMPONENT);
-CREATE INDEX IF NOT EXISTS idx_log_day ON pixel_v2.log_event(LOG_DAY);
-CREATE INDEX IF NOT EXISTS idx_log_logrole ON pixel_v2.log_event(LOGROLE);
--- Additional useful indexes
-CREATE INDEX IF NOT EXISTS idx_log_event_msgcorrelationid ON pixel_v2.log_event(MSGCORRELATIONID);
-CREATE INDEX IF NOT EXISTS idx_log_event_msgid ON pixel_v2.log_event(MSGID);
-CREATE INDEX IF NOT EXISTS idx_log_event_contextid ON pixel_v2.log_event(CONTEXTID);
-CREATE INDEX IF NOT EXISTS idx_log_event_refflowid ON pixel_v2.log_event(REFFLOWID);
+-- Log events indexes are created per partition by the k-db-tx partition manager: an index on
+-- the partitioned table would cascade to every partition and could not be lightened on old ones
 
 -- Create flow summary table for flow tracking and monitoring
 CREATE TABLE IF NOT EXISTS pixel_v2.flow_summary (
@@ -218,22 +232,44 @@ CREATE INDEX IF NOT EXISTS idx_flow_summary_recipient_partner ON pixel_v2.flow_s
 CREATE INDEX IF NOT EXISTS idx_flow_summary_ref_flow_id ON pixel_v2.flow_summary(REF_FLOW_ID);
 CREATE INDEX IF NOT EXISTS idx_flow_summary_region ON pixel_v2.flow_summary(REGION);
 
--- Create duplicate check table for flow duplicate detection
+-- Create duplicate check table for flow duplicate detection.
+-- Range-partitioned by receipt day: the k-duplicate-check partition manager creates daily
+-- partitions ahead of time and drops those older than the duplicate window, so the hot
+-- unique index only covers the window. Unique keys must include the partition key.
+-- Databases created with the former unpartitioned table: run
+-- migrate_tech_duplicate_check_partitioned.sql before upgrading.
 CREATE TABLE IF NOT EXISTS pixel_v2.tech_duplicate_check (
-    FLOWOCCUR_ID VARCHAR(255) PRIMARY KEY,
+    FLOWOCCUR_ID VARCHAR(255) NOT NULL,
     PARTNER_ID VARCHAR(255),
     CHECKSUM VARCHAR(255) NOT NULL,
     FLOWID VARCHAR(255) NOT NULL,
     RECEIPT_DTE TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    RECEIPT_DAY DATE NOT NULL DEFAULT CURRENT_DATE,
     
-    -- Constraints to ensure data integrity
-    CONSTRAINT unique_flow_checksum UNIQUE (FLOWID, CHECKSUM)
-);
+    PRIMARY KEY (FLOWOCCUR_ID, RECEIPT_DAY),
+    -- Unique (FLOWID, CHECKSUM) per day: arbiter of the k-duplicate-check INSERT ... ON CONFLICT.
+    -- Earlier days of the window are probed by the NOT EXISTS guard of the same statement.
+    CONSTRAINT unique_flow_checksum UNIQUE (FLOWID, CHECKSUM, RECEIPT_DAY)
+) PARTITION BY RANGE (RECEIPT_DAY);
+
+-- Rows of a day without partition (maintenance late); the partition manager moves them out when
+-- it creates the missing partition
+CREATE TABLE IF NOT EXISTS pixel_v2.tech_duplicate_check_default PARTITION OF pixel_v2.tech_duplicate_check DEFAULT;
+
+-- Partitions for today and the next days; afterwards maintained by the application
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR i IN 0..3 LOOP
+        day := CURRENT_DATE + i;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS pixel_v2.tech_duplicate_check_p%s PARTITION OF pixel_v2.tech_duplicate_check FOR VALUES FROM (%L) TO (%L)',
+            to_char(day, 'YYYYMMDD'), day, day + 1);
+    END LOOP;
+END $$;
 
 -- Create indexes for duplicate check queries
-CREATE INDEX IF NOT EXISTS idx_tech_duplicate_check_flowid ON pixel_v2.tech_duplicate_check(FLOWID);
-CREATE INDEX IF NOT EXISTS idx_tech_duplicate_check_checksum ON pixel_v2.tech_duplicate_check(CHECKSUM);
-CREATE INDEX IF NOT EXISTS idx_tech_duplicate_check_flowid_checksum ON pixel_v2.tech_duplicate_check(FLOWID, CHECKSUM);
 CREATE INDEX IF NOT EXISTS idx_tech_duplicate_check_receipt_dte ON pixel_v2.tech_duplicate_check(RECEIPT_DTE);
 
 
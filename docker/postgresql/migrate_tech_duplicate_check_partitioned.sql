@@ -0,0 +1,82 @@
+-- Migrate pixel_v2.tech_duplicate_check to the range-partitioned layout of init_pixel_v2_schema.sql.
+-- Required before deploying the k-duplicate-check version that writes RECEIPT_DAY and uses
+-- ON CONFLICT (FLOWID, CHECKSUM, RECEIPT_DAY).
+--
+-- Runs in one transaction and does nothing when the table is already partitioned. The legacy
+-- table is kept as pixel_v2.tech_duplicate_check_legacy for rollback; drop it once validated.
+-- Rows older than the duplicate window (30 days) are not copied: they can no longer match.
+--
+-- Usage: psql -U pixelv2 -d pixelv2 -f migrate_tech_duplicate_check_partitioned.sql
+
+BEGIN;
+
+DO $$
+DECLARE
+    window_days CONSTANT INTEGER := 30;
+    days_ahead CONSTANT INTEGER := 3;
+    day DATE;
+    copied BIGINT;
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+        WHERE n.nspname = 'pixel_v2' AND c.relname = 'tech_duplicate_check' AND c.relkind = 'p'
+    ) THEN
+        RAISE NOTICE 'pixel_v2.tech_duplicate_check is already partitioned, nothing to migrate';
+        RETURN;
+    END IF;
+
+    -- Move the legacy table and its index names out of the way (index names are per schema)
+    ALTER TABLE pixel_v2.tech_duplicate_check RENAME TO tech_duplicate_check_legacy;
+    ALTER TABLE pixel_v2.tech_duplicate_check_legacy
+        RENAME CONSTRAINT unique_flow_checksum TO unique_flow_checksum_legacy;
+    ALTER TABLE pixel_v2.tech_duplicate_check_legacy
+        RENAME CONSTRAINT tech_duplicate_check_pkey TO tech_duplicate_check_legacy_pkey;
+    ALTER INDEX IF EXISTS pixel_v2.idx_tech_duplicate_check_flowid
+        RENAME TO idx_tech_duplicate_check_legacy_flowid;
+    ALTER INDEX IF EXISTS pixel_v2.idx_tech_duplicate_check_checksum
+        RENAME TO idx_tech_duplicate_check_legacy_checksum;
+    ALTER INDEX IF EXISTS pixel_v2.idx_tech_duplicate_check_flowid_checksum
+        RENAME TO idx_tech_duplicate_check_legacy_flowid_checksum;
+    ALTER INDEX IF EXISTS pixel_v2.idx_tech_duplicate_check_receipt_dte
+        RENAME TO idx_tech_duplicate_check_legacy_receipt_dte;
+
+    -- Same definition as init_pixel_v2_schema.sql
+    CREATE TABLE pixel_v2.tech_duplicate_check (
+        FLOWOCCUR_ID VARCHAR(255) NOT NULL,
+        PARTNER_ID VARCHAR(255),
+        CHECKSUM VARCHAR(255) NOT NULL,
+        FLOWID VARCHAR(255) NOT NULL,
+        RECEIPT_DTE TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+        RECEIPT_DAY DATE NOT NULL DEFAULT CURRENT_DATE,
+
+        PRIMARY KEY (FLOWOCCUR_ID, RECEIPT_DAY),
+        CONSTRAINT unique_flow_checksum UNIQUE (FLOWID, CHECKSUM, RECEIPT_DAY)
+    ) PARTITION BY RANGE (RECEIPT_DAY);
+
+    CREATE TABLE pixel_v2.tech_duplicate_check_default
+        PARTITION OF pixel_v2.tech_duplicate_check DEFAULT;
+
+    FOR i IN -window_days..days_ahead LOOP
+        day := CURRENT_DATE + i;
+        EXECUTE format(
+            'CREATE TABLE pixel_v2.tech_duplicate_check_p%s PARTITION OF pixel_v2.tech_duplicate_check FOR VALUES FROM (%L) TO (%L)',
+            to_char(day, 'YYYYMMDD'), day, day + 1);
+    END LOOP;
+
+    CREATE INDEX idx_tech_duplicate_check_receipt_dte ON pixel_v2.tech_duplicate_check(RECEIPT_DTE);
+
+    -- The legacy (FLOWID, CHECKSUM) constraint guarantees one row per pair, so no conflict here.
+    -- Rows without RECEIPT_DTE (or dated in the future) are put in today's partition.
+    INSERT INTO pixel_v2.tech_duplicate_check
+        (FLOWOCCUR_ID, PARTNER_ID, CHECKSUM, FLOWID, RECEIPT_DTE, RECEIPT_DAY)
+    SELECT FLOWOCCUR_ID, PARTNER_ID, CHECKSUM, FLOWID, RECEIPT_DTE,
+           LEAST(COALESCE(RECEIPT_DTE::date, CURRENT_DATE), CURRENT_DATE)
+    FROM pixel_v2.tech_duplicate_check_legacy
+    WHERE RECEIPT_DTE IS NULL OR RECEIPT_DTE >= CURRENT_DATE - window_days;
+    GET DIAGNOSTICS copied = ROW_COUNT;
+
+    RAISE NOTICE 'pixel_v2.tech_duplicate_check partitioned, % rows copied from tech_duplicate_check_legacy',
+        copied;
+END $$;
+
+COMMIT;
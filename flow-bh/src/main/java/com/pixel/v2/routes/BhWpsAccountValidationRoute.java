@@ -30,7 +30,7 @@ public class BhWpsAccountValidationRoute extends RouteBuilder {
 
     // Kamelet endpoint for logging events
     private static final String K_LOG_EVENTS_ENDPOINT =
-        "kamelet:k-log-events?step=ACCOUNT_VALIDATION&kafkaTopicName=${header.kafkaLogTopicName}&brokers={{pixel.kafka.brokers}}";
+        "kamelet:k-log-events?component=BH-WPS-ACCOUNT-VALIDATION&topicHeader=kafkaLogTopicName";
 
     // HTTP endpoint to ATLAS2 for account validation
     private static final String ATLAS2_VALIDATION_ENDPOINT =
@@ -49,11 +49,13 @@ public class BhWpsAccountValidationRoute extends RouteBuilder {
             .setHeader("flowCode", constant("BHWPSACCT"))
             .setHeader("flowDirection", constant("INBOUND"))
             .setHeader("kafkaLogTopicName", constant("{{pixel.kafka.log.topic-name}}"))
+            .setHeader("Brokers", constant("{{pixel.kafka.brokers}}"))
             
             // Step 1: Fetch reference data (flow configuration, partner settings)
             .to(K_IDENTIFICATION_ENDPOINT)
             
             // Step 2: Log receipt confirmation
+            .setHeader("LogMessageTxt", constant("Account validation request received"))
             .wireTap(K_LOG_EVENTS_ENDPOINT)
             
             // Step 3: Extract account information from request
@@ -64,6 +66,7 @@ public class BhWpsAccountValidationRoute extends RouteBuilder {
             
             // Step 5: Log validation result
             .log("[BH-WPS-ACCOUNT-VALIDATION] Validation result: ${body}")
+            .setHeader("LogMessageTxt", constant("Account validation completed"))
             .wireTap(K_LOG_EVENTS_ENDPOINT)
             
             // Step 6: Return response to WPS Benefit
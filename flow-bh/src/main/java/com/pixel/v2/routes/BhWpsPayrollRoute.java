@@ -34,7 +34,7 @@ public class BhWpsPayrollRoute extends RouteBuilder {
 
     // Kamelet endpoint for duplicate check
     private static final String K_DUPLICATE_CHECK_ENDPOINT =
-        "kamelet:k-duplicate-check?dataSource={{pixel.datasource.name}}&disableCheckDB={{pixel.duplicate.check.disable:false}}&disableCheckMaxFileSize={{pixel.duplicate.check.max.file.size.disable:false}}&maxRetryCount={{pixel.duplicate.check.max.retry:3}}&retrySleepPeriod={{pixel.duplicate.check.retry.sleep:1000}}";
+        "kamelet:k-duplicate-check?dataSource={{pixel.datasource.name}}&disableCheckDB={{pixel.duplicate.check.disable:false}}&disableCheckMaxFileSize={{pixel.duplicate.check.max.file.size.disable:false}}&maxRetryCount={{pixel.duplicate.check.max.retry:3}}&retrySleepPeriod={{pixel.duplicate.check.retry.sleep:1000}}&checksumAlgorithm={{pixel.duplicate.check.algorithm:SHA-1}}&duplicateWindowDays={{pixel.duplicate.check.window.days:30}}";
 
     // Kamelet endpoint for XSD validation (if WPS provides XML)
     private static final String K_XSD_VALIDATION_ENDPOINT =
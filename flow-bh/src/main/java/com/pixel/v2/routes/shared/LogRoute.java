@@ -14,17 +14,17 @@ public class LogRoute extends RouteBuilder {
     public void configure() throws Exception {
 
         // Main route: Consume from flow-summary topic and persist to database
-        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.flow-summary.topic-name}}&groupId={{pixel.kafka.groupId}}")
+        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.flow-summary.topic-name}}&groupId={{pixel.kafka.groupId}}&batching={{pixel.kafka.log.batching:true}}&maxPollRecords={{pixel.kafka.log.max-poll-records:500}}&consumersCount={{pixel.kafka.log.consumers-count:1}}")
                 .routeId("bh-log-processing-flow")
                 .to("direct:process-flow-summary-log");
 
         // Log Events route: Consume from log-events topic and persist to database
-        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.log.topic-name}}&groupId={{pixel.kafka.groupId}}")
+        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.log.topic-name}}&groupId={{pixel.kafka.groupId}}&batching={{pixel.kafka.log.batching:true}}&maxPollRecords={{pixel.kafka.log.max-poll-records:500}}&consumersCount={{pixel.kafka.log.consumers-count:1}}")
                 .routeId("bh-log-events-processing-flow")
                 .to("direct:process-log-events");
 
         // Log Error Events route: Consume from error-log-events topic and persist to database
-        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.error.log.topic-name}}&groupId={{pixel.kafka.groupId}}")
+        from("kamelet:k-kafka-log-starter?bootstrapServers={{pixel.kafka.brokers}}&topic={{pixel.kafka.error.log.topic-name}}&groupId={{pixel.kafka.groupId}}&batching={{pixel.kafka.log.batching:true}}&maxPollRecords={{pixel.kafka.log.max-poll-records:500}}&consumersCount={{pixel.kafka.log.consumers-count:1}}")
                 .routeId("bh-log-events-error-flow")
                 .to("direct:error-log-events");
 
@@ -0,0 +1,63 @@
+package com.pixel.v2.referential.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Per-worker latency samples in nanoseconds. Each worker owns one recorder, so recording is a
+ * plain array write; recorders are merged once at the end of the run.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1 << 14];
+    private int count;
+    private long errors;
+
+    public void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length << 1);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * Merge all recorders into one sorted sample array
+     */
+    public static long[] mergeSorted(Iterable<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Nearest-rank percentile over a sorted array, in milliseconds
+     */
+    public static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0d;
+        }
+        int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+        int index = Math.min(Math.max(rank - 1, 0), sorted.length - 1);
+        return sorted[index] / 1_000_000d;
+    }
+}
@@ -0,0 +1,39 @@
+package com.pixel.v2.referential.loadtest;
+
+/**
+ * Load test settings read from system properties (-Dloadtest.xxx=...)
+ */
+public record LoadTestSettings(int flows, int partnersPerFlow, int propertiesPerFlow,
+        int rulesPerFlow, int concurrency, int warmupSeconds, int durationSeconds, String accept,
+        double maxP99Millis, double minThroughput) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.flows", 20),
+                Integer.getInteger("loadtest.partners", 10),
+                Integer.getInteger("loadtest.properties", 5),
+                Integer.getInteger("loadtest.rules", 3),
+                Integer.getInteger("loadtest.concurrency", 16),
+                Integer.getInteger("loadtest.warmupSeconds", 10),
+                Integer.getInteger("loadtest.durationSeconds", 30),
+                System.getProperty("loadtest.accept", "application/json"),
+                doubleProperty("loadtest.maxP99Millis"),
+                doubleProperty("loadtest.minThroughput"));
+    }
+
+    /**
+     * Gate thresholds are disabled (0) unless explicitly provided
+     */
+    private static double doubleProperty(String name) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? 0d : Double.parseDouble(value.trim());
+    }
+
+    @Override
+    public String toString() {
+        return "flows=" + flows + ", partners/flow=" + partnersPerFlow + ", properties/flow="
+                + propertiesPerFlow + ", rules/flow=" + rulesPerFlow + ", concurrency="
+                + concurrency + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds
+                + "s, accept=" + accept;
+    }
+}
@@ -0,0 +1,179 @@
+package com.pixel.v2.referential.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.pixel.v2.referential.ReferentialApplication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Load test for the referential service. Starts an embedded PostgreSQL, seeds synthetic flows,
+ * boots ReferentialApplication against it on a random port and drives concurrent
+ * {@code /flows/{flowCode}/complete} requests. Reports throughput and p50/p99/p999 latency, and
+ * fails when the optional loadtest.maxP99Millis / loadtest.minThroughput gates are not met.
+ */
+public class ReferentialLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferentialLoadTest.class);
+
+    private static final String COMPLETE_FLOW_PATH = "/api/referential/flows/%s/complete";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        logger.info("Referential load test: {}", settings);
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            List<String> flowCodes =
+                    new SyntheticFlowSeeder(postgres.getPostgresDatabase()).seed(settings);
+
+            try (ConfigurableApplicationContext context = startReferential(postgres)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port",
+                        Integer.class);
+                LoadTestResult result =
+                        new ReferentialLoadTest().run("http://localhost:" + port, flowCodes,
+                                settings);
+                logger.info("{}", result);
+                result.assertGates(settings);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startReferential(EmbeddedPostgres postgres) {
+        return new SpringApplicationBuilder(ReferentialApplication.class)
+                .properties("server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=postgres",
+                        "spring.liquibase.enabled=false",
+                        "logging.level.com.pixel.v2.referential=WARN")
+                .run();
+    }
+
+    LoadTestResult run(String baseUrl, List<String> flowCodes, LoadTestSettings settings)
+            throws InterruptedException {
+        HttpClient client =
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+        List<HttpRequest> requests = new ArrayList<>(flowCodes.size());
+        for (String flowCode : flowCodes) {
+            requests.add(HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + String.format(COMPLETE_FLOW_PATH, flowCode)))
+                    .header("Accept", settings.accept()).timeout(Duration.ofSeconds(30)).GET()
+                    .build());
+        }
+
+        logger.info("Warm-up for {}s", settings.warmupSeconds());
+        drive(client, requests, settings.concurrency(), settings.warmupSeconds());
+
+        logger.info("Measuring for {}s with {} concurrent clients", settings.durationSeconds(),
+                settings.concurrency());
+        long start = System.nanoTime();
+        List<LatencyRecorder> recorders =
+                drive(client, requests, settings.concurrency(), settings.durationSeconds());
+        long elapsedNanos = System.nanoTime() - start;
+
+        return LoadTestResult.from(recorders, elapsedNanos);
+    }
+
+    private List<LatencyRecorder> drive(HttpClient client, List<HttpRequest> requests,
+            int concurrency, int seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<LatencyRecorder> recorders = new ArrayList<>(concurrency);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+
+        for (int worker = 0; worker < concurrency; worker++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    HttpRequest request = requests.get(random.nextInt(requests.size()));
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response =
+                                client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() == 200) {
+                            recorder.record(System.nanoTime() - begin);
+                        } else {
+                            recorder.recordError();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        recorder.recordError();
+                    }
+                }
+            });
+        }
+
+        TimeUnit.SECONDS.sleep(seconds);
+        running.set(false);
+        workers.shutdown();
+        if (!workers.awaitTermination(60, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+        return recorders;
+    }
+
+    /**
+     * Aggregated result of a measurement window
+     */
+    record LoadTestResult(long requests, long errors, double throughput, double p50Millis,
+            double p99Millis, double p999Millis, double maxMillis) {
+
+        static LoadTestResult from(List<LatencyRecorder> recorders, long elapsedNanos) {
+            long[] sorted = LatencyRecorder.mergeSorted(recorders);
+            long errors = recorders.stream().mapToLong(LatencyRecorder::errors).sum();
+            double seconds = elapsedNanos / 1_000_000_000d;
+            return new LoadTestResult(sorted.length, errors, sorted.length / seconds,
+                    LatencyRecorder.percentileMillis(sorted, 50),
+                    LatencyRecorder.percentileMillis(sorted, 99),
+                    LatencyRecorder.percentileMillis(sorted, 99.9),
+                    LatencyRecorder.percentileMillis(sorted, 100));
+        }
+
+        void assertGates(LoadTestSettings settings) {
+            List<String> violations = new ArrayList<>();
+            if (settings.maxP99Millis() > 0 && p99Millis > settings.maxP99Millis()) {
+                violations.add(String.format("p99 %.2f ms > %.2f ms", p99Millis,
+                        settings.maxP99Millis()));
+            }
+            if (settings.minThroughput() > 0 && throughput < settings.minThroughput()) {
+                violations.add(String.format("throughput %.1f req/s < %.1f req/s", throughput,
+                        settings.minThroughput()));
+            }
+            if (requests == 0) {
+                violations.add("no successful request");
+            }
+            if (!violations.isEmpty()) {
+                throw new IllegalStateException(
+                        "Referential load test gate failed: " + String.join(", ", violations));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "requests=%d, errors=%d, throughput=%.1f req/s, p50=%.2f ms, p99=%.2f ms, "
+                            + "p999=%.2f ms, max=%.2f ms",
+                    requests, errors, throughput, p50Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+}
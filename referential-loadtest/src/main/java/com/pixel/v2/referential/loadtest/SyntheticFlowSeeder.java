@@ -0,0 +1,155 @@
+package com.pixel.v2.referential.loadtest;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Creates the TIB_AUDIT_TEC schema and seeds synthetic flows with a configurable fan-out of
+ * partners, functional properties and flow rules. The complete-flow query joins all three, so the
+ * fan-out directly drives the number of rows the referential service has to fold into a
+ * RefFlowDto.
+ */
+public class SyntheticFlowSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticFlowSeeder.class);
+
+    /** Schema DDL shipped with the referential module */
+    private static final String SCHEMA_SCRIPT = "db/changelog/init_tib_audit_tec_schema.sql";
+
+    private static final String FLOW_CODE_PREFIX = "LT";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public SyntheticFlowSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Create schema and seed data, returning the flow codes to request
+     */
+    public List<String> seed(LoadTestSettings settings) {
+        createSchema();
+        seedLookups(settings.propertiesPerFlow());
+
+        List<String> flowCodes = new ArrayList<>(settings.flows());
+        for (int flow = 1; flow <= settings.flows(); flow++) {
+            flowCodes.add(seedFlow(flow, settings));
+        }
+
+        logger.info("Seeded {} synthetic flows ({} rows per complete-flow query)", flowCodes.size(),
+                (long) settings.partnersPerFlow() * settings.propertiesPerFlow()
+                        * settings.rulesPerFlow());
+        return flowCodes;
+    }
+
+    public static String flowCode(int flow) {
+        return FLOW_CODE_PREFIX + String.format("%05d", flow);
+    }
+
+    private void createSchema() {
+        ResourceDatabasePopulator populator =
+                new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT));
+        populator.setContinueOnError(false);
+        populator.setIgnoreFailedDrops(true);
+        populator.execute(dataSource);
+    }
+
+    private void seedLookups(int propertiesPerFlow) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_application "
+                + "(application_id, application_code, application_name) VALUES (1, 'ITL', 'ITL')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_flow_typ (flow_typ_id, flow_typ_name) "
+                + "VALUES (1, 'LOADTEST')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_partner_typ "
+                + "(partner_type_id, partner_type_name) VALUES (1, 'BANK')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_country "
+                + "(country_id, country_name, country_iso_code, is_sepa, region) "
+                + "VALUES (1, 'Switzerland', 'CH', 'Y', 'EU')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_charset_encoding "
+                + "(charset_encoding_id, charset_code, charset_desc) VALUES (1, 'UTF-8', 'UTF-8')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_route_rule (rule_id, rule_name) "
+                + "VALUES (1, 'DEFAULT')");
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_tech_process "
+                + "(tech_process_id, creation_dte, tech_process_name, update_dte) "
+                + "VALUES (1, ?, 'LOADTEST', ?)", now, now);
+
+        List<Object[]> properties = new ArrayList<>();
+        for (int property = 1; property <= propertiesPerFlow; property++) {
+            properties.add(new Object[] {property, "LT_PRTY_" + property,
+                    "Load test property " + property, "STRING"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_prty_flow "
+                + "(prty_flow_id, prty_flow_name, prty_flow_desc, prty_flow_typ) "
+                + "VALUES (?, ?, ?, ?)", properties);
+    }
+
+    private String seedFlow(int flow, LoadTestSettings settings) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String flowCode = flowCode(flow);
+
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_func_process "
+                + "(func_process_id, func_process_name, creation_dte, update_dte) "
+                + "VALUES (?, ?, ?, ?)", flow, "LT_FP_" + flow, now, now);
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_flow (flow_id, func_process_id, "
+                + "flow_typ_id, tech_process_id, flow_name, flow_direction, flow_code, enable_flg, "
+                + "creation_dte, update_dte, application_id, max_file_size) "
+                + "VALUES (?, ?, 1, 1, ?, 'IN', ?, 'Y', ?, ?, 1, 10485760)", flow, flow,
+                "Load test flow " + flow, flowCode, now, now);
+        jdbcTemplate.update("INSERT INTO tib_audit_tec.ref_flow_country (flow_id, country_id) "
+                + "VALUES (?, 1)", flow);
+
+        List<Object[]> properties = new ArrayList<>();
+        for (int property = 1; property <= settings.propertiesPerFlow(); property++) {
+            properties.add(new Object[] {flow, property, "value-" + flow + "-" + property});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_func_process_prty "
+                + "(func_process_id, prty_flow_id, flow_prty_value) VALUES (?, ?, ?)", properties);
+
+        List<Object[]> rules = new ArrayList<>();
+        for (int rule = 1; rule <= settings.rulesPerFlow(); rule++) {
+            rules.add(new Object[] {flowCode, "T" + rule, rule});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_flow_rules (flowcode, "
+                + "transporttype, isunitary, priority, urgency, flowcontrolledenabled, flowmaximum, "
+                + "flowretentionenabled, retentioncycleperiod, write_file, minrequiredfilesize, "
+                + "ignoreoutputdupcheck, logall) "
+                + "VALUES (?, ?, 'true', ?, 'NORMAL', 'false', 1000, 'false', 1, 'true', 0, "
+                + "'false', 'false')", rules);
+
+        List<Object[]> partners = new ArrayList<>();
+        List<Object[]> transports = new ArrayList<>();
+        List<Object[]> mqsTransports = new ArrayList<>();
+        List<Object[]> flowPartners = new ArrayList<>();
+        for (int partner = 1; partner <= settings.partnersPerFlow(); partner++) {
+            long id = (long) (flow - 1) * settings.partnersPerFlow() + partner;
+            String direction = partner == 1 ? "IN" : "OUT";
+            partners.add(new Object[] {id, "Load test partner " + id, "P" + id, now, now});
+            transports.add(new Object[] {id});
+            mqsTransports.add(new Object[] {id, "LT.Q." + id});
+            flowPartners.add(new Object[] {id, flow, id, direction, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_partner (partner_id, "
+                + "partner_type_id, partner_name, partner_code, creation_dte, update_dte) "
+                + "VALUES (?, 1, ?, ?, ?, ?)", partners);
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_transport "
+                + "(transport_id, transport_typ) VALUES (?, 'MQS')", transports);
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_transport_mqs "
+                + "(transport_id, mqs_q_name, mqs_q_manager) VALUES (?, ?, 'QM_LT')", mqsTransports);
+        jdbcTemplate.batchUpdate("INSERT INTO tib_audit_tec.ref_flow_partner (partner_id, flow_id, "
+                + "transport_id, partner_direction, creation_dte, update_dte, rule_id, "
+                + "charset_encoding_id) VALUES (?, ?, ?, ?, ?, ?, 1, 1)", flowPartners);
+
+        return flowCode;
+    }
+}
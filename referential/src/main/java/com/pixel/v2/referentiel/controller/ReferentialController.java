@@ -5,12 +5,14 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pixel.v2.referential.config.WireFormatConfig;
 import com.pixel.v2.referential.model.RefFlowDto;
 import com.pixel.v2.referential.service.ReferentialService;
 
@@ -29,12 +31,15 @@ public class ReferentialController {
 
     /**
      * Get complete flow information by flow code including all related data Returns data structured
-     * like referential-example.json
+     * like referential-example.json. The representation is negotiated from the Accept header: JSON
+     * (default), CBOR or Smile. Responses are gzip-compressed when the client accepts it.
      * 
      * @param flowCode The flow code to retrieve complete information for
      * @return RefFlowDto containing all related flow data in the expected JSON structure
      */
-    @GetMapping("/flows/{flowCode}/complete")
+    @GetMapping(value = "/flows/{flowCode}/complete",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+                    WireFormatConfig.APPLICATION_SMILE_VALUE})
     public ResponseEntity<RefFlowDto> getCompleteFlowByCode(@PathVariable String flowCode) {
         logger.info("GET /api/referential/flows/{}/complete", flowCode);
         Optional<RefFlowDto> refFlow =
@@ -1,11 +1,17 @@
 package com.pixel.v2.db;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.camel.Body;
 import org.apache.camel.Handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,6 +45,9 @@ public class ErrorLogEventPersistenceProcessor {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired(required = false)
+    private PostgresCopyLoader copyLoader;
+
     private ObjectMapper objectMapper;
 
     public ErrorLogEventPersistenceProcessor() {
@@ -94,6 +103,63 @@ public class ErrorLogEventPersistenceProcessor {
         }
     }
 
+    /**
+     * Persists a batch of ErrorLogEvent JSON records in one transaction.
+     * 
+     * The batch is bulk loaded with COPY by the {@link PostgresCopyLoader}. Without it, or when
+     * the COPY load fails, the existing LogIds are read with one query and the rows are written
+     * through JDBC batches with a single flush. Records that cannot be parsed are logged and skipped; a database error
+     * rolls the whole batch back so that the Kafka offsets are not committed.
+     * 
+     * @param records the polled records: exchanges, messages or JSON strings
+     */
+    @Transactional
+    public void persistErrorLogEventsFromJson(@Body List<?> records) {
+        List<ErrorLogEvent> errorLogEvents = new ArrayList<>(records.size());
+        for (String jsonBody : JsonBatch.bodies(records)) {
+            try {
+                errorLogEvents.add(objectMapper.readValue(jsonBody, ErrorLogEvent.class));
+            } catch (Exception e) {
+                logger.error(
+                        "[K-DB-ERROR-LOG-EVENT] Skipping unparseable ErrorLogEvent in batch - JSON: {}, Error: {}",
+                        jsonBody, e.getMessage());
+            }
+        }
+        Map<String, ErrorLogEvent> byId =
+                JsonBatch.lastById(errorLogEvents, ErrorLogEvent::getLogId, "ErrorLogEvent");
+        if (byId.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (ErrorLogEvent errorLogEvent : byId.values()) {
+            if (errorLogEvent.getDatats() == null) {
+                errorLogEvent.setDatats(now);
+            }
+        }
+        if (copyLoader != null && copyLoader.loadErrorLogEvents(entityManager, byId.values())) {
+            logger.debug("[K-DB-ERROR-LOG-EVENT] COPY loaded batch - Records: {}, ErrorLogEvents: {}",
+                    records.size(), byId.size());
+            return;
+        }
+
+        JsonBatch.enableJdbcBatching(entityManager);
+        Set<String> existingIds = JsonBatch.existingIds(entityManager, ErrorLogEvent.class,
+                "logId", byId.keySet());
+        for (ErrorLogEvent errorLogEvent : byId.values()) {
+            if (existingIds.contains(errorLogEvent.getLogId())) {
+                entityManager.merge(errorLogEvent);
+            } else {
+                entityManager.persist(errorLogEvent);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        logger.debug("[K-DB-ERROR-LOG-EVENT] Persisted batch - Records: {}, ErrorLogEvents: {}, Updated: {}",
+                records.size(), byId.size(), existingIds.size());
+    }
+
     /**
      * Persists an ErrorLogEvent entity to the database.
      * 
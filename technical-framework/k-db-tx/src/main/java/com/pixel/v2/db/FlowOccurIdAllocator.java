@@ -0,0 +1,229 @@
+package com.pixel.v2.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.apache.camel.Exchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out FlowOccurIds from blocks reserved on the flow occurrence sequence.
+ *
+ * The sequence is read as a pooled-lo sequence: each nextval reserves the values from the
+ * returned one up to the sequence increment excluded, so with {@code INCREMENT BY 1000} one call
+ * reserves 1000 ids. A node reserves about blockSize ids per round trip, calling nextval as many
+ * times as needed in one query, then hands them out from an {@link AtomicLong}; only the refill
+ * takes a lock. With the former {@code INCREMENT BY 1} sequence a block is blockSize single
+ * values, so the allocator works before and after the sequence is altered. Ids stay unique across
+ * nodes whatever their block sizes, but are no longer in creation order across nodes, and the ids
+ * left in a block are skipped when a node stops.
+ *
+ * Once the increment is raised, every producer of FlowOccurIds must go through this allocator: a
+ * plain nextval would return the first id of a block reserved by a node. A refill failure is
+ * thrown to the caller, and the following calls fail at once until the retry delay has passed, so
+ * that a database outage does not queue every message behind a connection timeout; the starter
+ * kamelets then fall back to a UUID.
+ *
+ * Blocks are kept per (DataSource, sequence) pair, so the dataSource and sequenceName parameters
+ * of the kamelets are honored: {@code next(exchange, dataSource, sequence)} looks the DataSource
+ * bean up by name in the Camel registry. {@code next()} uses the primary DataSource and the
+ * pixel.db.flow-occur-id.sequence property. Used by the kamelets through a {@code method}
+ * expression: {@code next(${exchange}, '{{dataSource}}', '{{sequenceName}}')}.
+ */
+@Component("flowOccurIdAllocator")
+public class FlowOccurIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowOccurIdAllocator.class);
+
+    private final ObjectProvider<DataSource> dataSourceProvider;
+    private final String sequence;
+    private final int blockSize;
+    private final long retryNanos;
+
+    private final SequenceBlocks defaultBlocks;
+    private final Map<SequenceKey, SequenceBlocks> namedBlocks = new ConcurrentHashMap<>();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder failedRefills = new LongAdder();
+
+    public FlowOccurIdAllocator(ObjectProvider<DataSource> dataSourceProvider,
+            @Value("${pixel.db.flow-occur-id.sequence:pixel_v2.flow_occurence_id_seq}") String sequence,
+            @Value("${pixel.db.flow-occur-id.block-size:1000}") int blockSize,
+            @Value("${pixel.db.flow-occur-id.retry-ms:1000}") long retryMs) {
+        this.dataSourceProvider = dataSourceProvider;
+        this.sequence = sequence;
+        this.blockSize = Math.max(1, blockSize);
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMs);
+        this.defaultBlocks = new SequenceBlocks(sequence);
+    }
+
+    /**
+     * Next FlowOccurId of the node from the configured sequence of the primary DataSource
+     */
+    public long next() {
+        return defaultBlocks.next(dataSourceProvider::getObject);
+    }
+
+    /**
+     * Next FlowOccurId of the node from the given sequence of the DataSource bean named
+     * dataSource; a blank sequence means the configured one
+     */
+    public long next(Exchange exchange, String dataSource, String sequence) {
+        String sequenceName = sequence == null || sequence.isBlank() ? this.sequence : sequence;
+        SequenceBlocks blocks = namedBlocks.computeIfAbsent(new SequenceKey(dataSource,
+                sequenceName), key -> new SequenceBlocks(key.sequence()));
+        return blocks.next(() -> dataSource(exchange, dataSource));
+    }
+
+    /**
+     * Next FlowOccurId of the node from the configured sequence of the DataSource bean named
+     * dataSource
+     */
+    public long next(Exchange exchange, String dataSource) {
+        return next(exchange, dataSource, null);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sequence", sequence);
+        stats.put("blockSize", blockSize);
+        stats.put("increment", defaultBlocks.increment);
+        stats.put("issued", issued.sum());
+        stats.put("refills", refills.sum());
+        stats.put("failedRefills", failedRefills.sum());
+        stats.put("remaining", defaultBlocks.block.remaining());
+        namedBlocks.forEach((key, blocks) -> stats.put(key.dataSource() + "/" + key.sequence(),
+                Map.of("increment", blocks.increment, "remaining", blocks.block.remaining())));
+        return stats;
+    }
+
+    private static DataSource dataSource(Exchange exchange, String name) {
+        DataSource dataSource =
+                exchange.getContext().getRegistry().lookupByNameAndType(name, DataSource.class);
+        if (dataSource == null) {
+            throw new IllegalStateException("No DataSource bean named " + name);
+        }
+        return dataSource;
+    }
+
+    /**
+     * nextval calls reserving at least blockSize ids
+     */
+    static int nextvalCalls(int blockSize, int increment) {
+        return Math.max(1, (blockSize + increment - 1) / increment);
+    }
+
+    record SequenceKey(String dataSource, String sequence) {
+    }
+
+    /**
+     * Current block of one (DataSource, sequence) pair and its refill state
+     */
+    private final class SequenceBlocks {
+
+        private final String sequence;
+        private final Object refillLock = new Object();
+        private volatile Block block = new Block(new long[0], 1);
+        // Read from the catalog on the first refill
+        private volatile int increment;
+        private volatile long retryAt;
+
+        private SequenceBlocks(String sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Next id, reserving a new block when the current one is used up
+         */
+        long next(Supplier<DataSource> dataSource) {
+            while (true) {
+                Block current = block;
+                long id = current.next();
+                if (id >= 0) {
+                    issued.increment();
+                    return id;
+                }
+                synchronized (refillLock) {
+                    // Another thread may have refilled while this one waited
+                    if (block == current) {
+                        if (retryAt != 0 && System.nanoTime() - retryAt < 0) {
+                            throw new IllegalStateException("FlowOccurId sequence " + sequence
+                                    + " unavailable, retrying later");
+                        }
+                        block = reserve(dataSource);
+                    }
+                }
+            }
+        }
+
+        private Block reserve(Supplier<DataSource> dataSource) {
+            try {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource.get());
+                if (increment == 0) {
+                    Integer seqIncrement = jdbcTemplate.queryForObject(
+                            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass",
+                            Integer.class, sequence);
+                    increment = seqIncrement != null && seqIncrement > 0 ? seqIncrement : 1;
+                    logger.info("[K-DB] FlowOccurId blocks of {} reserved on {} (increment {})",
+                            nextvalCalls(blockSize, increment) * increment, sequence, increment);
+                }
+                List<Long> lows = jdbcTemplate.queryForList(
+                        "SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class,
+                        sequence, nextvalCalls(blockSize, increment));
+                refills.increment();
+                retryAt = 0;
+                return new Block(lows.stream().mapToLong(Long::longValue).toArray(), increment);
+            } catch (RuntimeException e) {
+                failedRefills.increment();
+                retryAt = System.nanoTime() + retryNanos;
+                logger.warn("[K-DB] FlowOccurId block reservation on {} failed: {}", sequence,
+                        e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reserved ids: {@code span} consecutive values from each low value
+     */
+    static final class Block {
+
+        private final long[] lows;
+        private final int span;
+        private final AtomicLong cursor = new AtomicLong();
+
+        Block(long[] lows, int span) {
+            this.lows = lows;
+            this.span = span;
+        }
+
+        /**
+         * Next id of the block, -1 once used up
+         */
+        long next() {
+            long index = cursor.getAndIncrement();
+            if (index >= (long) lows.length * span) {
+                return -1;
+            }
+            return lows[(int) (index / span)] + index % span;
+        }
+
+        long remaining() {
+            return Math.max(0, (long) lows.length * span - cursor.get());
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.pixel.v2.db;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pixel.v2.model.FlowSummary;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Merges the FlowSummary records of the k-db-flow-summary kamelet by flow occurrence.
+ *
+ * A flow occurrence gets several summaries: IN_PROGRESS from the starter kamelets, COMPLETED or
+ * FAILURE from the flow route and ERROR from k-error-handling. When summaries are merged, the
+ * highest status wins, counters keep their highest value and the other columns take the latest
+ * non-null value, except the begin datetime and the root error which keep the first one.
+ *
+ * By default the summaries of one Kafka poll are coalesced with {@link #coalesce(List)} and
+ * written before the route returns, so the offsets are only committed once FLOW_SUMMARY holds
+ * them. With pixel.db.flow-summary.write-behind.enabled the aggregator also merges across polls:
+ * the merged state is written once the first summary of the occurrence is older than the window,
+ * with one batch of upserts per flush. Kafka offsets are then committed before the write: the
+ * summaries still pending when the process is killed are lost. They are all written on shutdown,
+ * and a failed flush puts its summaries back to be written by the next one. When more than
+ * maxPending occurrences are pending, the consumer thread flushes itself, so that a database
+ * outage fails the Kafka batch instead of filling the heap.
+ */
+@Component("flowSummaryAggregator")
+public class FlowSummaryAggregator implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowSummaryAggregator.class);
+
+    // Status precedence, an unknown status ranking below IN_PROGRESS
+    private static final Map<String, Integer> STATUS_RANKS =
+            Map.of("IN_PROGRESS", 1, "COMPLETED", 2, "FAILURE", 3, "ERROR", 3);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxPending;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    // Serializes the flushes, so that the writes of one occurrence stay in order
+    private final Object flushLock = new Object();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    private ScheduledExecutorService flusher;
+
+    public FlowSummaryAggregator(PlatformTransactionManager transactionManager,
+            @Value("${pixel.db.flow-summary.write-behind.enabled:false}") boolean enabled,
+            @Value("${pixel.db.flow-summary.write-behind.window-ms:1000}") long windowMs,
+            @Value("${pixel.db.flow-summary.write-behind.max-pending:10000}") int maxPending) {
+        // Own transaction: a flush from the consumer thread must not depend on its batch
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate
+                .setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.windowMs = Math.max(0, windowMs);
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            logger.info("[K-DB-FLOW-SUMMARY] Flow summary write-behind disabled");
+            return;
+        }
+        long interval = Math.max(50, windowMs / 2);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pixel-flow-summary-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushDue, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("[K-DB-FLOW-SUMMARY] Flow summary write-behind started - window: {} ms, max pending: {}",
+                windowMs, maxPending);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Merges a summary into the pending state of its flow occurrence. Summaries without
+     * FlowOccurId cannot be stored and are dropped.
+     */
+    public void add(FlowSummary flowSummary) {
+        String flowOccurId = flowSummary.getFlowOccurId();
+        if (flowOccurId == null) {
+            logger.warn("[K-DB-FLOW-SUMMARY] Skipping FlowSummary without FlowOccurId");
+            return;
+        }
+        received.increment();
+        pending.compute(flowOccurId, (key, current) -> {
+            if (current == null) {
+                return new Pending(flowSummary, System.nanoTime());
+            }
+            merge(current.summary, flowSummary);
+            return current;
+        });
+        if (pending.size() > maxPending) {
+            flush(true);
+        }
+    }
+
+    /**
+     * Writes every pending summary
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", pending.size());
+        stats.put("received", received.sum());
+        stats.put("written", written.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        if (!pending.isEmpty()) {
+            try {
+                flush(true);
+            } catch (RuntimeException e) {
+                logger.error("[K-DB-FLOW-SUMMARY] {} flow summaries lost on shutdown: {}",
+                        pending.size(), e.getMessage());
+            }
+        }
+        logger.info("[K-DB-FLOW-SUMMARY] Flow summary write-behind stopped - {}", getStatistics());
+    }
+
+    private void flushDue() {
+        try {
+            flush(false);
+        } catch (RuntimeException e) {
+            logger.warn("[K-DB-FLOW-SUMMARY] Flow summary flush failed, retrying: {}",
+                    e.getMessage());
+        }
+    }
+
+    private void flush(boolean all) {
+        synchronized (flushLock) {
+            long dueBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMs);
+            Map<String, Pending> batch = new HashMap<>();
+            for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+                Pending candidate = entry.getValue();
+                // Removing the instance read: a summary merged meanwhile is either in it or in
+                // a new entry written by the next flush
+                if ((all || candidate.firstSeenNanos - dueBefore <= 0)
+                        && pending.remove(entry.getKey(), candidate)) {
+                    batch.put(entry.getKey(), candidate);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<FlowSummary> flowSummaries = new ArrayList<>(batch.size());
+            batch.values().forEach(entry -> flowSummaries.add(entry.summary));
+            try {
+                transactionTemplate.executeWithoutResult(status -> NativeUpserts.upsertDirtyColumns(
+                        entityManager, TableMapping.FLOW_SUMMARY, flowSummaries));
+            } catch (RuntimeException e) {
+                failedFlushes.increment();
+                requeue(batch);
+                throw e;
+            }
+            flushes.increment();
+            written.add(flowSummaries.size());
+            logger.debug("[K-DB-FLOW-SUMMARY] Flushed flow summaries - Rows: {}, Pending: {}",
+                    flowSummaries.size(), pending.size());
+        }
+    }
+
+    /**
+     * Puts the summaries of a failed flush back, under the summaries received since
+     */
+    private void requeue(Map<String, Pending> batch) {
+        batch.forEach((flowOccurId, failed) -> pending.merge(flowOccurId, failed,
+                (newer, older) -> {
+                    merge(older.summary, newer.summary);
+                    return older;
+                }));
+    }
+
+    /**
+     * Merges the summaries of one batch by flow occurrence, in order of first arrival. Summaries
+     * without FlowOccurId cannot be stored and are dropped.
+     */
+    static List<FlowSummary> coalesce(List<FlowSummary> flowSummaries) {
+        Map<String, FlowSummary> byOccurrence = new LinkedHashMap<>();
+        for (FlowSummary flowSummary : flowSummaries) {
+            String flowOccurId = flowSummary.getFlowOccurId();
+            if (flowOccurId == null) {
+                logger.warn("[K-DB-FLOW-SUMMARY] Skipping FlowSummary without FlowOccurId");
+                continue;
+            }
+            FlowSummary current = byOccurrence.putIfAbsent(flowOccurId, flowSummary);
+            if (current != null) {
+                merge(current, flowSummary);
+            }
+        }
+        return new ArrayList<>(byOccurrence.values());
+    }
+
+    /**
+     * Merges a later summary of the same flow occurrence into the pending one
+     */
+    static void merge(FlowSummary pending, FlowSummary update) {
+        if (rank(update.getFlowStatusCode()) >= rank(pending.getFlowStatusCode())
+                && update.getFlowStatusCode() != null) {
+            pending.setFlowStatusCode(update.getFlowStatusCode());
+            pending.setFlowComment(latest(pending.getFlowComment(), update.getFlowComment()));
+        }
+        pending.setNbOutExpected(max(pending.getNbOutExpected(), update.getNbOutExpected()));
+        pending.setNbOutCompleted(max(pending.getNbOutCompleted(), update.getNbOutCompleted()));
+        pending.setNbError(max(pending.getNbError(), update.getNbError()));
+        pending.setNbRemitance(max(pending.getNbRemitance(), update.getNbRemitance()));
+        pending.setNbTransaction(max(pending.getNbTransaction(), update.getNbTransaction()));
+        pending.setNbReplay(max(pending.getNbReplay(), update.getNbReplay()));
+
+        pending.setBeginFlowDatetime(
+                earliest(pending.getBeginFlowDatetime(), update.getBeginFlowDatetime()));
+        if (pending.getRootErrorCode() == null && pending.getRootErrorLogId() == null) {
+            pending.setRootErrorCode(update.getRootErrorCode());
+            pending.setRootErrorLogId(update.getRootErrorLogId());
+            pending.setRootErrorDatetime(update.getRootErrorDatetime());
+        }
+
+        pending.setFlowCode(latest(pending.getFlowCode(), update.getFlowCode()));
+        pending.setFlowCountryCode(
+                latest(pending.getFlowCountryCode(), update.getFlowCountryCode()));
+        pending.setFlowCountryId(latest(pending.getFlowCountryId(), update.getFlowCountryId()));
+        pending.setFlowTypeId(latest(pending.getFlowTypeId(), update.getFlowTypeId()));
+        pending.setIssuingPartnerCode(
+                latest(pending.getIssuingPartnerCode(), update.getIssuingPartnerCode()));
+        pending.setIssuingPartnerLink(
+                latest(pending.getIssuingPartnerLink(), update.getIssuingPartnerLink()));
+        pending.setRecipientPartnerCode(
+                latest(pending.getRecipientPartnerCode(), update.getRecipientPartnerCode()));
+        pending.setRecipientPartnerLink(
+                latest(pending.getRecipientPartnerLink(), update.getRecipientPartnerLink()));
+        pending.setLastLogId(latest(pending.getLastLogId(), update.getLastLogId()));
+        pending.setLastLogComponent(
+                latest(pending.getLastLogComponent(), update.getLastLogComponent()));
+        pending.setLastLogDatetime(
+                latest(pending.getLastLogDatetime(), update.getLastLogDatetime()));
+        pending.setLastLogStatusCode(
+                latest(pending.getLastLogStatusCode(), update.getLastLogStatusCode()));
+        pending.setLastUpdateDatetime(
+                latest(pending.getLastUpdateDatetime(), update.getLastUpdateDatetime()));
+        pending.setLastUpdateUser(latest(pending.getLastUpdateUser(), update.getLastUpdateUser()));
+        pending.setInputFilePath(latest(pending.getInputFilePath(), update.getInputFilePath()));
+        pending.setInputFileSize(latest(pending.getInputFileSize(), update.getInputFileSize()));
+        pending.setRefFlowId(latest(pending.getRefFlowId(), update.getRefFlowId()));
+        pending.setEndFlowDatetime(
+                latest(pending.getEndFlowDatetime(), update.getEndFlowDatetime()));
+        pending.setCurrentClientDatetime(
+                latest(pending.getCurrentClientDatetime(), update.getCurrentClientDatetime()));
+        pending.setReplayId(latest(pending.getReplayId(), update.getReplayId()));
+        pending.setRegion(latest(pending.getRegion(), update.getRegion()));
+    }
+
+    private static int rank(String flowStatusCode) {
+        return flowStatusCode != null ? STATUS_RANKS.getOrDefault(flowStatusCode, 0) : -1;
+    }
+
+    private static <V> V latest(V pending, V update) {
+        return update != null ? update : pending;
+    }
+
+    private static Integer max(Integer pending, Integer update) {
+        if (pending == null || update == null) {
+            return latest(pending, update);
+        }
+        return Math.max(pending, update);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime pending, LocalDateTime update) {
+        if (pending == null || update == null) {
+            return latest(pending, update);
+        }
+        return update.isBefore(pending) ? update : pending;
+    }
+
+    /**
+     * Merged summary of a flow occurrence with the arrival time of its first summary
+     */
+    private static final class Pending {
+
+        private final FlowSummary summary;
+        private final long firstSeenNanos;
+
+        private Pending(FlowSummary summary, long firstSeenNanos) {
+            this.summary = summary;
+            this.firstSeenNanos = firstSeenNanos;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.pixel.v2.db;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.camel.Body;
 import org.apache.camel.Handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,7 +24,9 @@ import jakarta.persistence.PersistenceContext;
  * FlowSummary persistence processor for JPA operations.
  * 
  * This component handles the persistence of FlowSummary entities to the database using JPA and
- * Spring transactions.
+ * Spring transactions. The summaries of a batch are merged by flow occurrence before the write;
+ * with the write-behind aggregator enabled they are handed to the aggregator instead, which also
+ * merges them across batches and writes them later.
  */
 @Component
 public class FlowSummaryPersistenceProcessor {
@@ -31,6 +37,9 @@ public class FlowSummaryPersistenceProcessor {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired(required = false)
+    private FlowSummaryAggregator aggregator;
+
     private ObjectMapper objectMapper;
 
     public FlowSummaryPersistenceProcessor() {
@@ -56,6 +65,10 @@ public class FlowSummaryPersistenceProcessor {
             logger.debug("K-DB-FLOW-SUMMARY: FlowSummary entity created - ID: {}, Code: {}",
                     flowSummary.getFlowOccurId(), flowSummary.getFlowCode());
 
+            if (isWriteBehind()) {
+                aggregator.add(flowSummary);
+                return;
+            }
             persistFlowSummary(flowSummary);
 
             logger.debug("[K-DB-FLOW-SUMMARY] Successfully persisted FlowSummary - ID: {}, Code: {}",
@@ -70,6 +83,47 @@ public class FlowSummaryPersistenceProcessor {
         }
     }
 
+    /**
+     * Persists a batch of FlowSummary JSON records in one transaction.
+     * 
+     * The summaries of a flow occurrence are merged into one, then written as JDBC batches of
+     * upserts that only set the columns the merged summary carries, before the route returns and
+     * the Kafka offsets of the poll are committed. With write-behind enabled the summaries go to
+     * the aggregator instead. Records that cannot be parsed are logged and skipped; a database
+     * error rolls the whole batch back so that the Kafka offsets are not committed.
+     * 
+     * @param records the polled records: exchanges, messages or JSON strings
+     */
+    @Transactional
+    public void persistFlowSummariesFromJson(@Body List<?> records) {
+        List<FlowSummary> flowSummaries = new ArrayList<>(records.size());
+        for (String jsonBody : JsonBatch.bodies(records)) {
+            try {
+                flowSummaries.add(objectMapper.readValue(jsonBody, FlowSummary.class));
+            } catch (Exception e) {
+                logger.error(
+                        "[K-DB-FLOW-SUMMARY] Skipping unparseable FlowSummary in batch - JSON: {}, Error: {}",
+                        jsonBody, e.getMessage());
+            }
+        }
+        if (isWriteBehind()) {
+            flowSummaries.forEach(aggregator::add);
+            logger.debug("[K-DB-FLOW-SUMMARY] Batch handed to write-behind - Records: {}",
+                    records.size());
+            return;
+        }
+        // One upsert per flow occurrence, only updating the columns its summaries carry
+        List<FlowSummary> merged = FlowSummaryAggregator.coalesce(flowSummaries);
+        NativeUpserts.upsertDirtyColumns(entityManager, TableMapping.FLOW_SUMMARY, merged);
+
+        logger.debug("[K-DB-FLOW-SUMMARY] Persisted batch - Records: {}, Rows: {}",
+                records.size(), merged.size());
+    }
+
+    private boolean isWriteBehind() {
+        return aggregator != null && aggregator.isEnabled();
+    }
+
     /**
      * Persists a FlowSummary entity to the database.
      * 
@@ -82,44 +136,15 @@ public class FlowSummaryPersistenceProcessor {
             logger.debug("K-DB: Persisting FlowSummary entity - FlowOccurId: {}, FlowCode: {}",
                     flowSummary.getFlowOccurId(), flowSummary.getFlowCode());
 
-            // Check if entity already exists using flowOccurId as primary key
-            FlowSummary existingEntity = null;
-            if (flowSummary.getFlowOccurId() != null) {
-                existingEntity =
-                        entityManager.find(FlowSummary.class, flowSummary.getFlowOccurId());
-            }
-
-            FlowSummary result;
-            if (existingEntity != null) {
-                // Update existing entity
-                try {
-                    logger.debug(
-                            "K-DB: Updating existing FlowSummary entity with FlowOccurId: {} - JSON: {}",
-                            flowSummary.getFlowOccurId(),
-                            objectMapper.writeValueAsString(flowSummary));
-                } catch (Exception e) {
-                    logger.error(
-                            "K-DB: Updating existing FlowSummary entity with FlowOccurId: {} - JSON serialization failed: {}",
-                            flowSummary.getFlowOccurId(), e.getMessage());
-                }
-
-                result = entityManager.merge(flowSummary);
-            } else {
-                // Persist new entity
-                logger.debug("K-DB: Persisting new FlowSummary entity with FlowOccurId: {}",
-                        flowSummary.getFlowOccurId());
-                entityManager.persist(flowSummary);
-                result = flowSummary;
-            }
-
-            // Force synchronization to database
-            entityManager.flush();
+            // Insert, or update only the columns the summary carries, in one statement
+            NativeUpserts.upsertDirtyColumns(entityManager, TableMapping.FLOW_SUMMARY,
+                    List.of(flowSummary));
 
             logger.debug(
                     "K-DB: FlowSummary entity persisted successfully - FlowOccurId: {}, FlowCode: {}",
-                    result.getFlowOccurId(), result.getFlowCode());
+                    flowSummary.getFlowOccurId(), flowSummary.getFlowCode());
 
-            return result;
+            return flowSummary;
 
         } catch (Exception e) {
             logger.error("K-DB: Failed to persist FlowSummary entity - FlowOccurId: {}, Error: {}",
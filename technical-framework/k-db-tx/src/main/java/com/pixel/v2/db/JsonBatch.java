@@ -0,0 +1,114 @@
+package com.pixel.v2.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Helpers for the batch mode of the k-db kamelets.
+ *
+ * With {@code batching=true} on k-kafka-log-starter one exchange carries a whole Kafka poll: its
+ * body is the list of the polled record exchanges. The persistence processors read the JSON bodies
+ * of that list, keep the last record of each primary key, or apply the records of a key in
+ * order, and write the rows in one transaction through JDBC batches instead of a find and a flush
+ * per row.
+ */
+final class JsonBatch {
+
+    /** JDBC batch size of the batch writes, Hibernate not batching by default */
+    static final int JDBC_BATCH_SIZE = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonBatch.class);
+
+    private JsonBatch() {}
+
+    /**
+     * JSON bodies of a batch: record exchanges from the Kafka batching consumer, messages or plain
+     * strings
+     */
+    static List<String> bodies(List<?> records) {
+        return records.stream().map(JsonBatch::body).filter(body -> body != null).toList();
+    }
+
+    private static String body(Object record) {
+        if (record instanceof Exchange exchange) {
+            return exchange.getMessage().getBody(String.class);
+        }
+        if (record instanceof Message message) {
+            return message.getBody(String.class);
+        }
+        return record != null ? record.toString() : null;
+    }
+
+    /**
+     * Keeps the last entity of each key, in arrival order, as the former merge of every record
+     * did. Entities without a key cannot be stored and are dropped.
+     */
+    static <T> Map<String, T> lastById(List<T> entities, Function<T, String> id, String type) {
+        Map<String, T> byId = new LinkedHashMap<>();
+        for (T entity : entities) {
+            String key = id.apply(entity);
+            if (key == null) {
+                logger.warn("[K-DB] Skipping {} without primary key in batch", type);
+                continue;
+            }
+            byId.remove(key);
+            byId.put(key, entity);
+        }
+        return byId;
+    }
+
+    /**
+     * Splits the entities into rounds of distinct keys: the n-th entity of each key goes to the
+     * n-th round, so applying the rounds in order applies the entities of a key in arrival order.
+     * Entities without a key cannot be stored and are dropped.
+     */
+    static <T> List<List<T>> rounds(List<T> entities, Function<T, String> id, String type) {
+        List<List<T>> rounds = new ArrayList<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (T entity : entities) {
+            String key = id.apply(entity);
+            if (key == null) {
+                logger.warn("[K-DB] Skipping {} without primary key in batch", type);
+                continue;
+            }
+            int round = counts.merge(key, 1, Integer::sum) - 1;
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(entity);
+        }
+        return rounds;
+    }
+
+    /**
+     * Turns on JDBC batching for the rest of the transaction
+     */
+    static void enableJdbcBatching(EntityManager entityManager) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+    }
+
+    /**
+     * Keys of the batch already stored, found with one query instead of one find per record
+     */
+    static Set<String> existingIds(EntityManager entityManager, Class<?> entityType,
+            String idAttribute, Collection<String> ids) {
+        String query = "select e." + idAttribute + " from " + entityType.getSimpleName()
+                + " e where e." + idAttribute + " in :ids";
+        return Set.copyOf(entityManager.createQuery(query, String.class)
+                .setParameter("ids", ids).getResultList());
+    }
+}
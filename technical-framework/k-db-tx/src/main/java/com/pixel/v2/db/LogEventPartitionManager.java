@@ -0,0 +1,332 @@
+package com.pixel.v2.db;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the daily DATATS partitions of LOG_EVENT and their indexes.
+ *
+ * At startup and then every hour, creates the partitions for today and the next days with the
+ * B-tree indexes of the live queries, converts the partitions of the previous days to a BRIN
+ * index on DATATS plus the FLOWID and MSGID lookups, and detaches or drops the partitions older
+ * than the retention. Inserts therefore only maintain the indexes of one small partition, however
+ * long the history. Only the primary key (LOGID, DATATS) is declared on the partitioned table.
+ *
+ * The partition key is DATATS with day bounds, the same days as LOG_DAY: PostgreSQL does not
+ * partition on a generated column. The days come from the database CURRENT_DATE, not from the JVM
+ * clock. A day that already has rows in the default partition cannot get its partition with a
+ * plain CREATE: those rows are moved to the new partition in the same transaction. Each node runs
+ * the maintenance; DDL is idempotent, each partition is handled on its own and a failed step is
+ * retried on the next tick. Nothing is done when the table is not partitioned (schema created
+ * before partitioning).
+ */
+@Component("logEventPartitionManager")
+public class LogEventPartitionManager implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogEventPartitionManager.class);
+
+    private static final String TABLE = "log_event";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // B-tree indexes of the partitions still written: today and the days ahead
+    private static final List<String> HOT_INDEX_COLUMNS = List.of("datats", "flowid", "flowcode",
+            "component", "logrole", "msgcorrelationid", "msgid", "contextid", "refflowid");
+    // B-tree indexes kept by the older partitions, next to the BRIN index on DATATS
+    private static final List<String> COLD_INDEX_COLUMNS = List.of("flowid", "msgid");
+    private static final String BRIN_SUFFIX = "_datats_brin";
+
+    /**
+     * What happens to a partition past the retention
+     */
+    enum RetentionAction {
+        /** Detached and kept as a standalone table, for archiving */
+        DETACH,
+        /** Dropped along with the application contexts of its days */
+        DROP
+    }
+
+    private final ObjectProvider<DataSource> dataSourceProvider;
+    private final boolean enabled;
+    private final String schema;
+    private final int daysAhead;
+    private final int retentionDays;
+    private final RetentionAction retentionAction;
+    private final long intervalMinutes;
+
+    private ScheduledExecutorService scheduler;
+
+    public LogEventPartitionManager(ObjectProvider<DataSource> dataSourceProvider,
+            @Value("${pixel.db.log-event.partition.enabled:true}") boolean enabled,
+            @Value("${spring.jpa.properties.hibernate.default_schema:pixel_v2}") String schema,
+            @Value("${pixel.db.log-event.partition.days-ahead:3}") int daysAhead,
+            @Value("${pixel.db.log-event.partition.retention-days:0}") int retentionDays,
+            @Value("${pixel.db.log-event.partition.retention-action:DETACH}") RetentionAction retentionAction,
+            @Value("${pixel.db.log-event.partition.interval-minutes:60}") long intervalMinutes) {
+        this.dataSourceProvider = dataSourceProvider;
+        this.enabled = enabled;
+        this.schema = schema.isBlank() ? "pixel_v2" : schema.trim().toLowerCase();
+        this.daysAhead = daysAhead;
+        this.retentionDays = retentionDays;
+        this.retentionAction = retentionAction;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || dataSourceProvider.getIfAvailable() == null) {
+            logger.info("[K-DB] LOG_EVENT partition maintenance disabled (enabled: {})", enabled);
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-event-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates missing partitions up to today + daysAhead, moves the partitions before today to
+     * the cold indexes and, with a retention, detaches or drops the partitions older than
+     * today - retentionDays, today being the database CURRENT_DATE
+     */
+    public void maintain() {
+        try {
+            DataSource dataSource = dataSourceProvider.getObject();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            if (!isPartitioned(jdbcTemplate)) {
+                logger.warn("[K-DB] {}.{} is not partitioned, maintenance skipped", schema, TABLE);
+                return;
+            }
+
+            List<LocalDate> days = jdbcTemplate.queryForList(
+                    "SELECT CURRENT_DATE + n FROM generate_series(0, ?) AS n", LocalDate.class,
+                    daysAhead);
+            LocalDate today = days.get(0);
+            TransactionTemplate transaction =
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            Set<String> existing = new HashSet<>(partitions(jdbcTemplate));
+            int failed = 0;
+            for (LocalDate day : days) {
+                String partition = partitionName(day);
+                if (existing.contains(partition)) {
+                    continue;
+                }
+                // On its own: a failure must not cost the index conversion and the retention
+                try {
+                    createPartition(jdbcTemplate, transaction, day);
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("[K-DB] Creation of LOG_EVENT partition {} failed: {}", partition,
+                            e.getMessage());
+                }
+            }
+
+            LocalDate oldestKept = retentionDays > 0 ? today.minusDays(retentionDays) : null;
+            Set<String> indexes = indexes(jdbcTemplate);
+            int converted = 0;
+            int removed = 0;
+            for (String partition : partitions(jdbcTemplate)) {
+                LocalDate day = partitionDay(partition);
+                if (oldestKept != null && day != null && day.isBefore(oldestKept)) {
+                    try {
+                        removePartition(jdbcTemplate, partition, day);
+                        removed++;
+                    } catch (Exception e) {
+                        failed++;
+                        logger.error("[K-DB] Retention of LOG_EVENT partition {} failed: {}",
+                                partition, e.getMessage());
+                    }
+                    continue;
+                }
+                if (day == null && !DEFAULT_PARTITION.equals(partition)) {
+                    continue;
+                }
+                // The default partition only holds the rows outside the daily ranges: cold
+                boolean hot = day != null && !day.isBefore(today);
+                List<String> statements = indexStatements(schema, partition, hot, indexes);
+                if (statements.isEmpty()) {
+                    continue;
+                }
+                try {
+                    statements.forEach(jdbcTemplate::execute);
+                    if (!hot) {
+                        converted++;
+                    }
+                } catch (Exception e) {
+                    failed++;
+                    logger.warn("[K-DB] Index maintenance of partition {} failed: {}", partition,
+                            e.getMessage());
+                }
+            }
+
+            logger.info("[K-DB] LOG_EVENT partitions maintained - created up to {}, converted {} to BRIN, {} {} before {}, failed steps: {}",
+                    days.get(days.size() - 1), converted,
+                    retentionAction == RetentionAction.DROP ? "dropped" : "detached", removed,
+                    oldestKept, failed);
+        } catch (Exception e) {
+            logger.error("[K-DB] LOG_EVENT partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the partition of a day. When the default partition holds rows of that day, which
+     * would make the creation fail, they are moved to the new partition in the same transaction.
+     */
+    private void createPartition(JdbcTemplate jdbcTemplate, TransactionTemplate transaction,
+            LocalDate day) {
+        Boolean stray = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + schema + "."
+                + DEFAULT_PARTITION + " WHERE DATATS >= ? AND DATATS < ?)", Boolean.class,
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        if (!Boolean.TRUE.equals(stray)) {
+            jdbcTemplate.execute(createStatement(schema, day));
+            return;
+        }
+        // LOG_DAY is generated: insert the other columns only
+        List<String> columns = jdbcTemplate.queryForList("SELECT column_name FROM "
+                + "information_schema.columns WHERE table_schema = ? AND table_name = ? "
+                + "AND is_generated = 'NEVER' ORDER BY ordinal_position", String.class, schema,
+                TABLE);
+        transaction.executeWithoutResult(status -> moveStatements(schema, day, columns)
+                .forEach(jdbcTemplate::execute));
+        logger.warn("[K-DB] LOG_EVENT rows of {} moved from {} to {}", day, DEFAULT_PARTITION,
+                partitionName(day));
+    }
+
+    static String createStatement(String schema, LocalDate day) {
+        return "CREATE TABLE IF NOT EXISTS " + schema + "." + partitionName(day) + " PARTITION OF "
+                + schema + "." + TABLE + " FOR VALUES FROM ('" + day + "') TO ('"
+                + day.plusDays(1) + "')";
+    }
+
+    /**
+     * Detaches the default partition, creates the day's partition, moves the day's rows into it
+     * and attaches the default partition back. Runs in one transaction.
+     */
+    static List<String> moveStatements(String schema, LocalDate day, List<String> columns) {
+        String table = schema + "." + TABLE;
+        String defaultPartition = schema + "." + DEFAULT_PARTITION;
+        String columnList = String.join(", ", columns);
+        String range = " WHERE DATATS >= '" + day + "' AND DATATS < '" + day.plusDays(1) + "'";
+        return List.of(
+                "ALTER TABLE " + table + " DETACH PARTITION " + defaultPartition,
+                createStatement(schema, day),
+                "INSERT INTO " + table + " (" + columnList + ") SELECT " + columnList + " FROM "
+                        + defaultPartition + range,
+                "DELETE FROM " + defaultPartition + range,
+                "ALTER TABLE " + table + " ATTACH PARTITION " + defaultPartition + " DEFAULT");
+    }
+
+    private void removePartition(JdbcTemplate jdbcTemplate, String partition, LocalDate day) {
+        if (retentionAction == RetentionAction.DROP) {
+            // APPLICATION_CONTEXT has no foreign key to cascade from LOG_EVENT
+            jdbcTemplate.update("DELETE FROM " + schema + ".application_context "
+                    + "WHERE DATATS >= ? AND DATATS < ?", day.atStartOfDay(),
+                    day.plusDays(1).atStartOfDay());
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + schema + "." + partition);
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + schema + "." + TABLE + " DETACH PARTITION "
+                    + schema + "." + partition);
+        }
+    }
+
+    /**
+     * DDL bringing a partition to its hot or cold index set, given the index names of the schema.
+     * Cold partitions get their BRIN index before losing their B-tree indexes; both are built
+     * concurrently so that late inserts are not blocked.
+     */
+    static List<String> indexStatements(String schema, String partition, boolean hot,
+            Set<String> indexes) {
+        List<String> statements = new ArrayList<>();
+        List<String> columns = hot ? HOT_INDEX_COLUMNS : COLD_INDEX_COLUMNS;
+        String concurrently = hot ? "" : "CONCURRENTLY ";
+        for (String column : columns) {
+            String index = partition + "_" + column;
+            if (!indexes.contains(index)) {
+                statements.add("CREATE INDEX " + concurrently + "IF NOT EXISTS " + index + " ON "
+                        + schema + "." + partition + " (" + column + ")");
+            }
+        }
+        if (!hot) {
+            String brin = partition + BRIN_SUFFIX;
+            if (!indexes.contains(brin)) {
+                statements.add("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + brin + " ON " + schema
+                        + "." + partition + " USING brin (datats)");
+            }
+            for (String column : HOT_INDEX_COLUMNS) {
+                String index = partition + "_" + column;
+                if (!COLD_INDEX_COLUMNS.contains(column) && indexes.contains(index)) {
+                    statements.add("DROP INDEX CONCURRENTLY IF EXISTS " + schema + "." + index);
+                }
+            }
+        }
+        return statements;
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    static LocalDate partitionDay(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partitionName.substring(PARTITION_PREFIX.length()),
+                    PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private boolean isPartitioned(JdbcTemplate jdbcTemplate) {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT c.relkind::text FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND c.relname = ?",
+                String.class, schema, TABLE);
+        return kinds.contains("p");
+    }
+
+    private List<String> partitions(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("SELECT child.relname FROM pg_inherits i "
+                + "JOIN pg_class parent ON parent.oid = i.inhparent "
+                + "JOIN pg_class child ON child.oid = i.inhrelid "
+                + "JOIN pg_namespace n ON n.oid = parent.relnamespace "
+                + "WHERE n.nspname = ? AND parent.relname = ?", String.class, schema, TABLE);
+    }
+
+    private Set<String> indexes(JdbcTemplate jdbcTemplate) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = ? AND tablename LIKE ?",
+                String.class, schema, TABLE + "\\_%"));
+    }
+}
@@ -1,11 +1,18 @@
 package com.pixel.v2.db;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.camel.Body;
 import org.apache.camel.Handler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,6 +43,9 @@ public class LogEventPersistenceProcessor {
         @PersistenceContext
         private EntityManager entityManager;
 
+        @Autowired(required = false)
+        private PostgresCopyLoader copyLoader;
+
         private ObjectMapper objectMapper;
 
         public LogEventPersistenceProcessor() {
@@ -92,31 +102,92 @@ public class LogEventPersistenceProcessor {
         }
 
         /**
-         * Builds ApplicationContext entities from applicationContextNames. Converts each string
-         * name into a complete ApplicationContext entity.
+         * Persists a batch of LogEvent JSON records in one transaction.
          * 
-         * @param logEvent the LogEvent to build application contexts for
+         * The batch is bulk loaded with COPY by the {@link PostgresCopyLoader}. Without it, or
+         * when the COPY load fails, the log events and then their application contexts are
+         * written as JDBC batches of upserts. Records that cannot be parsed are logged and
+         * skipped; a database error rolls the whole batch back so that the Kafka offsets are not
+         * committed.
+         * 
+         * @param records the polled records: exchanges, messages or JSON strings
          */
-        private void buildApplicationContextsFromNames(LogEvent logEvent) {
-                if (logEvent.getApplicationContextNames() == null
-                                || logEvent.getApplicationContextNames().isEmpty()) {
+        @Transactional
+        public void persistLogEventsFromJson(@Body List<?> records) {
+                List<LogEvent> logEvents = new ArrayList<>(records.size());
+                for (String jsonBody : JsonBatch.bodies(records)) {
+                        try {
+                                logEvents.add(objectMapper.readValue(jsonBody, LogEvent.class));
+                        } catch (Exception e) {
+                                logger.error("[K-DB-LOG-EVENT] Skipping unparseable LogEvent in batch - JSON: {}, Error: {}",
+                                                jsonBody, e.getMessage());
+                        }
+                }
+                Map<String, LogEvent> byId =
+                                JsonBatch.lastById(logEvents, LogEvent::getLogId, "LogEvent");
+                if (byId.isEmpty()) {
+                        return;
+                }
+
+                LocalDateTime dbLogTimestamp = LocalDateTime.now();
+                List<ApplicationContext> applicationContexts = new ArrayList<>();
+                for (LogEvent logEvent : byId.values()) {
+                        logEvent.setDbLogTimestamp(dbLogTimestamp);
+                        applicationContexts.addAll(applicationContextsFromNames(logEvent));
+                }
+                if (copyLoader != null && copyLoader.loadLogEvents(entityManager, byId.values(),
+                                applicationContexts)) {
+                        logger.debug("[K-DB-LOG-EVENT] COPY loaded batch - Records: {}, LogEvents: {}, ApplicationContexts: {}",
+                                        records.size(), byId.size(), applicationContexts.size());
                         return;
                 }
 
+                NativeUpserts.upsert(entityManager, TableMapping.LOG_EVENT, byId.values());
+                NativeUpserts.upsert(entityManager, TableMapping.APPLICATION_CONTEXT,
+                                applicationContexts);
+
+                logger.debug("[K-DB-LOG-EVENT] Persisted batch - Records: {}, LogEvents: {}, ApplicationContexts: {}",
+                                records.size(), byId.size(), applicationContexts.size());
+        }
+
+        /**
+         * Application contexts of a LogEvent, one per distinct name
+         */
+        private static List<ApplicationContext> applicationContextsFromNames(LogEvent logEvent) {
+                if (logEvent.getApplicationContextNames() == null) {
+                        return List.of();
+                }
+                Set<String> names = new LinkedHashSet<>();
                 for (String contextName : logEvent.getApplicationContextNames()) {
                         if (contextName != null && !contextName.trim().isEmpty()) {
-                                ApplicationContext appContext = new ApplicationContext();
-                                appContext.setName(contextName.trim());
-                                appContext.setLogId(logEvent.getLogId());
-                                appContext.setDatats(logEvent.getDatats());
-                                appContext.setFlowId(logEvent.getFlowId());
-                                appContext.setLogEvent(logEvent);
+                                names.add(contextName.trim());
+                        }
+                }
+                List<ApplicationContext> applicationContexts = new ArrayList<>(names.size());
+                for (String name : names) {
+                        ApplicationContext appContext = new ApplicationContext();
+                        appContext.setName(name);
+                        appContext.setLogId(logEvent.getLogId());
+                        appContext.setDatats(logEvent.getDatats());
+                        appContext.setFlowId(logEvent.getFlowId());
+                        applicationContexts.add(appContext);
+                }
+                return applicationContexts;
+        }
 
-                                logEvent.addApplicationContext(appContext);
+        /**
+         * Builds ApplicationContext entities from applicationContextNames. Converts each string
+         * name into a complete ApplicationContext entity.
+         * 
+         * @param logEvent the LogEvent to build application contexts for
+         */
+        private void buildApplicationContextsFromNames(LogEvent logEvent) {
+                for (ApplicationContext appContext : applicationContextsFromNames(logEvent)) {
+                        appContext.setLogEvent(logEvent);
+                        logEvent.addApplicationContext(appContext);
 
-                                logger.debug("[K-DB] Built ApplicationContext from string - Name: {}, LogId: {}",
-                                                contextName, logEvent.getLogId());
-                        }
+                        logger.debug("[K-DB] Built ApplicationContext from string - Name: {}, LogId: {}",
+                                        appContext.getName(), logEvent.getLogId());
                 }
         }
 
@@ -134,45 +205,25 @@ public class LogEventPersistenceProcessor {
                                         logEvent.getComponent());
 
                         // Set DBLOGTIMESTAMP to current timestamp
-                        logEvent.setDbLogTimestamp(java.time.LocalDateTime.now());
+                        logEvent.setDbLogTimestamp(LocalDateTime.now());
                         logger.debug("K-DB: Set DBLOGTIMESTAMP to current timestamp: {}",
                                         logEvent.getDbLogTimestamp());
 
-                        // Check if entity already exists using logId as primary key
-                        LogEvent existingEntity = null;
-                        if (logEvent.getLogId() != null) {
-                                existingEntity = entityManager.find(LogEvent.class,
-                                                logEvent.getLogId());
-                        }
-
-                        LogEvent result;
-                        if (existingEntity != null) {
-                                // Update existing entity
-                                logger.debug("[K-DB] Updating existing LogEvent entity with LogId: {}",
-                                                logEvent.getLogId());
-                                result = entityManager.merge(logEvent);
-                        } else {
-                                // Persist new entity
-                                logger.debug("[K-DB] Persisting new LogEvent entity with LogId: {}",
-                                                logEvent.getLogId());
-                                entityManager.persist(logEvent);
-                                result = logEvent;
-                        }
-
-                        // Force synchronization to database
-                        entityManager.flush();
+                        // Insert, or update the row of a redelivered event, in one statement
+                        NativeUpserts.upsert(entityManager, TableMapping.LOG_EVENT,
+                                        List.of(logEvent));
 
                         logger.debug("K-DB: LogEvent entity persisted successfully - LogId: {}, FlowId: {}, Component: {}",
-                                        result.getLogId(), result.getFlowId(),
-                                        result.getComponent());
+                                        logEvent.getLogId(), logEvent.getFlowId(),
+                                        logEvent.getComponent());
 
                         // Persist associated ApplicationContext entities if they exist
                         if (logEvent.getApplicationContexts() != null
                                         && !logEvent.getApplicationContexts().isEmpty()) {
-                                persistApplicationContexts(result);
+                                persistApplicationContexts(logEvent);
                         }
 
-                        return result;
+                        return logEvent;
 
                 } catch (Exception e) {
                         logger.error("❌ K-DB: Failed to persist LogEvent entity - LogId: {}, Error: {}",
@@ -183,11 +234,11 @@ public class LogEventPersistenceProcessor {
         }
 
         /**
-         * Persists ApplicationContext entities associated with a LogEvent.
+         * Persists ApplicationContext entities associated with a LogEvent, as one JDBC batch of
+         * upserts on (LOGID, NAME).
          * 
          * @param logEvent the parent LogEvent entity with application contexts to persist
          */
-        @Transactional
         private void persistApplicationContexts(LogEvent logEvent) {
                 try {
                         for (ApplicationContext appContext : logEvent.getApplicationContexts()) {
@@ -207,11 +258,9 @@ public class LogEventPersistenceProcessor {
                                                                                                 .length()))
                                                                 : "null");
 
-                                entityManager.persist(appContext);
                         }
-
-                        // Force synchronization to database
-                        entityManager.flush();
+                        NativeUpserts.upsert(entityManager, TableMapping.APPLICATION_CONTEXT,
+                                        logEvent.getApplicationContexts());
 
                         logger.debug("[K-DB] Successfully persisted {} ApplicationContext entities for LogId: {}",
                                         logEvent.getApplicationContexts().size(),
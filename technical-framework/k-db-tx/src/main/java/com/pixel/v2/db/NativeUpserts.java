@@ -0,0 +1,101 @@
+package com.pixel.v2.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+
+import com.pixel.v2.db.TableMapping.Column;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Idempotent upserts of the k-db processors.
+ *
+ * A row is written with one {@code INSERT ... ON CONFLICT (key) DO UPDATE} on the connection of
+ * the current transaction, instead of a find by primary key, a persist or merge and a flush: a
+ * Kafka redelivery updates the row it already wrote. Rows sharing the same columns share one
+ * prepared statement executed as a JDBC batch. The rows of one call must have distinct keys.
+ */
+final class NativeUpserts {
+
+    private NativeUpserts() {}
+
+    /**
+     * Upserts every column of the rows
+     */
+    static <T> int upsert(EntityManager entityManager, TableMapping<T> table,
+            Collection<T> rows) {
+        return upsert(entityManager, table, rows, false);
+    }
+
+    /**
+     * Upserts the key and the non-null columns of each row only: a conflicting row keeps the
+     * values the record does not carry
+     */
+    static <T> int upsertDirtyColumns(EntityManager entityManager, TableMapping<T> table,
+            Collection<T> rows) {
+        return upsert(entityManager, table, rows, true);
+    }
+
+    private static <T> int upsert(EntityManager entityManager, TableMapping<T> table,
+            Collection<T> rows, boolean dirtyColumnsOnly) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String schema = schema(entityManager);
+        return entityManager.unwrap(Session.class).doReturningWork(
+                connection -> upsert(connection, schema, table, rows, dirtyColumnsOnly));
+    }
+
+    static <T> int upsert(Connection connection, String schema, TableMapping<T> table,
+            Collection<T> rows, boolean dirtyColumnsOnly) throws SQLException {
+        Map<List<Column<T>>, List<T>> rowsByColumns = new LinkedHashMap<>();
+        for (T row : rows) {
+            rowsByColumns.computeIfAbsent(
+                    dirtyColumnsOnly ? dirtyColumns(table, row) : table.columns(),
+                    columns -> new ArrayList<>()).add(row);
+        }
+        for (Map.Entry<List<Column<T>>, List<T>> entry : rowsByColumns.entrySet()) {
+            List<Column<T>> columns = entry.getKey();
+            try (PreparedStatement statement =
+                    connection.prepareStatement(table.upsertSql(schema, columns))) {
+                for (T row : entry.getValue()) {
+                    for (int i = 0; i < columns.size(); i++) {
+                        Column<T> column = columns.get(i);
+                        statement.setObject(i + 1, column.value().apply(row), column.sqlType());
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        return rows.size();
+    }
+
+    static <T> List<Column<T>> dirtyColumns(TableMapping<T> table, T row) {
+        List<Column<T>> columns = new ArrayList<>(table.columns().size());
+        for (Column<T> column : table.columns()) {
+            if (table.keyColumns().contains(column.name()) || column.value().apply(row) != null) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Default schema of the persistence unit, the one Hibernate qualifies the entity tables with
+     */
+    static String schema(EntityManager entityManager) {
+        Object schema = entityManager.getEntityManagerFactory().getProperties()
+                .get(AvailableSettings.DEFAULT_SCHEMA);
+        return schema != null ? schema.toString() : null;
+    }
+}
@@ -0,0 +1,231 @@
+package com.pixel.v2.db;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pixel.v2.db.TableMapping.Column;
+import com.pixel.v2.model.ApplicationContext;
+import com.pixel.v2.model.ErrorLogEvent;
+import com.pixel.v2.model.LogEvent;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bulk loader of the k-db batch mode for LOG_EVENT, APPLICATION_CONTEXT and EXCEPTION.
+ *
+ * A batch is streamed in CSV through the PostgreSQL COPY protocol into a session temporary staging
+ * table, then merged into the target table with {@code INSERT ... SELECT ... ON CONFLICT DO
+ * UPDATE}: a redelivered record updates its row instead of failing the batch. The load runs on the
+ * connection of the current transaction behind a savepoint. When it fails, or the connection is
+ * not a PostgreSQL one, the savepoint is rolled back and the caller writes the batch through its
+ * JPA batch path instead.
+ */
+@Component("postgresCopyLoader")
+public class PostgresCopyLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresCopyLoader.class);
+
+    // Characters buffered before a write to the COPY stream
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private final boolean enabled;
+    private final Stage<LogEvent> logEventStage;
+    private final Stage<ApplicationContext> applicationContextStage;
+    private final Stage<ErrorLogEvent> exceptionStage;
+
+    public PostgresCopyLoader(@Value("${pixel.db.copy.enabled:true}") boolean enabled,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.enabled = enabled;
+        this.logEventStage =
+                new Stage<>(TableMapping.LOG_EVENT, schema, "pixel_log_event_stage");
+        this.applicationContextStage = new Stage<>(TableMapping.APPLICATION_CONTEXT, schema,
+                "pixel_application_context_stage");
+        this.exceptionStage =
+                new Stage<>(TableMapping.EXCEPTION, schema, "pixel_exception_stage");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads log events, then their application contexts, in the current transaction
+     *
+     * @param entityManager entity manager of the current transaction, without pending changes
+     * @param logEvents log events with distinct LogIds
+     * @param applicationContexts application contexts with distinct LogId and name pairs
+     * @return false when nothing was written and the caller must use its JPA path
+     */
+    public boolean loadLogEvents(EntityManager entityManager, Collection<LogEvent> logEvents,
+            Collection<ApplicationContext> applicationContexts) {
+        return load(entityManager, "LogEvent", connection -> {
+            long rows = merge(connection, logEventStage, logEvents);
+            if (!applicationContexts.isEmpty()) {
+                rows += merge(connection, applicationContextStage, applicationContexts);
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Loads error log events in the current transaction
+     *
+     * @param entityManager entity manager of the current transaction, without pending changes
+     * @param errorLogEvents error log events with distinct LogIds
+     * @return false when nothing was written and the caller must use its JPA path
+     */
+    public boolean loadErrorLogEvents(EntityManager entityManager,
+            Collection<ErrorLogEvent> errorLogEvents) {
+        return load(entityManager, "ErrorLogEvent",
+                connection -> merge(connection, exceptionStage, errorLogEvents));
+    }
+
+    private boolean load(EntityManager entityManager, String type, Load load) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            return entityManager.unwrap(Session.class)
+                    .doReturningWork(connection -> loadInSavepoint(connection, type, load));
+        } catch (RuntimeException e) {
+            logger.warn("[K-DB] COPY load of {} batch failed, falling back to batched inserts: {}",
+                    type, e.getMessage());
+            return false;
+        }
+    }
+
+    boolean loadInSavepoint(Connection connection, String type, Load load) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            logger.debug("[K-DB] Not a PostgreSQL connection, no COPY load of {} batch", type);
+            return false;
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            long start = System.nanoTime();
+            long rows = load.run(connection);
+            connection.releaseSavepoint(savepoint);
+            logger.debug("[K-DB] COPY loaded {} batch - Rows: {}, Duration: {} ms", type, rows,
+                    (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            // Leaves the transaction usable for the JPA path
+            connection.rollback(savepoint);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the rows into the staging table and merges them into the target table
+     */
+    <T> long merge(Connection connection, Stage<T> stage, Collection<T> rows)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(stage.createSql());
+            copy(connection.unwrap(PGConnection.class).getCopyAPI(), stage, rows);
+            int merged = statement.executeUpdate(stage.mergeSql());
+            statement.execute("TRUNCATE " + stage.name());
+            return merged;
+        }
+    }
+
+    private static <T> void copy(CopyManager copyManager, Stage<T> stage, Collection<T> rows)
+            throws SQLException {
+        CopyIn copyIn = copyManager.copyIn(stage.copySql());
+        try {
+            StringBuilder csv = new StringBuilder(CHUNK_CHARS + 1024);
+            for (T row : rows) {
+                appendRow(csv, stage.table().columns(), row);
+                if (csv.length() >= CHUNK_CHARS) {
+                    write(copyIn, csv);
+                }
+            }
+            write(copyIn, csv);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder csv) throws SQLException {
+        if (csv.length() > 0) {
+            byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            csv.setLength(0);
+        }
+    }
+
+    static <T> void appendRow(StringBuilder csv, List<Column<T>> columns, T row) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            appendValue(csv, columns.get(i).value().apply(row));
+        }
+        csv.append('\n');
+    }
+
+    /**
+     * CSV value: nothing for NULL, every other value quoted so that an empty string stays empty
+     */
+    static void appendValue(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString()
+                : value.toString();
+        csv.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    @FunctionalInterface
+    interface Load {
+        long run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Session temporary staging table of a target table and the statements between them
+     */
+    record Stage<T>(TableMapping<T> table, String schema, String name) {
+
+        String createSql() {
+            // Column types only: no key, default or generated column to maintain while copying
+            return "CREATE TEMP TABLE IF NOT EXISTS " + name + " ON COMMIT DELETE ROWS AS SELECT "
+                    + table.columnList() + " FROM " + table.qualifiedName(schema)
+                    + " WITH NO DATA";
+        }
+
+        String copySql() {
+            return "COPY " + name + " (" + table.columnList() + ") FROM STDIN WITH (FORMAT csv)";
+        }
+
+        String mergeSql() {
+            return "INSERT INTO " + table.qualifiedName(schema) + " (" + table.columnList()
+                    + ") SELECT " + table.columnList() + " FROM " + name + " "
+                    + table.onConflict(table.columns());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.pixel.v2.db;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.pixel.v2.model.ApplicationContext;
+import com.pixel.v2.model.ErrorLogEvent;
+import com.pixel.v2.model.FlowSummary;
+import com.pixel.v2.model.LogEvent;
+
+/**
+ * Column mapping of an entity table for the statements written without JPA: COPY bulk loads and
+ * {@code INSERT ... ON CONFLICT} upserts.
+ *
+ * Only the insertable columns are listed: generated columns such as LOG_DAY are left to the
+ * database. The key columns are those of the primary key or unique constraint the upsert
+ * conflicts on, and are never updated. LOG_EVENT conflicts on its primary key constraint by name:
+ * (LOGID, DATATS) once the table is partitioned by DATATS, LOGID alone on a table created before.
+ */
+record TableMapping<T>(String name, List<String> keyColumns, String conflictTarget,
+        List<Column<T>> columns) {
+
+    static final TableMapping<LogEvent> LOG_EVENT = new TableMapping<>("LOG_EVENT",
+            List.of("LOGID", "DATATS"), "ON CONSTRAINT log_event_pkey", List.of(
+                    Column.text("LOGID", LogEvent::getLogId),
+                    Column.timestamp("DATATS", LogEvent::getDatats),
+                    Column.text("FLOWID", LogEvent::getFlowId),
+                    Column.text("HALFFLOWID", LogEvent::getHalfFlowId),
+                    Column.text("FLOWCODE", LogEvent::getFlowCode),
+                    Column.text("HALFFLOWCODE", LogEvent::getHalfFlowCode),
+                    Column.text("CONTEXTID", LogEvent::getContextId),
+                    Column.timestamp("CLIENTLOGTIMESTAMP", LogEvent::getClientLogTimestamp),
+                    Column.timestamp("DBLOGTIMESTAMP", LogEvent::getDbLogTimestamp),
+                    Column.text("TXT", LogEvent::getTxt),
+                    Column.text("LONGTXT", LogEvent::getLongTxt),
+                    Column.text("LOGROLE", LogEvent::getLogRole),
+                    Column.text("CODE", LogEvent::getCode),
+                    Column.text("CUSTOMSTEP", LogEvent::getCustomStep),
+                    Column.text("COMPONENT", LogEvent::getComponent),
+                    Column.text("INSTANCEID", LogEvent::getInstanceId),
+                    Column.text("SERVICEPATH", LogEvent::getServicePath),
+                    Column.text("PROCESSPATH", LogEvent::getProcessPath),
+                    Column.decimal("REFFLOWID", LogEvent::getRefFlowId),
+                    Column.timestamp("BEGINPROCESS", LogEvent::getBeginProcess),
+                    Column.timestamp("ENDPROCESS", LogEvent::getEndProcess),
+                    Column.timestamp("CONTEXTTIMESTAMP", LogEvent::getContextTimestamp),
+                    Column.timestamp("MSGSENTTIMESTAMP", LogEvent::getMsgSentTimestamp),
+                    Column.text("MESSAGINGTYPE", LogEvent::getMessagingType),
+                    Column.text("MSGID", LogEvent::getMsgId),
+                    Column.integer("MSGPRIORITY", LogEvent::getMsgPriority),
+                    Column.text("MSGCORRELATIONID", LogEvent::getMsgCorrelationId),
+                    Column.text("MSGSOURCESYSTEM", LogEvent::getMsgSourceSystem),
+                    Column.text("MSGPRIVATECONTEXT", LogEvent::getMsgPrivateContext),
+                    Column.text("MSGTRANSACTIONID", LogEvent::getMsgTransactionId),
+                    Column.text("MSGPROPERTIES", LogEvent::getMsgProperties),
+                    Column.text("MSGBATCHNAME", LogEvent::getMsgBatchName),
+                    Column.integer("MSGBATCHMSGNO", LogEvent::getMsgBatchMsgNo),
+                    Column.integer("MSGBATCHSIZE", LogEvent::getMsgBatchSize),
+                    Column.text("XMLMSGACTION", LogEvent::getXmlMsgAction),
+                    Column.text("MSGRESUBMITIND", LogEvent::getMsgResubmitInd),
+                    Column.text("MSGBODY", LogEvent::getMsgBody)));
+
+    static final TableMapping<ApplicationContext> APPLICATION_CONTEXT = new TableMapping<>(
+            "APPLICATION_CONTEXT", List.of("LOGID", "NAME"), List.of(
+                    Column.text("LOGID", ApplicationContext::getLogId),
+                    Column.text("NAME", ApplicationContext::getName),
+                    Column.timestamp("DATATS", ApplicationContext::getDatats),
+                    Column.text("FLOWID", ApplicationContext::getFlowId),
+                    Column.text("VALUE", ApplicationContext::getValue)));
+
+    static final TableMapping<ErrorLogEvent> EXCEPTION = new TableMapping<>("EXCEPTION",
+            List.of("LOGID"), List.of(
+                    Column.text("LOGID", ErrorLogEvent::getLogId),
+                    Column.timestamp("DATATS", ErrorLogEvent::getDatats),
+                    Column.timestamp("ERRTIMESTAMP", ErrorLogEvent::getErrTimestamp),
+                    Column.text("COMPONENT", ErrorLogEvent::getComponent),
+                    Column.text("INSTANCEID", ErrorLogEvent::getInstanceId),
+                    Column.text("PROCESSSTACK", ErrorLogEvent::getProcessStack),
+                    Column.text("ROOTPROCESSPATH", ErrorLogEvent::getRootProcessPath),
+                    Column.text("CODE", ErrorLogEvent::getCode),
+                    Column.text("DESCRIPTION", ErrorLogEvent::getDescription),
+                    Column.text("SHORTDESC", ErrorLogEvent::getShortDesc),
+                    Column.text("TYPE", ErrorLogEvent::getType),
+                    Column.integer("SEVERITY", ErrorLogEvent::getSeverity),
+                    Column.text("STACK", ErrorLogEvent::getStack),
+                    Column.text("INPUT", ErrorLogEvent::getInput),
+                    Column.text("DEBUGDATA", ErrorLogEvent::getDebugData)));
+
+    static final TableMapping<FlowSummary> FLOW_SUMMARY = new TableMapping<>("FLOW_SUMMARY",
+            List.of("FLOW_OCCUR_ID"), List.of(
+                    Column.text("FLOW_OCCUR_ID", FlowSummary::getFlowOccurId),
+                    Column.text("FLOW_CODE", FlowSummary::getFlowCode),
+                    Column.text("FLOW_STATUS_CODE", FlowSummary::getFlowStatusCode),
+                    Column.text("FLOW_COUNTRY_CODE", FlowSummary::getFlowCountryCode),
+                    Column.integer("FLOW_COUNTRY_ID", FlowSummary::getFlowCountryId),
+                    Column.integer("FLOW_TYPE_ID", FlowSummary::getFlowTypeId),
+                    Column.text("FLOW_COMMENT", FlowSummary::getFlowComment),
+                    Column.integer("NB_OUT_EXPECTED", FlowSummary::getNbOutExpected),
+                    Column.integer("NB_OUT_COMPLETED", FlowSummary::getNbOutCompleted),
+                    Column.integer("NB_ERROR", FlowSummary::getNbError),
+                    Column.integer("NB_REMITANCE", FlowSummary::getNbRemitance),
+                    Column.integer("NB_TRANSACTION", FlowSummary::getNbTransaction),
+                    Column.integer("NB_REPLAY", FlowSummary::getNbReplay),
+                    Column.text("ISSUING_PARTNER_CODE", FlowSummary::getIssuingPartnerCode),
+                    Column.text("ISSUING_PARTNER_LINK", FlowSummary::getIssuingPartnerLink),
+                    Column.text("RECIPIENT_PARTNER_CODE", FlowSummary::getRecipientPartnerCode),
+                    Column.text("RECIPIENT_PARTNER_LINK", FlowSummary::getRecipientPartnerLink),
+                    Column.text("LAST_LOG_ID", FlowSummary::getLastLogId),
+                    Column.text("LAST_LOG_COMPONENT", FlowSummary::getLastLogComponent),
+                    Column.timestamp("LAST_LOG_DATETIME", FlowSummary::getLastLogDatetime),
+                    Column.text("LAST_LOG_STATUS_CODE", FlowSummary::getLastLogStatusCode),
+                    Column.timestamp("LAST_UPDATE_DATETIME", FlowSummary::getLastUpdateDatetime),
+                    Column.text("LAST_UPDATE_USER", FlowSummary::getLastUpdateUser),
+                    Column.text("ROOT_ERROR_CODE", FlowSummary::getRootErrorCode),
+                    Column.text("ROOT_ERROR_LOG_ID", FlowSummary::getRootErrorLogId),
+                    Column.timestamp("ROOT_ERROR_DATETIME", FlowSummary::getRootErrorDatetime),
+                    Column.text("INPUT_FILE_PATH", FlowSummary::getInputFilePath),
+                    Column.text("INPUT_FILE_SIZE", FlowSummary::getInputFileSize),
+                    Column.decimal("REF_FLOW_ID", FlowSummary::getRefFlowId),
+                    Column.timestamp("BEGIN_FLOW_DATETIME", FlowSummary::getBeginFlowDatetime),
+                    Column.timestamp("END_FLOW_DATETIME", FlowSummary::getEndFlowDatetime),
+                    Column.timestamp("CURRENT_CLIENT_DATETIME",
+                            FlowSummary::getCurrentClientDatetime),
+                    Column.text("REPLAY_ID", FlowSummary::getReplayId),
+                    Column.text("REGION", FlowSummary::getRegion)));
+
+    /**
+     * Mapping conflicting on its key columns
+     */
+    TableMapping(String name, List<String> keyColumns, List<Column<T>> columns) {
+        this(name, keyColumns, "(" + String.join(", ", keyColumns) + ")", columns);
+    }
+
+    String qualifiedName(String schema) {
+        return schema == null || schema.isBlank() ? name : schema.trim() + "." + name;
+    }
+
+    String columnList() {
+        return columnList(columns);
+    }
+
+    static <T> String columnList(List<Column<T>> columns) {
+        return columns.stream().map(Column::name).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Upsert of the given columns, which include the key columns: a conflicting row only gets
+     * those columns updated
+     */
+    String upsertSql(String schema, List<Column<T>> selected) {
+        String placeholders = selected.stream().map(column -> "?")
+                .collect(Collectors.joining(", "));
+        return "INSERT INTO " + qualifiedName(schema) + " (" + columnList(selected) + ") VALUES ("
+                + placeholders + ") " + onConflict(selected);
+    }
+
+    String onConflict(List<Column<T>> selected) {
+        String updates = selected.stream().map(Column::name)
+                .filter(column -> !keyColumns.contains(column))
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+        return "ON CONFLICT " + conflictTarget + " "
+                + (updates.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + updates);
+    }
+
+    /**
+     * Table column with its JDBC type, so that a NULL is bound with the column type
+     */
+    record Column<T>(String name, int sqlType, Function<T, Object> value) {
+
+        static <T> Column<T> text(String name, Function<T, Object> value) {
+            return new Column<>(name, Types.VARCHAR, value);
+        }
+
+        static <T> Column<T> timestamp(String name, Function<T, Object> value) {
+            return new Column<>(name, Types.TIMESTAMP, value);
+        }
+
+        static <T> Column<T> integer(String name, Function<T, Object> value) {
+            return new Column<>(name, Types.INTEGER, value);
+        }
+
+        static <T> Column<T> decimal(String name, Function<T, Object> value) {
+            return new Column<>(name, Types.NUMERIC, value);
+        }
+    }
+}
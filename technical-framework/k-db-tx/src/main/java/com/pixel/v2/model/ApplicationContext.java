@@ -3,6 +3,7 @@ package com.pixel.v2.model;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
 import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
@@ -48,9 +49,10 @@ public class ApplicationContext {
     @Column(name = "VALUE", columnDefinition = "TEXT")
     private String value;
 
+    // No foreign key: LOGID alone is not unique in the partitioned LOG_EVENT
     @ManyToOne
     @JoinColumn(name = "LOGID", referencedColumnName = "LOGID", insertable = false,
-            updatable = false, foreignKey = @ForeignKey(name = "fk_app_context_log_event"))
+            updatable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private LogEvent logEvent;
 
     // Default constructor
@@ -10,22 +10,18 @@ import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 
 /**
  * Entity representing LOG_EVENT table Contains detailed logging information for flow processing
+ *
+ * LOG_EVENT is partitioned by day on DATATS: its indexes are created per partition by
+ * LogEventPartitionManager, not declared here, so that older partitions can get lighter ones.
  */
 @Entity
-@Table(name = "LOG_EVENT",
-        indexes = {@Index(name = "idx_log_datats", columnList = "datats"),
-                @Index(name = "idx_log_flowid", columnList = "flowid"),
-                @Index(name = "idx_log_flowcode", columnList = "flowcode"),
-                @Index(name = "idx_log_component", columnList = "component"),
-                @Index(name = "idx_log_day", columnList = "logDay"),
-                @Index(name = "idx_log_logrole", columnList = "logrole")})
+@Table(name = "LOG_EVENT")
 public class LogEvent {
 
     @Id
@@ -0,0 +1,129 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Unit tests for FlowOccurIdAllocator
+ */
+class FlowOccurIdAllocatorTest {
+
+    @Test
+    @DisplayName("Should hand out the ids reserved from each low value, then -1")
+    void testBlock() {
+        FlowOccurIdAllocator.Block block = new FlowOccurIdAllocator.Block(new long[] {1, 5001}, 3);
+
+        assertEquals(6, block.remaining());
+        assertEquals(1, block.next());
+        assertEquals(2, block.next());
+        assertEquals(3, block.next());
+        assertEquals(5001, block.next());
+        assertEquals(5002, block.next());
+        assertEquals(5003, block.next());
+        assertEquals(-1, block.next());
+        assertEquals(0, block.remaining());
+    }
+
+    @Test
+    @DisplayName("Should call nextval enough times to reserve the block size")
+    void testNextvalCalls() {
+        assertEquals(1000, FlowOccurIdAllocator.nextvalCalls(1000, 1));
+        assertEquals(1, FlowOccurIdAllocator.nextvalCalls(1000, 1000));
+        assertEquals(1, FlowOccurIdAllocator.nextvalCalls(100, 1000));
+        assertEquals(3, FlowOccurIdAllocator.nextvalCalls(2500, 1000));
+    }
+
+    @Test
+    @DisplayName("Should fail at once after a failed reservation until the retry delay has passed")
+    void testRetryDelay() {
+        AtomicInteger attempts = new AtomicInteger();
+        FlowOccurIdAllocator allocator =
+                new FlowOccurIdAllocator(unavailable(attempts), "pixel_v2.seq", 1000, 60000);
+
+        assertThrows(IllegalStateException.class, allocator::next);
+        assertThrows(IllegalStateException.class, allocator::next);
+
+        assertEquals(1, attempts.get());
+        assertEquals(1L, allocator.getStatistics().get("failedRefills"));
+    }
+
+    @Test
+    @DisplayName("Should keep one block per DataSource and sequence named by the kamelet")
+    void testNamedDataSourceAndSequence() {
+        AtomicInteger defaultAttempts = new AtomicInteger();
+        AtomicInteger namedAttempts = new AtomicInteger();
+        FlowOccurIdAllocator allocator = new FlowOccurIdAllocator(unavailable(defaultAttempts),
+                "pixel_v2.seq", 1000, 60000);
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        camelContext.getRegistry().bind("pixelDataSource", unavailableDataSource(namedAttempts));
+        Exchange exchange = new DefaultExchange(camelContext);
+
+        assertThrows(RuntimeException.class,
+                () -> allocator.next(exchange, "pixelDataSource", "pixel_v2.other_seq"));
+        assertThrows(RuntimeException.class, () -> allocator.next(exchange, "pixelDataSource"));
+        // Each pair has its own retry delay
+        assertEquals(2, namedAttempts.get());
+        assertEquals(0, defaultAttempts.get());
+        assertTrue(allocator.getStatistics().containsKey("pixelDataSource/pixel_v2.other_seq"));
+        assertTrue(allocator.getStatistics().containsKey("pixelDataSource/pixel_v2.seq"));
+
+        assertThrows(IllegalStateException.class,
+                () -> allocator.next(exchange, "missingDataSource", ""));
+    }
+
+    private static DataSource unavailableDataSource(AtomicInteger attempts) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                attempts.incrementAndGet();
+                throw new SQLException("Database down", "08001");
+            }
+
+            @Override
+            public Connection getConnection(String username, String password)
+                    throws SQLException {
+                return getConnection();
+            }
+        };
+    }
+
+    private static ObjectProvider<DataSource> unavailable(AtomicInteger attempts) {
+        return new ObjectProvider<>() {
+            @Override
+            public DataSource getObject() {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("Database down");
+            }
+
+            @Override
+            public DataSource getObject(Object... args) {
+                return getObject();
+            }
+
+            @Override
+            public DataSource getIfAvailable() {
+                return null;
+            }
+
+            @Override
+            public DataSource getIfUnique() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pixel.v2.model.FlowSummary;
+
+/**
+ * Unit tests for FlowSummaryAggregator
+ */
+class FlowSummaryAggregatorTest {
+
+    private static final LocalDateTime BEGIN = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+
+    @Test
+    @DisplayName("Should keep the highest status whatever the arrival order")
+    void testStatusPrecedence() {
+        FlowSummary pending = summary("IN_PROGRESS", BEGIN);
+
+        FlowSummaryAggregator.merge(pending, summary("ERROR", BEGIN.plusSeconds(1)));
+        FlowSummaryAggregator.merge(pending, summary("COMPLETED", BEGIN.plusSeconds(2)));
+        assertEquals("ERROR", pending.getFlowStatusCode());
+        assertEquals("ERROR comment", pending.getFlowComment());
+
+        FlowSummaryAggregator.merge(pending, summary("FAILURE", BEGIN.plusSeconds(3)));
+        assertEquals("FAILURE", pending.getFlowStatusCode());
+        assertEquals(BEGIN.plusSeconds(3), pending.getLastUpdateDatetime());
+    }
+
+    @Test
+    @DisplayName("Should keep the highest counters, the first begin and the first root error")
+    void testCountersAndFirstValues() {
+        FlowSummary pending = summary("IN_PROGRESS", BEGIN);
+        pending.setNbError(0);
+
+        FlowSummary failed = summary("ERROR", BEGIN.minusSeconds(1));
+        failed.setBeginFlowDatetime(BEGIN.plusSeconds(5));
+        failed.setNbError(2);
+        failed.setNbTransaction(null);
+        failed.setRootErrorCode("ERR-1");
+        FlowSummaryAggregator.merge(pending, failed);
+
+        FlowSummary replayed = summary("ERROR", BEGIN.plusSeconds(6));
+        replayed.setNbError(1);
+        replayed.setRootErrorCode("ERR-2");
+        FlowSummaryAggregator.merge(pending, replayed);
+
+        assertEquals(2, pending.getNbError());
+        assertEquals(1, pending.getNbTransaction());
+        assertEquals(BEGIN, pending.getBeginFlowDatetime());
+        assertEquals("ERR-1", pending.getRootErrorCode());
+        assertEquals(BEGIN.plusSeconds(6), pending.getLastUpdateDatetime());
+    }
+
+    @Test
+    @DisplayName("Should coalesce a batch into one summary per flow occurrence")
+    void testCoalesce() {
+        FlowSummary other = summary("FLOW-2", "IN_PROGRESS", BEGIN);
+        FlowSummary withoutId = summary(null, "COMPLETED", BEGIN);
+
+        List<FlowSummary> merged = FlowSummaryAggregator.coalesce(List.of(
+                summary("IN_PROGRESS", BEGIN), other, summary("ERROR", BEGIN.plusSeconds(1)),
+                withoutId, summary("COMPLETED", BEGIN.plusSeconds(2))));
+
+        assertEquals(2, merged.size());
+        assertEquals("FLOW-1", merged.get(0).getFlowOccurId());
+        assertEquals("ERROR", merged.get(0).getFlowStatusCode());
+        assertEquals(BEGIN.plusSeconds(2), merged.get(0).getLastUpdateDatetime());
+        assertSame(other, merged.get(1));
+    }
+
+    private static FlowSummary summary(String status, LocalDateTime lastUpdate) {
+        return summary("FLOW-1", status, lastUpdate);
+    }
+
+    private static FlowSummary summary(String flowOccurId, String status,
+            LocalDateTime lastUpdate) {
+        FlowSummary flowSummary = new FlowSummary(flowOccurId, "ICHSIC");
+        flowSummary.setFlowStatusCode(status);
+        flowSummary.setFlowComment(status + " comment");
+        flowSummary.setNbTransaction(1);
+        flowSummary.setBeginFlowDatetime(BEGIN);
+        flowSummary.setLastUpdateDatetime(lastUpdate);
+        return flowSummary;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for JsonBatch
+ */
+class JsonBatchTest {
+
+    @Test
+    @DisplayName("Should read the JSON bodies of polled record exchanges")
+    void testBodies() {
+        Exchange record = new DefaultExchange(new DefaultCamelContext());
+        record.getMessage().setBody("{\"logId\":\"LOG-1\"}");
+
+        assertEquals(List.of("{\"logId\":\"LOG-1\"}", "{\"logId\":\"LOG-2\"}"),
+                JsonBatch.bodies(Arrays.asList(record, null, "{\"logId\":\"LOG-2\"}")));
+    }
+
+    @Test
+    @DisplayName("Should keep the last record of each key in arrival order")
+    void testLastById() {
+        List<String[]> rows = List.of(new String[] {"LOG-1", "first"},
+                new String[] {"LOG-2", "second"}, new String[] {null, "no key"},
+                new String[] {"LOG-1", "third"});
+
+        Map<String, String[]> byId = JsonBatch.lastById(rows, row -> row[0], "LogEvent");
+
+        assertEquals(List.of("LOG-2", "LOG-1"), List.copyOf(byId.keySet()));
+        assertEquals("third", byId.get("LOG-1")[1]);
+    }
+
+    @Test
+    @DisplayName("Should split the records of a key into successive rounds")
+    void testRounds() {
+        List<String[]> rows = List.of(new String[] {"FLOW-1", "first"},
+                new String[] {"FLOW-2", "second"}, new String[] {"FLOW-1", "third"},
+                new String[] {null, "no key"});
+
+        List<List<String[]>> rounds = JsonBatch.rounds(rows, row -> row[0], "FlowSummary");
+
+        assertEquals(2, rounds.size());
+        assertEquals(List.of("first", "second"),
+                rounds.get(0).stream().map(row -> row[1]).toList());
+        assertEquals(List.of("third"), rounds.get(1).stream().map(row -> row[1]).toList());
+    }
+}
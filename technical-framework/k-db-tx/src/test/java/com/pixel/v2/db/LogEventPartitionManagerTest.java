@@ -0,0 +1,78 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for LogEventPartitionManager
+ */
+class LogEventPartitionManagerTest {
+
+    private static final String PARTITION = "log_event_p20250102";
+
+    @Test
+    @DisplayName("Should name daily partitions after their day")
+    void testPartitionNames() {
+        assertEquals(PARTITION, LogEventPartitionManager.partitionName(LocalDate.of(2025, 1, 2)));
+        assertEquals(LocalDate.of(2025, 1, 2), LogEventPartitionManager.partitionDay(PARTITION));
+        assertNull(LogEventPartitionManager.partitionDay("log_event_default"));
+        assertNull(LogEventPartitionManager.partitionDay("log_event_pold"));
+    }
+
+    @Test
+    @DisplayName("Should only create the missing B-tree indexes of a hot partition")
+    void testHotIndexes() {
+        List<String> statements = LogEventPartitionManager.indexStatements("pixel_v2", PARTITION,
+                true, Set.of(PARTITION + "_datats", PARTITION + "_flowid"));
+
+        assertEquals(7, statements.size());
+        assertEquals("CREATE INDEX IF NOT EXISTS log_event_p20250102_flowcode ON "
+                + "pixel_v2.log_event_p20250102 (flowcode)", statements.get(0));
+    }
+
+    @Test
+    @DisplayName("Should add the BRIN index of a cold partition before dropping its B-tree indexes")
+    void testColdIndexes() {
+        List<String> statements = LogEventPartitionManager.indexStatements("pixel_v2", PARTITION,
+                false, Set.of(PARTITION + "_datats", PARTITION + "_flowid", PARTITION + "_msgid",
+                        PARTITION + "_logrole"));
+
+        assertEquals(List.of(
+                "CREATE INDEX CONCURRENTLY IF NOT EXISTS log_event_p20250102_datats_brin ON "
+                        + "pixel_v2.log_event_p20250102 USING brin (datats)",
+                "DROP INDEX CONCURRENTLY IF EXISTS pixel_v2.log_event_p20250102_datats",
+                "DROP INDEX CONCURRENTLY IF EXISTS pixel_v2.log_event_p20250102_logrole"),
+                statements);
+        assertTrue(LogEventPartitionManager.indexStatements("pixel_v2", PARTITION, false,
+                Set.of(PARTITION + "_flowid", PARTITION + "_msgid", PARTITION + "_datats_brin"))
+                .isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should move a new day's rows out of the default partition, bar generated columns")
+    void testMoveStatements() {
+        List<String> statements = LogEventPartitionManager.moveStatements("pixel_v2",
+                LocalDate.of(2025, 1, 2), List.of("logid", "datats", "flowid"));
+
+        assertEquals(List.of(
+                "ALTER TABLE pixel_v2.log_event DETACH PARTITION pixel_v2.log_event_default",
+                "CREATE TABLE IF NOT EXISTS pixel_v2.log_event_p20250102 PARTITION OF "
+                        + "pixel_v2.log_event FOR VALUES FROM ('2025-01-02') TO ('2025-01-03')",
+                "INSERT INTO pixel_v2.log_event (logid, datats, flowid) SELECT logid, datats, "
+                        + "flowid FROM pixel_v2.log_event_default WHERE DATATS >= '2025-01-02' "
+                        + "AND DATATS < '2025-01-03'",
+                "DELETE FROM pixel_v2.log_event_default WHERE DATATS >= '2025-01-02' AND DATATS "
+                        + "< '2025-01-03'",
+                "ALTER TABLE pixel_v2.log_event ATTACH PARTITION pixel_v2.log_event_default "
+                        + "DEFAULT"),
+                statements);
+    }
+}
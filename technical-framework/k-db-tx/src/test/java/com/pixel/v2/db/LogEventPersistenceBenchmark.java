@@ -0,0 +1,140 @@
+package com.pixel.v2.db;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pixel.v2.model.ApplicationContext;
+import com.pixel.v2.model.LogEvent;
+
+/**
+ * JMH benchmark of LOG_EVENT persistence in rows per second: one transaction of upserts per record
+ * (RECORD), one transaction of batched upserts per poll (BATCH) and the COPY bulk load (COPY), each
+ * record carrying two application contexts.
+ *
+ * Runs against the pixel_v2 schema of docker/postgresql, read from the pixel.benchmark.jdbc-url,
+ * pixel.benchmark.user and pixel.benchmark.password system properties. The rows written are
+ * deleted at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LogEventPersistenceBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String SCHEMA = "pixel_v2";
+    private static final DateTimeFormatter ISO_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    @Param({"RECORD", "BATCH", "COPY"})
+    public String path;
+
+    private final String runId = "BENCH-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    private SessionFactory sessionFactory;
+    private LogEventPersistenceProcessor processor;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .setProperty(AvailableSettings.URL,
+                        System.getProperty("pixel.benchmark.jdbc-url",
+                                "jdbc:postgresql://localhost:5432/pixelv2?reWriteBatchedInserts=true"))
+                .setProperty(AvailableSettings.USER,
+                        System.getProperty("pixel.benchmark.user", "pixelv2"))
+                .setProperty(AvailableSettings.PASS,
+                        System.getProperty("pixel.benchmark.password", "pixelv2_secure_password"))
+                .setProperty(AvailableSettings.DEFAULT_SCHEMA, SCHEMA)
+                .addAnnotatedClass(LogEvent.class).addAnnotatedClass(ApplicationContext.class)
+                .buildSessionFactory();
+        processor = new LogEventPersistenceProcessor();
+        if ("COPY".equals(path)) {
+            ReflectionTestUtils.setField(processor, "copyLoader",
+                    new PostgresCopyLoader(true, SCHEMA));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.createNativeMutationQuery(
+                    "DELETE FROM " + SCHEMA + ".LOG_EVENT WHERE LOGID LIKE :prefix")
+                    .setParameter("prefix", runId + "%").executeUpdate();
+            transaction.commit();
+        }
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void persist() {
+        List<String> batch = nextBatch();
+        try (Session session = sessionFactory.openSession()) {
+            ReflectionTestUtils.setField(processor, "entityManager", session);
+            if ("RECORD".equals(path)) {
+                // Without batching: a transaction per record
+                for (String json : batch) {
+                    Transaction transaction = session.beginTransaction();
+                    processor.persistLogEventFromJson(json);
+                    transaction.commit();
+                    session.clear();
+                }
+            } else {
+                Transaction transaction = session.beginTransaction();
+                processor.persistLogEventsFromJson(batch);
+                transaction.commit();
+            }
+        }
+    }
+
+    private List<String> nextBatch() {
+        String now = ISO_FORMATTER.format(LocalDateTime.now());
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String logId = runId + sequence++;
+            batch.add("{\"logId\":\"" + logId + "\",\"datats\":\"" + now
+                    + "\",\"flowId\":\"FLOW-1\",\"halfFlowId\":\"FLOW-1-HALF\","
+                    + "\"flowCode\":\"ICHSIC\",\"halfFlowCode\":\"ICHSIC-HALF\","
+                    + "\"contextId\":\"CTX-1\",\"clientLogTimestamp\":\"" + now
+                    + "\",\"txt\":\"Start Validation\",\"longTxt\":\"pixel-v2-app\","
+                    + "\"logRole\":\"INFO\",\"code\":\"INFO\",\"component\":\"k-log-events\","
+                    + "\"instanceId\":\"I-1\",\"processPath\":\"processing\",\"beginProcess\":\""
+                    + now + "\",\"msgId\":\"MSG-" + logId + "\",\"msgProperties\":\"{}\","
+                    + "\"applicationContextNames\":[\"ctx-a\",\"ctx-b\"]}");
+        }
+        return batch;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LogEventPersistenceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pixel.v2.db.TableMapping.Column;
+import com.pixel.v2.model.FlowSummary;
+
+/**
+ * Unit tests for NativeUpserts
+ */
+class NativeUpsertsTest {
+
+    @Test
+    @DisplayName("Should upsert every column of a log event on its primary key")
+    void testLogEventUpsert() {
+        String sql = TableMapping.LOG_EVENT.upsertSql("pixel_v2",
+                TableMapping.LOG_EVENT.columns());
+
+        assertTrue(sql.startsWith(
+                "INSERT INTO pixel_v2.LOG_EVENT (LOGID, DATATS, FLOWID, HALFFLOWID, "));
+        assertTrue(sql.contains(
+                " ON CONFLICT ON CONSTRAINT log_event_pkey DO UPDATE SET FLOWID = EXCLUDED.FLOWID"));
+        assertFalse(sql.contains("LOG_DAY"));
+        assertFalse(sql.contains("LOGID = EXCLUDED.LOGID"));
+        // DATATS is the partition key: a conflicting row never moves to another partition
+        assertFalse(sql.contains("DATATS = EXCLUDED.DATATS"));
+    }
+
+    @Test
+    @DisplayName("Should only insert and update the columns a flow summary carries")
+    void testFlowSummaryDirtyColumns() {
+        FlowSummary flowSummary = new FlowSummary();
+        flowSummary.setFlowOccurId("FLOW-1");
+        flowSummary.setFlowStatusCode("COMPLETED");
+        flowSummary.setLastUpdateDatetime(LocalDateTime.of(2025, 1, 2, 3, 4, 5));
+        flowSummary.setCurrentClientDatetime(null);
+
+        assertEquals("INSERT INTO FLOW_SUMMARY (FLOW_OCCUR_ID, FLOW_STATUS_CODE, "
+                + "LAST_UPDATE_DATETIME) VALUES (?, ?, ?) ON CONFLICT (FLOW_OCCUR_ID) DO UPDATE SET "
+                + "FLOW_STATUS_CODE = EXCLUDED.FLOW_STATUS_CODE, "
+                + "LAST_UPDATE_DATETIME = EXCLUDED.LAST_UPDATE_DATETIME",
+                TableMapping.FLOW_SUMMARY.upsertSql(null,
+                        NativeUpserts.dirtyColumns(TableMapping.FLOW_SUMMARY, flowSummary)));
+    }
+
+    @Test
+    @DisplayName("Should do nothing on conflict when only the key is set")
+    void testKeyOnly() {
+        FlowSummary flowSummary = new FlowSummary();
+        flowSummary.setFlowOccurId("FLOW-1");
+        flowSummary.setLastUpdateDatetime(null);
+        flowSummary.setCurrentClientDatetime(null);
+
+        List<Column<FlowSummary>> columns =
+                NativeUpserts.dirtyColumns(TableMapping.FLOW_SUMMARY, flowSummary);
+
+        assertEquals(List.of("FLOW_OCCUR_ID"), columns.stream().map(Column::name).toList());
+        assertTrue(TableMapping.FLOW_SUMMARY.upsertSql(null, columns)
+                .endsWith("ON CONFLICT (FLOW_OCCUR_ID) DO NOTHING"));
+    }
+}
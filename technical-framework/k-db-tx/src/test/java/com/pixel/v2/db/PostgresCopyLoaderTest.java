@@ -0,0 +1,61 @@
+package com.pixel.v2.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pixel.v2.db.PostgresCopyLoader.Stage;
+import com.pixel.v2.db.TableMapping.Column;
+
+/**
+ * Unit tests for PostgresCopyLoader
+ */
+class PostgresCopyLoaderTest {
+
+    @Test
+    @DisplayName("Should write NULL unquoted and quote every other CSV value")
+    void testCsvRow() {
+        List<Column<Object[]>> columns = List.of(Column.text("A", row -> row[0]),
+                Column.text("B", row -> row[1]), Column.text("C", row -> row[2]),
+                Column.decimal("D", row -> row[3]), Column.timestamp("E", row -> row[4]));
+        StringBuilder csv = new StringBuilder();
+
+        PostgresCopyLoader.appendRow(csv, columns, new Object[] {null, "",
+                "say \"hi\",\nbye", new BigDecimal("1E+1"),
+                LocalDateTime.of(2025, 1, 2, 3, 4, 5, 123456000)});
+
+        assertEquals(",\"\",\"say \"\"hi\"\",\nbye\",\"10\",\"2025-01-02T03:04:05.123456\"\n",
+                csv.toString());
+    }
+
+    @Test
+    @DisplayName("Should stage the columns and merge them with an upsert on the key")
+    void testStatements() {
+        TableMapping<String[]> table = new TableMapping<>("APPLICATION_CONTEXT",
+                List.of("LOGID", "NAME"), List.of(Column.text("LOGID", row -> row[0]),
+                        Column.text("NAME", row -> row[1]), Column.text("FLOWID", row -> row[2])));
+        Stage<String[]> stage = new Stage<>(table, "pixel_v2", "stage");
+
+        assertEquals("CREATE TEMP TABLE IF NOT EXISTS stage ON COMMIT DELETE ROWS AS SELECT "
+                + "LOGID, NAME, FLOWID FROM pixel_v2.APPLICATION_CONTEXT WITH NO DATA",
+                stage.createSql());
+        assertEquals("COPY stage (LOGID, NAME, FLOWID) FROM STDIN WITH (FORMAT csv)",
+                stage.copySql());
+        assertEquals("INSERT INTO pixel_v2.APPLICATION_CONTEXT (LOGID, NAME, FLOWID) SELECT "
+                + "LOGID, NAME, FLOWID FROM stage ON CONFLICT (LOGID, NAME) DO UPDATE SET "
+                + "FLOWID = EXCLUDED.FLOWID", stage.mergeSql());
+    }
+
+    @Test
+    @DisplayName("Should leave the batch to the JPA path when disabled")
+    void testDisabled() {
+        PostgresCopyLoader loader = new PostgresCopyLoader(false, "pixel_v2");
+        assertFalse(loader.loadErrorLogEvents(null, List.of()));
+    }
+}
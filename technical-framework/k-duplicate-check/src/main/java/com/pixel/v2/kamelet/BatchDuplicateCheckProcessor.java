@@ -0,0 +1,314 @@
+package com.pixel.v2.kamelet;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.camel.Exchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Batched duplicate check for Collection bodies (CFT file lines, k-message-concat batches).
+ * 
+ * Checksums for all items are computed together (in parallel on a small dedicated pool for large
+ * batches) and resolved with one multi-row INSERT ... ON CONFLICT (FLOWID, CHECKSUM) DO NOTHING
+ * RETURNING statement per chunk, so a 10,000-line file needs a handful of round trips instead of
+ * one or two per line. Each item is recorded under FLOWOCCUR_ID "{FlowOccurId}-{index}"; the
+ * RETURNING clause tells which items were new. Identical items within the same batch are flagged
+ * as duplicates of the first one. Earlier days of the duplicate window are covered by the NOT
+ * EXISTS guard, today's partition by the ON CONFLICT arbiter, and transient failures are retried
+ * chunk by chunk. A retry first looks up the chunk's own FLOWOCCUR_IDs: when the failed attempt
+ * committed but its result was lost, those rows are the items it inserted, not duplicates.
+ */
+@Component("batchDuplicateCheckProcessor")
+public class BatchDuplicateCheckProcessor implements DisposableBean {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(BatchDuplicateCheckProcessor.class);
+
+    /** Exchange property: List of checksums, in body order */
+    public static final String CHECKSUMS_PROPERTY = "checksums";
+    /** Exchange property: List of Boolean duplicate flags, in body order */
+    public static final String DUPLICATE_FLAGS_PROPERTY = "duplicateFlags";
+
+    /** Exchange property: duplicate window in days, set by the kamelet */
+    public static final String WINDOW_DAYS_PROPERTY = "duplicateWindowDays";
+    /** Exchange property: name of the DataSource bean, the kamelet dataSource parameter */
+    public static final String DATA_SOURCE_PROPERTY = "duplicateCheckDataSource";
+
+    private static final String INSERT_PREFIX = "INSERT INTO pixel_v2.TECH_DUPLICATE_CHECK "
+            + "(FLOWOCCUR_ID, PARTNER_ID, CHECKSUM, FLOWID, RECEIPT_DTE) "
+            + "SELECT v.FLOWOCCUR_ID, v.PARTNER_ID, v.CHECKSUM, v.FLOWID, CURRENT_TIMESTAMP FROM (VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = ") AS v (FLOWOCCUR_ID, PARTNER_ID, CHECKSUM, FLOWID) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM pixel_v2.TECH_DUPLICATE_CHECK d "
+            + "WHERE d.FLOWID = v.FLOWID AND d.CHECKSUM = v.CHECKSUM AND d.RECEIPT_DAY >= CURRENT_DATE - ?) "
+            + "ON CONFLICT (FLOWID, CHECKSUM, RECEIPT_DAY) DO NOTHING RETURNING FLOWOCCUR_ID";
+    // Rows of an attempt that committed before failing; yesterday too in case it ran over midnight
+    private static final String SELECT_RECORDED = "SELECT FLOWOCCUR_ID FROM pixel_v2.TECH_DUPLICATE_CHECK "
+            + "WHERE FLOWOCCUR_ID = ANY (?) AND RECEIPT_DAY >= CURRENT_DATE - 1";
+
+    private final DuplicateCheckRetryPolicy retryPolicy;
+    private final int chunkSize;
+    private final int parallelThreshold;
+    private final int parallelism;
+    // Null when parallelism is 1: checksums are then computed on the calling thread
+    private final ExecutorService checksumExecutor;
+
+    public BatchDuplicateCheckProcessor(DuplicateCheckRetryPolicy retryPolicy,
+            @Value("${pixel.duplicate.check.batch.chunk-size:1000}") int chunkSize,
+            @Value("${pixel.duplicate.check.batch.parallel-threshold:256}") int parallelThreshold,
+            @Value("${pixel.duplicate.check.batch.parallelism:4}") int parallelism) {
+        this.retryPolicy = retryPolicy;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelThreshold = parallelThreshold;
+        this.parallelism = Math.max(1, parallelism);
+        // The caller computes one slice itself; a full queue makes it compute the others too
+        this.checksumExecutor = this.parallelism > 1
+                ? new ThreadPoolExecutor(this.parallelism - 1, this.parallelism - 1, 0L,
+                        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(this.parallelism * 16),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "duplicate-check-checksum");
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.CallerRunsPolicy())
+                : null;
+    }
+
+    /**
+     * Computes one checksum per item. Sets the "checksums" property, "fileSize" to the largest
+     * item size (so the per-message maxFileSize check applies to every item) and the
+     * DuplicateCheckBatchSize header.
+     */
+    public void computeChecksums(Exchange exchange) throws Exception {
+        Object[] items = exchange.getIn().getBody(Collection.class).toArray();
+        String algorithm = exchange.getProperty(DuplicateCheckProcessor.CHECKSUM_ALGORITHM_PROPERTY,
+                StreamingChecksum.DEFAULT_ALGORITHM, String.class);
+
+        StreamingChecksum.Result[] results = new StreamingChecksum.Result[items.length];
+        if (checksumExecutor != null && items.length >= parallelThreshold) {
+            computeInSlices(items, algorithm, results);
+        } else {
+            computeSlice(items, 0, items.length, algorithm, results);
+        }
+
+        List<String> checksums = new ArrayList<>(items.length);
+        long largestItem = 0;
+        for (StreamingChecksum.Result result : results) {
+            checksums.add(result.checksum());
+            largestItem = Math.max(largestItem, result.byteCount());
+        }
+
+        exchange.setProperty(CHECKSUMS_PROPERTY, checksums);
+        exchange.setProperty("fileSize", largestItem);
+        exchange.getIn().setHeader("DuplicateCheckBatchSize", items.length);
+    }
+
+    /**
+     * Resolves all checksums against TECH_DUPLICATE_CHECK, in the DataSource named by the
+     * "duplicateCheckDataSource" property. Sets the "duplicateFlags" property and the
+     * DuplicateCount / UniqueCount headers.
+     */
+    @SuppressWarnings("unchecked")
+    public void resolveDuplicates(Exchange exchange) throws Exception {
+        List<String> checksums = exchange.getProperty(CHECKSUMS_PROPERTY, List.class);
+        String flowOccurId = exchange.getIn().getHeader("FlowOccurId", String.class);
+        String flowId = exchange.getIn().getHeader("FlowId", String.class);
+        String partnerId = exchange.getIn().getHeader("PartnerId", String.class);
+        int windowDays = exchange.getProperty(WINDOW_DAYS_PROPERTY, 30, Integer.class);
+        int maxRetryCount = exchange.getProperty(
+                DuplicateCheckRetryPolicy.MAX_RETRY_COUNT_PROPERTY, 3, Integer.class);
+        long retrySleepPeriod = exchange.getProperty(
+                DuplicateCheckRetryPolicy.RETRY_SLEEP_PERIOD_PROPERTY, 1000L, Long.class);
+
+        Boolean[] duplicate = new Boolean[checksums.size()];
+        Arrays.fill(duplicate, Boolean.TRUE);
+
+        DataSource dataSource = dataSource(exchange);
+        for (int start = 0; start < checksums.size(); start += chunkSize) {
+            int chunkStart = start;
+            int end = Math.min(start + chunkSize, checksums.size());
+            int[] attempts = {0};
+            // Each chunk commits on its own, so a retry only replays the failed chunk
+            Set<String> inserted = retryPolicy.execute(() -> {
+                Connection connection = DataSourceUtils.getConnection(dataSource);
+                try {
+                    Set<String> recorded = attempts[0]++ > 0
+                            ? selectRecorded(connection, flowOccurId, chunkStart, end)
+                            : new HashSet<>();
+                    recorded.addAll(insertChunk(connection, checksums, chunkStart, end,
+                            flowOccurId, flowId, partnerId, windowDays));
+                    return recorded;
+                } finally {
+                    DataSourceUtils.releaseConnection(connection, dataSource);
+                }
+            }, maxRetryCount, retrySleepPeriod);
+            for (int i = start; i < end; i++) {
+                duplicate[i] = !inserted.contains(itemOccurId(flowOccurId, i));
+            }
+        }
+
+        int duplicates = 0;
+        for (Boolean flag : duplicate) {
+            if (flag) {
+                duplicates++;
+            }
+        }
+
+        exchange.setProperty(DUPLICATE_FLAGS_PROPERTY, Arrays.asList(duplicate));
+        exchange.getIn().setHeader("DuplicateCount", duplicates);
+        exchange.getIn().setHeader("UniqueCount", duplicate.length - duplicates);
+
+        logger.info("[K-DUPLICATE-CHECK] Batch duplicate check - FlowOccurId: {}, items: {}, duplicates: {}, round trips: {}",
+                flowOccurId, duplicate.length, duplicates,
+                (checksums.size() + chunkSize - 1) / chunkSize);
+    }
+
+    private static DataSource dataSource(Exchange exchange) {
+        String name = exchange.getProperty(DATA_SOURCE_PROPERTY, "dataSource", String.class);
+        DataSource dataSource =
+                exchange.getContext().getRegistry().lookupByNameAndType(name, DataSource.class);
+        if (dataSource == null) {
+            throw new IllegalStateException("No DataSource bean named " + name);
+        }
+        return dataSource;
+    }
+
+    private Set<String> insertChunk(Connection connection, List<String> checksums, int start,
+            int end, String flowOccurId, String flowId, String partnerId, int windowDays)
+            throws Exception {
+        StringBuilder sql = new StringBuilder(
+                INSERT_PREFIX.length() + (end - start) * (INSERT_ROW.length() + 2) + 64);
+        sql.append(INSERT_PREFIX);
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+        }
+        sql.append(INSERT_SUFFIX);
+
+        Set<String> inserted = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int parameter = 1;
+            for (int i = start; i < end; i++) {
+                statement.setString(parameter++, itemOccurId(flowOccurId, i));
+                statement.setString(parameter++, partnerId);
+                statement.setString(parameter++, checksums.get(i));
+                statement.setString(parameter++, flowId);
+            }
+            statement.setInt(parameter, windowDays);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    inserted.add(resultSet.getString(1));
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * FLOWOCCUR_IDs of the chunk already in the table: written by an earlier attempt whose commit
+     * went through although the call failed
+     */
+    private static Set<String> selectRecorded(Connection connection, String flowOccurId, int start,
+            int end) throws Exception {
+        String[] ids = new String[end - start];
+        for (int i = start; i < end; i++) {
+            ids[i - start] = itemOccurId(flowOccurId, i);
+        }
+        Set<String> recorded = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_RECORDED)) {
+            Array array = connection.createArrayOf("varchar", ids);
+            statement.setArray(1, array);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    recorded.add(resultSet.getString(1));
+                }
+            }
+        }
+        if (!recorded.isEmpty()) {
+            logger.warn("[K-DUPLICATE-CHECK] {} items already recorded by a failed attempt - FlowOccurId: {}",
+                    recorded.size(), flowOccurId);
+        }
+        return recorded;
+    }
+
+    private static String itemOccurId(String flowOccurId, int index) {
+        return flowOccurId + "-" + (index + 1);
+    }
+
+    /**
+     * Splits the items into one contiguous slice per thread; the calling thread takes the first
+     */
+    private void computeInSlices(Object[] items, String algorithm,
+            StreamingChecksum.Result[] results) throws Exception {
+        int sliceSize = (items.length + parallelism - 1) / parallelism;
+        List<Future<?>> slices = new ArrayList<>(parallelism - 1);
+        for (int start = sliceSize; start < items.length; start += sliceSize) {
+            int from = start;
+            int to = Math.min(start + sliceSize, items.length);
+            slices.add(checksumExecutor.submit(
+                    () -> computeSlice(items, from, to, algorithm, results)));
+        }
+        computeSlice(items, 0, Math.min(sliceSize, items.length), algorithm, results);
+        for (Future<?> slice : slices) {
+            try {
+                slice.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+    }
+
+    private static void computeSlice(Object[] items, int from, int to, String algorithm,
+            StreamingChecksum.Result[] results) {
+        for (int i = from; i < to; i++) {
+            results[i] = checksumOf(items[i], algorithm);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (checksumExecutor != null) {
+            checksumExecutor.shutdown();
+        }
+    }
+
+    private static StreamingChecksum.Result checksumOf(Object item, String algorithm) {
+        try {
+            if (item == null) {
+                return StreamingChecksum.of(new byte[0], algorithm);
+            }
+            if (item instanceof byte[] bytes) {
+                return StreamingChecksum.of(bytes, algorithm);
+            }
+            if (item instanceof CharSequence text) {
+                return StreamingChecksum.of(text, algorithm);
+            }
+            return StreamingChecksum.of(item.toString(), algorithm);
+        } catch (Exception e) {
+            throw new IllegalStateException("Checksum computation failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.pixel.v2.kamelet;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the daily RECEIPT_DAY partitions of TECH_DUPLICATE_CHECK.
+ * 
+ * At startup and then every hour, creates the partitions for today and the next days and drops the
+ * partitions that fall entirely outside the duplicate window. The days come from the database
+ * CURRENT_DATE, the default of RECEIPT_DAY, not from the JVM clock. Rows of a day without a
+ * partition land in the DEFAULT partition; creating that day's partition later moves them out of
+ * it in the same transaction, and rows found there are logged as an error. Each node runs the
+ * maintenance; DDL is idempotent, each partition is handled on its own and a failed step is
+ * retried on the next tick. Nothing is done when the table is not partitioned (schema created
+ * before partitioning).
+ */
+@Component("duplicateCheckPartitionManager")
+public class DuplicateCheckPartitionManager implements InitializingBean, DisposableBean {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(DuplicateCheckPartitionManager.class);
+
+    private static final String SCHEMA = "pixel_v2";
+    private static final String TABLE = "tech_duplicate_check";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final ObjectProvider<DataSource> dataSourceProvider;
+    private final boolean enabled;
+    private final int windowDays;
+    private final int daysAhead;
+    private final long intervalMinutes;
+
+    private ScheduledExecutorService scheduler;
+
+    public DuplicateCheckPartitionManager(ObjectProvider<DataSource> dataSourceProvider,
+            @Value("${pixel.duplicate.check.partition.enabled:true}") boolean enabled,
+            @Value("${pixel.duplicate.check.window.days:30}") int windowDays,
+            @Value("${pixel.duplicate.check.partition.days-ahead:3}") int daysAhead,
+            @Value("${pixel.duplicate.check.partition.interval-minutes:60}") long intervalMinutes) {
+        this.dataSourceProvider = dataSourceProvider;
+        this.enabled = enabled;
+        this.windowDays = windowDays;
+        this.daysAhead = daysAhead;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || dataSourceProvider.getIfAvailable() == null) {
+            logger.info("[K-DUPLICATE-CHECK] Partition maintenance disabled (enabled: {})", enabled);
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-check-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates missing partitions up to today + daysAhead and drops partitions older than the
+     * window (RECEIPT_DAY before today - windowDays), today being the database CURRENT_DATE
+     */
+    public void maintain() {
+        try {
+            DataSource dataSource = dataSourceProvider.getObject();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            if (!isPartitioned(jdbcTemplate)) {
+                logger.warn("[K-DUPLICATE-CHECK] {}.{} is not partitioned, maintenance skipped",
+                        SCHEMA, TABLE);
+                return;
+            }
+
+            List<LocalDate> days = jdbcTemplate.queryForList(
+                    "SELECT CURRENT_DATE + n FROM generate_series(0, ?) AS n", LocalDate.class,
+                    daysAhead);
+            LocalDate oldestKept = jdbcTemplate.queryForObject("SELECT CURRENT_DATE - ?",
+                    LocalDate.class, windowDays);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + SCHEMA + "." + DEFAULT_PARTITION
+                    + " PARTITION OF " + SCHEMA + "." + TABLE + " DEFAULT");
+
+            TransactionTemplate transaction =
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            Set<String> existing = new HashSet<>(partitions(jdbcTemplate));
+            int created = 0;
+            int failed = 0;
+            for (LocalDate day : days) {
+                String partition = partitionName(day);
+                if (existing.contains(partition)) {
+                    continue;
+                }
+                try {
+                    createPartition(jdbcTemplate, transaction, day);
+                    created++;
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("[K-DUPLICATE-CHECK] Creation of partition {} failed: {}",
+                            partition, e.getMessage());
+                }
+            }
+
+            int dropped = 0;
+            for (String partition : existing) {
+                LocalDate day = partitionDay(partition);
+                if (day != null && day.isBefore(oldestKept)) {
+                    try {
+                        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SCHEMA + "." + partition);
+                        dropped++;
+                    } catch (Exception e) {
+                        failed++;
+                        logger.error("[K-DUPLICATE-CHECK] Drop of partition {} failed: {}",
+                                partition, e.getMessage());
+                    }
+                }
+            }
+            jdbcTemplate.update("DELETE FROM " + SCHEMA + "." + DEFAULT_PARTITION
+                    + " WHERE RECEIPT_DAY < ?", oldestKept);
+
+            Long stray = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM " + SCHEMA + "." + DEFAULT_PARTITION, Long.class);
+            if (stray != null && stray > 0) {
+                logger.error("[K-DUPLICATE-CHECK] {} rows in {}.{}: their days have no partition yet",
+                        stray, SCHEMA, DEFAULT_PARTITION);
+            }
+
+            logger.info("[K-DUPLICATE-CHECK] Partitions maintained - created {} up to {}, dropped {} before {}, failed steps: {}",
+                    created, days.get(days.size() - 1), dropped, oldestKept, failed);
+        } catch (Exception e) {
+            logger.error("[K-DUPLICATE-CHECK] Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the partition of a day. When the default partition holds rows of that day, which
+     * would make the creation fail, they are moved to the new partition in the same transaction.
+     */
+    private static void createPartition(JdbcTemplate jdbcTemplate, TransactionTemplate transaction,
+            LocalDate day) {
+        Boolean stray = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + SCHEMA + "."
+                + DEFAULT_PARTITION + " WHERE RECEIPT_DAY >= ? AND RECEIPT_DAY < ?)",
+                Boolean.class, day, day.plusDays(1));
+        if (!Boolean.TRUE.equals(stray)) {
+            jdbcTemplate.execute(createStatement(day));
+            return;
+        }
+        transaction.executeWithoutResult(
+                status -> moveStatements(day).forEach(jdbcTemplate::execute));
+        logger.warn("[K-DUPLICATE-CHECK] Rows of {} moved from {} to {}", day, DEFAULT_PARTITION,
+                partitionName(day));
+    }
+
+    static String createStatement(LocalDate day) {
+        return "CREATE TABLE IF NOT EXISTS " + SCHEMA + "." + partitionName(day) + " PARTITION OF "
+                + SCHEMA + "." + TABLE + " FOR VALUES FROM ('" + day + "') TO ('"
+                + day.plusDays(1) + "')";
+    }
+
+    /**
+     * Detaches the default partition, creates the day's partition, moves the day's rows into it
+     * and attaches the default partition back. Runs in one transaction.
+     */
+    static List<String> moveStatements(LocalDate day) {
+        String table = SCHEMA + "." + TABLE;
+        String defaultPartition = SCHEMA + "." + DEFAULT_PARTITION;
+        String range = " WHERE RECEIPT_DAY >= '" + day + "' AND RECEIPT_DAY < '" + day.plusDays(1)
+                + "'";
+        return List.of(
+                "ALTER TABLE " + table + " DETACH PARTITION " + defaultPartition,
+                createStatement(day),
+                "INSERT INTO " + table + " SELECT * FROM " + defaultPartition + range,
+                "DELETE FROM " + defaultPartition + range,
+                "ALTER TABLE " + table + " ATTACH PARTITION " + defaultPartition + " DEFAULT");
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    static LocalDate partitionDay(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partitionName.substring(PARTITION_PREFIX.length()),
+                    PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPartitioned(JdbcTemplate jdbcTemplate) {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT c.relkind::text FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND c.relname = ?",
+                String.class, SCHEMA, TABLE);
+        return kinds.contains("p");
+    }
+
+    private static List<String> partitions(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("SELECT child.relname FROM pg_inherits i "
+                + "JOIN pg_class parent ON parent.oid = i.inhparent "
+                + "JOIN pg_class child ON child.oid = i.inhrelid "
+                + "JOIN pg_namespace n ON n.oid = parent.relnamespace "
+                + "WHERE n.nspname = ? AND parent.relname = ?", String.class, SCHEMA, TABLE);
+    }
+}
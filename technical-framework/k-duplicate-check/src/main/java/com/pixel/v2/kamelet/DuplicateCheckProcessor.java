@@ -1,47 +1,59 @@
 package com.pixel.v2.kamelet;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import java.io.InputStream;
 
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.apache.camel.StreamCache;
 import org.springframework.stereotype.Component;
 
 /**
- * Processor to compute SHA-1 checksum for duplicate check
+ * Processor to compute the duplicate check checksum and file size in a single streaming pass. The
+ * digest algorithm is read from the "checksumAlgorithm" exchange property (SHA-1 by default).
  */
 @Component("duplicateCheckProcessor")
 public class DuplicateCheckProcessor implements Processor {
 
+    public static final String CHECKSUM_ALGORITHM_PROPERTY = "checksumAlgorithm";
+
     @Override
     public void process(Exchange exchange) throws Exception {
-        // Get the message body
-        String body = exchange.getIn().getBody(String.class);
-        
-        // Compute SHA-1 checksum
-        String checksum = computeSHA1(body != null ? body : "");
-        
-        // Set checksum as exchange property
-        exchange.setProperty("checksum", checksum);
-        
-        // Also compute and set file size
-        int fileSize = body != null ? body.getBytes(StandardCharsets.UTF_8).length : 0;
-        exchange.setProperty("fileSize", fileSize);
+        String algorithm = exchange.getProperty(CHECKSUM_ALGORITHM_PROPERTY,
+                StreamingChecksum.DEFAULT_ALGORITHM, String.class);
+
+        StreamingChecksum.Result result = computeChecksum(exchange, algorithm);
+
+        // Set checksum and file size as exchange properties
+        exchange.setProperty("checksum", result.checksum());
+        exchange.setProperty("fileSize", result.byteCount());
     }
-    
-    private String computeSHA1(String input) throws Exception {
-        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
-        byte[] hash = sha1.digest(input.getBytes(StandardCharsets.UTF_8));
-        
-        // Convert byte array to hexadecimal string
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
+
+    /**
+     * Read the body once, in chunks, whatever its representation
+     */
+    StreamingChecksum.Result computeChecksum(Exchange exchange, String algorithm)
+            throws Exception {
+        Object body = exchange.getIn().getBody();
+        if (body == null) {
+            return StreamingChecksum.of(new byte[0], algorithm);
+        }
+        if (body instanceof byte[] bytes) {
+            return StreamingChecksum.of(bytes, algorithm);
+        }
+        if (body instanceof CharSequence text) {
+            return StreamingChecksum.of(text, algorithm);
+        }
+        if (body instanceof StreamCache cache && body instanceof InputStream stream) {
+            // Stream caches are re-readable: rewind before and after hashing
+            cache.reset();
+            try {
+                return StreamingChecksum.of(stream, algorithm);
+            } finally {
+                cache.reset();
             }
-            hexString.append(hex);
         }
-        return hexString.toString();
+        // Other bodies (XML sources, readers, objects): fall back to their String form
+        String fallback = exchange.getIn().getBody(String.class);
+        return StreamingChecksum.of(fallback != null ? fallback : "", algorithm);
     }
-}
\ No newline at end of file
+}
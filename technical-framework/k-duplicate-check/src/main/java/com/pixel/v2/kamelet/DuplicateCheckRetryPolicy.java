@@ -0,0 +1,138 @@
+package com.pixel.v2.kamelet;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.camel.Exchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded exponential backoff for transient duplicate-check database failures.
+ * 
+ * The n-th retry waits between half and all of min(retrySleepPeriod * 2^n, MAX_DELAY_MILLIS); after
+ * maxRetryCount retries, or once MAX_TOTAL_DELAY_MILLIS have been spent waiting, the failure is
+ * rethrown. The wait runs on the calling payment thread, so both caps are kept short: an outage
+ * longer than that is left to the route error handling. Used by the kamelet retry loop (backoff)
+ * and by BatchDuplicateCheckProcessor (execute).
+ */
+@Component("duplicateCheckRetryPolicy")
+public class DuplicateCheckRetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateCheckRetryPolicy.class);
+
+    public static final String MAX_RETRY_COUNT_PROPERTY = "maxRetryCount";
+    public static final String RETRY_SLEEP_PERIOD_PROPERTY = "retrySleepPeriod";
+    public static final String ATTEMPT_PROPERTY = "DuplicateCheckAttempt";
+    public static final String WAITED_PROPERTY = "DuplicateCheckWaitedMillis";
+
+    static final long MAX_DELAY_MILLIS = 1_000L;
+    static final long MAX_TOTAL_DELAY_MILLIS = 2_000L;
+
+    /**
+     * Called from the kamelet doCatch: rethrows the caught exception once retries or the wait
+     * budget are exhausted, otherwise sleeps and lets the loop run the database step again.
+     */
+    public void backoff(Exchange exchange) throws Exception {
+        Exception caught = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
+        int maxRetryCount = exchange.getProperty(MAX_RETRY_COUNT_PROPERTY, 3, Integer.class);
+        long retrySleepPeriod = exchange.getProperty(RETRY_SLEEP_PERIOD_PROPERTY, 1000L, Long.class);
+        int attempt = exchange.getProperty(ATTEMPT_PROPERTY, 0, Integer.class);
+        long waited = exchange.getProperty(WAITED_PROPERTY, 0L, Long.class);
+
+        long delay = nextDelay(attempt, maxRetryCount, retrySleepPeriod, waited);
+        if (delay < 0) {
+            logger.error("[K-DUPLICATE-CHECK] Database still failing after {} retries ({} ms) - FlowOccurId: {}",
+                    attempt, waited, exchange.getIn().getHeader("FlowOccurId"));
+            throw caught != null ? caught
+                    : new IllegalStateException("Duplicate check database step failed");
+        }
+
+        logger.warn("[K-DUPLICATE-CHECK] Transient database failure, retry {}/{} in {} ms - FlowOccurId: {}, cause: {}",
+                attempt + 1, maxRetryCount, delay, exchange.getIn().getHeader("FlowOccurId"),
+                caught != null ? caught.getMessage() : null);
+        exchange.setProperty(ATTEMPT_PROPERTY, attempt + 1);
+        exchange.setProperty(WAITED_PROPERTY, waited + delay);
+        Thread.sleep(delay);
+    }
+
+    /**
+     * Runs the action, retrying transient failures with the same backoff as the kamelet loop.
+     */
+    public <T> T execute(Callable<T> action, int maxRetryCount, long retrySleepPeriod)
+            throws Exception {
+        long waited = 0;
+        for (int attempt = 0;; attempt++) {
+            try {
+                return action.call();
+            } catch (Exception e) {
+                long delay = isTransient(e)
+                        ? nextDelay(attempt, maxRetryCount, retrySleepPeriod, waited)
+                        : -1;
+                if (delay < 0) {
+                    throw e;
+                }
+                logger.warn("[K-DUPLICATE-CHECK] Transient database failure, retry {}/{} in {} ms: {}",
+                        attempt + 1, maxRetryCount, delay, e.getMessage());
+                waited += delay;
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Wait before retry number attempt + 1, trimmed to what is left of MAX_TOTAL_DELAY_MILLIS, or
+     * -1 when the retries or the budget are used up.
+     */
+    static long nextDelay(int attempt, int maxRetryCount, long retrySleepPeriod, long waited) {
+        long remaining = MAX_TOTAL_DELAY_MILLIS - waited;
+        if (attempt >= maxRetryCount || remaining <= 0) {
+            return -1;
+        }
+        return Math.min(delayMillis(attempt, retrySleepPeriod), remaining);
+    }
+
+    /**
+     * Backoff before retry number attempt + 1 (equal jitter, capped at MAX_DELAY_MILLIS)
+     */
+    static long delayMillis(int attempt, long retrySleepPeriod) {
+        long base = Math.max(1L, retrySleepPeriod);
+        long ceiling = attempt >= 30 ? MAX_DELAY_MILLIS
+                : Math.min(MAX_DELAY_MILLIS, base << attempt);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Connection loss, timeouts, deadlocks and serialization failures are worth retrying;
+     * constraint violations and SQL errors are not.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                String state = sql.getSQLState();
+                // 08 connection exception, 40 transaction rollback (deadlock, serialization),
+                // 53 insufficient resources, 57P01..57P03 server shutdown / cannot connect now
+                if (state.startsWith("08") || state.startsWith("40") || state.startsWith("53")
+                        || state.startsWith("57P")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package com.pixel.v2.kamelet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-pass checksum over a message body. The payload is fed to the digest in fixed-size chunks,
+ * so the checksum and the UTF-8 byte count are produced together without materialising a copy of
+ * the whole body.
+ */
+public final class StreamingChecksum {
+
+    public static final String DEFAULT_ALGORITHM = "SHA-1";
+
+    static final int CHUNK_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Prototype digests, cloned per call to skip the provider lookup */
+    private static final Map<String, MessageDigest> PROTOTYPES = new ConcurrentHashMap<>();
+
+    private StreamingChecksum() {}
+
+    /**
+     * Checksum (lower-case hex) and byte count of a payload
+     */
+    public record Result(String checksum, long byteCount) {}
+
+    public static Result of(byte[] body, String algorithm) throws NoSuchAlgorithmException {
+        MessageDigest digest = newDigest(algorithm);
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            digest.update(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+        }
+        return new Result(toHex(digest.digest()), body.length);
+    }
+
+    /**
+     * UTF-8 encodes the string chunk by chunk into a small reusable buffer. Malformed input is
+     * replaced the same way {@link String#getBytes(java.nio.charset.Charset)} does, so checksums
+     * stay identical to the historical implementation.
+     */
+    public static Result of(CharSequence body, String algorithm) throws NoSuchAlgorithmException {
+        MessageDigest digest = newDigest(algorithm);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(body);
+        ByteBuffer out = ByteBuffer.allocate(CHUNK_SIZE);
+        long byteCount = 0;
+
+        CoderResult result;
+        do {
+            result = encoder.encode(in, out, true);
+            byteCount += drain(out, digest);
+        } while (result.isOverflow());
+        while (encoder.flush(out).isOverflow()) {
+            byteCount += drain(out, digest);
+        }
+        byteCount += drain(out, digest);
+
+        return new Result(toHex(digest.digest()), byteCount);
+    }
+
+    public static Result of(InputStream body, String algorithm)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = newDigest(algorithm);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long byteCount = 0;
+        int read;
+        while ((read = body.read(chunk)) != -1) {
+            digest.update(chunk, 0, read);
+            byteCount += read;
+        }
+        return new Result(toHex(digest.digest()), byteCount);
+    }
+
+    private static int drain(ByteBuffer out, MessageDigest digest) {
+        out.flip();
+        int length = out.remaining();
+        digest.update(out);
+        out.clear();
+        return length;
+    }
+
+    static MessageDigest newDigest(String algorithm) throws NoSuchAlgorithmException {
+        String name = algorithm == null || algorithm.isBlank() ? DEFAULT_ALGORITHM : algorithm;
+        MessageDigest prototype = PROTOTYPES.get(name);
+        if (prototype == null) {
+            prototype = MessageDigest.getInstance(name);
+            PROTOTYPES.putIfAbsent(name, prototype);
+        }
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return MessageDigest.getInstance(name);
+        }
+    }
+
+    static String toHex(byte[] hash) {
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            int value = hash[i] & 0xff;
+            hex[i * 2] = HEX[value >>> 4];
+            hex[i * 2 + 1] = HEX[value & 0x0f];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,212 @@
+package com.pixel.v2.kamelet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for BatchDuplicateCheckProcessor
+ */
+class BatchDuplicateCheckProcessorTest {
+
+    private BatchDuplicateCheckProcessor processor;
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        // Parallel threshold of 4 so the larger batch below goes through the parallel path
+        processor = new BatchDuplicateCheckProcessor(null, 1000, 4, 4);
+        camelContext = new DefaultCamelContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.destroy();
+    }
+
+    @Test
+    @DisplayName("Should compute one checksum per item in body order")
+    void testChecksumsInBodyOrder() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add("line-" + i);
+        }
+
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(lines);
+        processor.computeChecksums(exchange);
+
+        List<?> checksums = exchange.getProperty(BatchDuplicateCheckProcessor.CHECKSUMS_PROPERTY,
+                List.class);
+        assertEquals(100, checksums.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(StreamingChecksum.of(lines.get(i), "SHA-1").checksum(), checksums.get(i));
+        }
+        assertEquals(100, exchange.getIn().getHeader("DuplicateCheckBatchSize"));
+    }
+
+    @Test
+    @DisplayName("Should report the largest item as fileSize")
+    void testFileSizeIsLargestItem() throws Exception {
+        byte[] large = "x".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(List.of("a", large, "bc"));
+        processor.computeChecksums(exchange);
+
+        assertEquals(500L, exchange.getProperty("fileSize"));
+    }
+
+    @Test
+    @DisplayName("Should flag the items not returned by the insert of each chunk as duplicates")
+    void testResolveDuplicates() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet firstChunk = returning("F-1");
+        ResultSet secondChunk = returning("F-3", "F-4");
+        when(statement.executeQuery()).thenReturn(firstChunk, secondChunk);
+        Connection connection = connection(statement);
+        camelContext.getRegistry().bind("pixelDataSource", dataSource(connection));
+
+        BatchDuplicateCheckProcessor chunked =
+                new BatchDuplicateCheckProcessor(new DuplicateCheckRetryPolicy(), 2, 256, 1);
+        Exchange exchange = batch("pixelDataSource", "c1", "c2", "c3", "c4");
+        chunked.resolveDuplicates(exchange);
+
+        assertEquals(List.of(false, true, false, false),
+                exchange.getProperty(BatchDuplicateCheckProcessor.DUPLICATE_FLAGS_PROPERTY));
+        assertEquals(1, exchange.getIn().getHeader("DuplicateCount"));
+        assertEquals(3, exchange.getIn().getHeader("UniqueCount"));
+        verify(connection, times(2)).prepareStatement(anyString());
+        verify(statement).setString(1, "F-3");
+        verify(statement, times(2)).setInt(9, 30);
+    }
+
+    @Test
+    @DisplayName("Should replay a chunk after a transient failure")
+    void testResolveDuplicatesRetriesChunk() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet inserted = returning("F-1", "F-2");
+        when(statement.executeQuery())
+                .thenThrow(new SQLException("connection reset", "08006"))
+                .thenReturn(inserted);
+        Connection connection = connection(statement);
+        PreparedStatement lookup = lookup(connection);
+        ResultSet nothingRecorded = returning();
+        when(lookup.executeQuery()).thenReturn(nothingRecorded);
+        camelContext.getRegistry().bind("pixelDataSource", dataSource(connection));
+
+        Exchange exchange = batch("pixelDataSource", "c1", "c2");
+        exchange.setProperty(DuplicateCheckRetryPolicy.RETRY_SLEEP_PERIOD_PROPERTY, 1L);
+        new BatchDuplicateCheckProcessor(new DuplicateCheckRetryPolicy(), 1000, 256, 1)
+                .resolveDuplicates(exchange);
+
+        assertEquals(0, exchange.getIn().getHeader("DuplicateCount"));
+        assertEquals(List.of(false, false),
+                exchange.getProperty(BatchDuplicateCheckProcessor.DUPLICATE_FLAGS_PROPERTY));
+        verify(lookup).executeQuery();
+    }
+
+    @Test
+    @DisplayName("Should count the rows of a committed attempt whose result was lost as inserted")
+    void testResolveDuplicatesAfterLostCommit() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        // Second attempt: the rows are there already, so the insert returns only the third item
+        ResultSet insertedByRetry = returning("F-3");
+        when(statement.executeQuery())
+                .thenThrow(new SQLException("connection reset", "08006"))
+                .thenReturn(insertedByRetry);
+        Connection connection = connection(statement);
+        PreparedStatement lookup = lookup(connection);
+        ResultSet committed = returning("F-1", "F-2");
+        when(lookup.executeQuery()).thenReturn(committed);
+        camelContext.getRegistry().bind("pixelDataSource", dataSource(connection));
+
+        Exchange exchange = batch("pixelDataSource", "c1", "c2", "c3", "c1");
+        exchange.setProperty(DuplicateCheckRetryPolicy.RETRY_SLEEP_PERIOD_PROPERTY, 1L);
+        new BatchDuplicateCheckProcessor(new DuplicateCheckRetryPolicy(), 1000, 256, 1)
+                .resolveDuplicates(exchange);
+
+        assertEquals(List.of(false, false, false, true),
+                exchange.getProperty(BatchDuplicateCheckProcessor.DUPLICATE_FLAGS_PROPERTY));
+        assertEquals(1, exchange.getIn().getHeader("DuplicateCount"));
+    }
+
+    @Test
+    @DisplayName("Should fail when the kamelet dataSource is not in the registry")
+    void testUnknownDataSource() {
+        Exchange exchange = batch("missingDataSource", "c1");
+
+        assertThrows(IllegalStateException.class, () -> processor.resolveDuplicates(exchange));
+    }
+
+    private Exchange batch(String dataSource, String... checksums) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader("FlowOccurId", "F");
+        exchange.getIn().setHeader("FlowId", "FLOW");
+        exchange.getIn().setHeader("PartnerId", "PARTNER");
+        exchange.setProperty(BatchDuplicateCheckProcessor.CHECKSUMS_PROPERTY, List.of(checksums));
+        exchange.setProperty(BatchDuplicateCheckProcessor.DATA_SOURCE_PROPERTY, dataSource);
+        return exchange;
+    }
+
+    /**
+     * Result set of the RETURNING clause: one row per inserted FLOWOCCUR_ID
+     */
+    private static ResultSet returning(String... flowOccurIds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        Boolean[] next = new Boolean[flowOccurIds.length + 1];
+        Arrays.fill(next, Boolean.TRUE);
+        next[flowOccurIds.length] = Boolean.FALSE;
+        when(resultSet.next()).thenReturn(next[0], Arrays.copyOfRange(next, 1, next.length));
+        if (flowOccurIds.length > 0) {
+            when(resultSet.getString(1)).thenReturn(flowOccurIds[0],
+                    Arrays.copyOfRange(flowOccurIds, 1, flowOccurIds.length));
+        }
+        return resultSet;
+    }
+
+    private static Connection connection(PreparedStatement statement) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        return connection;
+    }
+
+    /**
+     * Statement of the FLOWOCCUR_ID lookup run before a retried chunk
+     */
+    private static PreparedStatement lookup(Connection connection) throws SQLException {
+        PreparedStatement lookup = mock(PreparedStatement.class);
+        when(connection.prepareStatement(startsWith("SELECT"))).thenReturn(lookup);
+        return lookup;
+    }
+
+    private static DataSource dataSource(Connection connection) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
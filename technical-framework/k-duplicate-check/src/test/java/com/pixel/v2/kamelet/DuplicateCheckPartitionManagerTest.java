@@ -0,0 +1,54 @@
+package com.pixel.v2.kamelet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for DuplicateCheckPartitionManager
+ */
+class DuplicateCheckPartitionManagerTest {
+
+    @Test
+    @DisplayName("Should map partition names to their receipt day")
+    void testPartitionNames() {
+        LocalDate day = LocalDate.of(2026, 3, 9);
+        String name = DuplicateCheckPartitionManager.partitionName(day);
+        assertEquals("tech_duplicate_check_p20260309", name);
+        assertEquals(day, DuplicateCheckPartitionManager.partitionDay(name));
+    }
+
+    @Test
+    @DisplayName("Should ignore tables that are not daily partitions")
+    void testForeignPartitionNames() {
+        assertNull(DuplicateCheckPartitionManager.partitionDay("tech_duplicate_check_default"));
+        assertNull(DuplicateCheckPartitionManager.partitionDay("tech_duplicate_check_legacy"));
+    }
+
+    @Test
+    @DisplayName("Should move the rows of a new day out of the default partition in one pass")
+    void testMoveStatements() {
+        List<String> statements =
+                DuplicateCheckPartitionManager.moveStatements(LocalDate.of(2026, 3, 9));
+
+        assertEquals(List.of(
+                "ALTER TABLE pixel_v2.tech_duplicate_check DETACH PARTITION "
+                        + "pixel_v2.tech_duplicate_check_default",
+                "CREATE TABLE IF NOT EXISTS pixel_v2.tech_duplicate_check_p20260309 PARTITION OF "
+                        + "pixel_v2.tech_duplicate_check FOR VALUES FROM ('2026-03-09') TO "
+                        + "('2026-03-10')",
+                "INSERT INTO pixel_v2.tech_duplicate_check SELECT * FROM "
+                        + "pixel_v2.tech_duplicate_check_default WHERE RECEIPT_DAY >= "
+                        + "'2026-03-09' AND RECEIPT_DAY < '2026-03-10'",
+                "DELETE FROM pixel_v2.tech_duplicate_check_default WHERE RECEIPT_DAY >= "
+                        + "'2026-03-09' AND RECEIPT_DAY < '2026-03-10'",
+                "ALTER TABLE pixel_v2.tech_duplicate_check ATTACH PARTITION "
+                        + "pixel_v2.tech_duplicate_check_default DEFAULT"),
+                statements);
+    }
+}
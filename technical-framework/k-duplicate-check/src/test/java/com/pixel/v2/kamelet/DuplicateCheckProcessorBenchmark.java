@@ -0,0 +1,80 @@
+package com.pixel.v2.kamelet;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark for the duplicate check checksum on 10 KB, 1 MB and 10 MB (maxFileSize) payloads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DuplicateCheckProcessorBenchmark {
+
+    @Param({"10240", "1048576", "10485760"})
+    public int payloadSize;
+
+    @Param({"SHA-1", "SHA-256"})
+    public String algorithm;
+
+    private final DuplicateCheckProcessor processor = new DuplicateCheckProcessor();
+    private Exchange stringExchange;
+    private Exchange bytesExchange;
+
+    @Setup
+    public void setUp() {
+        // XML-like ASCII payload with some multi-byte characters, as in pacs.008 messages
+        StringBuilder payload = new StringBuilder(payloadSize);
+        Random random = new Random(42);
+        while (payload.length() < payloadSize) {
+            payload.append("<Nm>Zürich ").append(random.nextInt(1_000_000)).append("</Nm>\n");
+        }
+        payload.setLength(payloadSize);
+
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+        stringExchange = new DefaultExchange(camelContext);
+        stringExchange.getIn().setBody(payload.toString());
+        stringExchange.setProperty(DuplicateCheckProcessor.CHECKSUM_ALGORITHM_PROPERTY, algorithm);
+
+        bytesExchange = new DefaultExchange(camelContext);
+        bytesExchange.getIn().setBody(payload.toString().getBytes());
+        bytesExchange.setProperty(DuplicateCheckProcessor.CHECKSUM_ALGORITHM_PROPERTY, algorithm);
+    }
+
+    @Benchmark
+    public Object stringBody() throws Exception {
+        processor.process(stringExchange);
+        return stringExchange.getProperty("checksum");
+    }
+
+    @Benchmark
+    public Object byteArrayBody() throws Exception {
+        processor.process(bytesExchange);
+        return bytesExchange.getProperty("checksum");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(DuplicateCheckProcessorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.pixel.v2.kamelet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.converter.stream.InputStreamCache;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for DuplicateCheckProcessor
+ */
+class DuplicateCheckProcessorTest {
+
+    private DuplicateCheckProcessor processor;
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        processor = new DuplicateCheckProcessor();
+        camelContext = new DefaultCamelContext();
+    }
+
+    @Test
+    @DisplayName("Should match a one-shot digest for a multi-chunk String body")
+    void testStringBodyMatchesOneShotDigest() throws Exception {
+        String body = "<Nm>Zürich €</Nm>\n".repeat(2000);
+
+        Exchange exchange = exchangeWith(body, null);
+        processor.process(exchange);
+
+        byte[] utf8 = body.getBytes(StandardCharsets.UTF_8);
+        assertEquals(oneShotHex("SHA-1", utf8), exchange.getProperty("checksum"));
+        assertEquals((long) utf8.length, exchange.getProperty("fileSize"));
+    }
+
+    @Test
+    @DisplayName("Should use the configured algorithm")
+    void testConfiguredAlgorithm() throws Exception {
+        byte[] body = "payment".getBytes(StandardCharsets.UTF_8);
+
+        Exchange exchange = exchangeWith(body, "SHA-256");
+        processor.process(exchange);
+
+        assertEquals(oneShotHex("SHA-256", body), exchange.getProperty("checksum"));
+        assertEquals(7L, exchange.getProperty("fileSize"));
+    }
+
+    @Test
+    @DisplayName("Should hash a stream cache and leave it readable")
+    void testStreamCacheBody() throws Exception {
+        byte[] body = "x".repeat(20_000).getBytes(StandardCharsets.UTF_8);
+        InputStreamCache cache = new InputStreamCache(body);
+
+        Exchange exchange = exchangeWith(cache, null);
+        processor.process(exchange);
+
+        assertEquals(oneShotHex("SHA-1", body), exchange.getProperty("checksum"));
+        assertEquals(body.length, cache.readAllBytes().length);
+    }
+
+    @Test
+    @DisplayName("Should hash a null body as empty payload")
+    void testNullBody() throws Exception {
+        Exchange exchange = exchangeWith(null, null);
+        processor.process(exchange);
+
+        assertEquals(oneShotHex("SHA-1", new byte[0]), exchange.getProperty("checksum"));
+        assertEquals(0L, exchange.getProperty("fileSize"));
+    }
+
+    private Exchange exchangeWith(Object body, String algorithm) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(body);
+        if (algorithm != null) {
+            exchange.setProperty(DuplicateCheckProcessor.CHECKSUM_ALGORITHM_PROPERTY, algorithm);
+        }
+        return exchange;
+    }
+
+    private static String oneShotHex(String algorithm, byte[] input) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance(algorithm).digest(input)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.pixel.v2.kamelet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * Unit tests for DuplicateCheckRetryPolicy
+ */
+class DuplicateCheckRetryPolicyTest {
+
+    private final DuplicateCheckRetryPolicy policy = new DuplicateCheckRetryPolicy();
+
+    @Test
+    @DisplayName("Should double the backoff per attempt and cap it")
+    void testDelayIsBoundedExponential() {
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long ceiling = Math.min(DuplicateCheckRetryPolicy.MAX_DELAY_MILLIS,
+                    attempt >= 30 ? Long.MAX_VALUE : 1000L << attempt);
+            long delay = DuplicateCheckRetryPolicy.delayMillis(attempt, 1000L);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling,
+                    "attempt " + attempt + " delay " + delay);
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop retrying once the total wait budget is spent")
+    void testTotalDelayIsBounded() {
+        long waited = 0;
+        int retries = 0;
+        for (long delay; (delay = DuplicateCheckRetryPolicy.nextDelay(retries, 100, 1000L,
+                waited)) >= 0; retries++) {
+            waited += delay;
+        }
+        assertEquals(DuplicateCheckRetryPolicy.MAX_TOTAL_DELAY_MILLIS, waited);
+        assertTrue(retries < 100);
+        assertEquals(-1L, DuplicateCheckRetryPolicy.nextDelay(3, 3, 1L, 0L));
+    }
+
+    @Test
+    @DisplayName("Should classify connection and lock failures as transient only")
+    void testTransientClassification() {
+        assertTrue(DuplicateCheckRetryPolicy.isTransient(new QueryTimeoutException("timeout")));
+        assertTrue(DuplicateCheckRetryPolicy
+                .isTransient(new SQLException("connection reset", "08006")));
+        assertTrue(DuplicateCheckRetryPolicy.isTransient(new SQLException("deadlock", "40P01")));
+        assertFalse(DuplicateCheckRetryPolicy.isTransient(new DuplicateKeyException("duplicate")));
+        assertFalse(DuplicateCheckRetryPolicy.isTransient(new SQLException("syntax", "42601")));
+    }
+
+    @Test
+    @DisplayName("Should retry transient failures up to maxRetryCount")
+    void testExecuteRetriesTransientFailures() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        String result = policy.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new SQLException("connection reset", "08006");
+            }
+            return "ok";
+        }, 3, 1L);
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+
+        AtomicInteger failing = new AtomicInteger();
+        assertThrows(SQLException.class, () -> policy.execute(() -> {
+            failing.incrementAndGet();
+            throw new SQLException("connection reset", "08006");
+        }, 2, 1L));
+        assertEquals(3, failing.get());
+    }
+}
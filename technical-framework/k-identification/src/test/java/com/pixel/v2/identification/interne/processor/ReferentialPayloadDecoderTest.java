@@ -0,0 +1,82 @@
+package com.pixel.v2.identification.interne.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * Unit tests for ReferentialPayloadDecoder
+ */
+class ReferentialPayloadDecoderTest {
+
+    private static final String FLOW_JSON =
+            "{\"flow\":{\"flowCode\":\"ICHSIC\",\"countries\":[\"Switzerland\"]},"
+                    + "\"partnerOut\":[{\"partnerCode\":\"P1\"},{\"partnerCode\":\"P2\"}]}";
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private ReferentialPayloadDecoder decoder;
+    private DefaultCamelContext camelContext;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new ReferentialPayloadDecoder();
+        camelContext = new DefaultCamelContext();
+    }
+
+    @Test
+    @DisplayName("Should decode CBOR payload to JSON")
+    void testDecodeCbor() throws Exception {
+        byte[] cbor = new CBORMapper().writeValueAsBytes(jsonMapper.readTree(FLOW_JSON));
+
+        Exchange exchange = exchangeWith(cbor, "application/cbor");
+        decoder.process(exchange);
+
+        // The cache and the RefFlowData consumers expect JSON text
+        assertInstanceOf(String.class, exchange.getIn().getBody());
+        assertSameTree(FLOW_JSON, exchange.getIn().getBody(String.class));
+    }
+
+    @Test
+    @DisplayName("Should decode Smile payload to JSON")
+    void testDecodeSmile() throws Exception {
+        byte[] smile = new SmileMapper().writeValueAsBytes(jsonMapper.readTree(FLOW_JSON));
+
+        Exchange exchange = exchangeWith(smile, "application/x-jackson-smile");
+        decoder.process(exchange);
+
+        assertSameTree(FLOW_JSON, exchange.getIn().getBody(String.class));
+    }
+
+    @Test
+    @DisplayName("Should pass JSON payload through as String")
+    void testJsonPassThrough() throws Exception {
+        Exchange exchange = exchangeWith(FLOW_JSON.getBytes(), "application/json;charset=UTF-8");
+        decoder.process(exchange);
+
+        assertEquals(FLOW_JSON, exchange.getIn().getBody());
+    }
+
+    private Exchange exchangeWith(byte[] body, String contentType) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(body);
+        exchange.getIn().setHeader(Exchange.CONTENT_TYPE, contentType);
+        return exchange;
+    }
+
+    private void assertSameTree(String expected, String actual) throws Exception {
+        JsonNode expectedTree = jsonMapper.readTree(expected);
+        JsonNode actualTree = jsonMapper.readTree(actual);
+        assertEquals(expectedTree, actualTree);
+    }
+}
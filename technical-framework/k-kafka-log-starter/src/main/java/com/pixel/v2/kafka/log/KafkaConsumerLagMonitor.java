@@ -0,0 +1,155 @@
+package com.pixel.v2.kafka.log;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-partition lag of the consumer group of the log topics.
+ *
+ * Every interval, reads the committed offsets of the group and the end offsets of the same
+ * partitions through a Kafka admin client, and publishes their difference as the
+ * {@code pixel.kafka.consumer.lag} gauge tagged with group, topic and partition. Offsets are
+ * committed on the next poll, so the lag includes the batch being persisted. Partitions appear
+ * once the group has committed on them.
+ */
+@Component("kafkaConsumerLagMonitor")
+public class KafkaConsumerLagMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerLagMonitor.class);
+
+    private static final long TIMEOUT_MS = 10000;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final boolean enabled;
+    private final String brokers;
+    private final String groupId;
+    private final long intervalMs;
+
+    private final Map<TopicPartition, AtomicLong> lags = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+    private Admin admin;
+    private ScheduledExecutorService scheduler;
+
+    public KafkaConsumerLagMonitor(ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${pixel.kafka.log.lag.enabled:true}") boolean enabled,
+            @Value("${pixel.kafka.brokers:}") String brokers,
+            @Value("${pixel.kafka.groupId:}") String groupId,
+            @Value("${pixel.kafka.log.lag.interval-ms:30000}") long intervalMs) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.enabled = enabled;
+        this.brokers = brokers;
+        this.groupId = groupId;
+        this.intervalMs = intervalMs;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (!enabled || brokers.isBlank() || groupId.isBlank() || meterRegistry == null) {
+            logger.info("[KAFKA-LOG-STARTER] Consumer lag monitor disabled (enabled: {}, group: {})",
+                    enabled, groupId);
+            return;
+        }
+        Properties properties = new Properties();
+        properties.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        properties.put(AdminClientConfig.CLIENT_ID_CONFIG, "pixel-lag-monitor-" + groupId);
+        properties.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, (int) TIMEOUT_MS);
+        admin = Admin.create(properties);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kafka-consumer-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Last lag read per partition, keyed {@code topic-partition}
+     */
+    public Map<String, Long> getLags() {
+        Map<String, Long> snapshot = new HashMap<>();
+        lags.forEach((partition, lag) -> snapshot.put(partition.toString(), lag.get()));
+        return snapshot;
+    }
+
+    void refresh() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed =
+                    admin.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata()
+                            .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+            committed.keySet().forEach(partition -> request.put(partition, OffsetSpec.latest()));
+            Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            for (Map.Entry<TopicPartition, ListOffsetsResultInfo> entry : admin.listOffsets(request)
+                    .all().get(TIMEOUT_MS, TimeUnit.MILLISECONDS).entrySet()) {
+                endOffsets.put(entry.getKey(), entry.getValue().offset());
+            }
+            lags(committed, endOffsets).forEach((partition, lag) -> gauge(partition).set(lag));
+        } catch (Exception e) {
+            logger.warn("[KAFKA-LOG-STARTER] Consumer lag of group {} not refreshed: {}", groupId,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Lag of each committed partition whose end offset is known
+     */
+    static Map<TopicPartition, Long> lags(Map<TopicPartition, OffsetAndMetadata> committed,
+            Map<TopicPartition, Long> endOffsets) {
+        Map<TopicPartition, Long> lags = new HashMap<>();
+        committed.forEach((partition, offset) -> {
+            Long endOffset = endOffsets.get(partition);
+            if (offset != null && endOffset != null) {
+                lags.put(partition, Math.max(0, endOffset - offset.offset()));
+            }
+        });
+        return lags;
+    }
+
+    private AtomicLong gauge(TopicPartition partition) {
+        return lags.computeIfAbsent(partition, key -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder("pixel.kafka.consumer.lag", lag, AtomicLong::get)
+                    .description("Records of the partition not yet committed by the group")
+                    .tag("group", groupId).tag("topic", key.topic())
+                    .tag("partition", String.valueOf(key.partition())).register(meterRegistry);
+            return lag;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (admin != null) {
+            admin.close(Duration.ofSeconds(5));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.pixel.v2.kafka.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for KafkaConsumerLagMonitor
+ */
+class KafkaConsumerLagMonitorTest {
+
+    @Test
+    @DisplayName("Should compute the lag of each committed partition with a known end offset")
+    void testLags() {
+        TopicPartition first = new TopicPartition("ICHSIC-log-event-topic", 0);
+        TopicPartition second = new TopicPartition("ICHSIC-log-event-topic", 1);
+        TopicPartition unknown = new TopicPartition("ICHSIC-log-event-topic", 2);
+        Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+        committed.put(first, new OffsetAndMetadata(40));
+        committed.put(second, new OffsetAndMetadata(120));
+        committed.put(unknown, new OffsetAndMetadata(7));
+        committed.put(new TopicPartition("ICHSIC-log-event-topic", 3), null);
+
+        Map<TopicPartition, Long> lags = KafkaConsumerLagMonitor.lags(committed,
+                Map.of(first, 100L, second, 110L));
+
+        assertEquals(Map.of(first, 60L, second, 0L), lags);
+    }
+}
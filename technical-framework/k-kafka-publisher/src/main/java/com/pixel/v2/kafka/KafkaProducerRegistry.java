@@ -0,0 +1,338 @@
+package com.pixel.v2.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Shared Kafka producers for the PIXEL kamelets.
+ *
+ * Every kamelet that sends to Kafka (k-kafka-publisher, k-kafka-log-publisher, k-log-flow-summary
+ * and the k-log-events async publisher) goes through this registry instead of declaring its own
+ * {@code kafka:} endpoint, so a JVM holds one producer, one connection set and one buffer pool per
+ * broker set and delivery profile (acks, idempotence and the kamelet {@link ProducerOverrides}).
+ * Producers are tuned for batching (linger, batch size, compression, in-flight requests) and export
+ * their buffer-pool and batch metrics to Micrometer when a registry exists.
+ */
+@Component("kafkaProducerRegistry")
+public class KafkaProducerRegistry implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaProducerRegistry.class);
+
+    /** Producer metrics exported per producer, as (Kafka metric name, Micrometer name) */
+    private static final String[][] EXPORTED_METRICS = {
+            {"buffer-available-bytes", "pixel.kafka.producer.buffer.available"},
+            {"buffer-total-bytes", "pixel.kafka.producer.buffer.total"},
+            {"bufferpool-wait-ratio", "pixel.kafka.producer.bufferpool.wait.ratio"},
+            {"batch-size-avg", "pixel.kafka.producer.batch.size.avg"},
+            {"records-per-request-avg", "pixel.kafka.producer.records.per.request.avg"},
+            {"compression-rate-avg", "pixel.kafka.producer.compression.rate.avg"},
+            {"record-queue-time-avg", "pixel.kafka.producer.record.queue.time.avg"},
+            {"record-error-rate", "pixel.kafka.producer.record.error.rate"}};
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+    private final int maxInFlight;
+    private final long bufferMemory;
+    private final String defaultAcks;
+    private final int requestTimeoutMs;
+    private final int retries;
+    private final long maxBlockMs;
+
+    private final Map<ProducerKey, Producer<String, String>> producers = new ConcurrentHashMap<>();
+
+    public KafkaProducerRegistry(ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${pixel.kafka.producer.linger-ms:5}") int lingerMs,
+            @Value("${pixel.kafka.producer.batch-size:65536}") int batchSize,
+            @Value("${pixel.kafka.producer.compression-type:lz4}") String compressionType,
+            @Value("${pixel.kafka.producer.max-in-flight:5}") int maxInFlight,
+            @Value("${pixel.kafka.producer.buffer-memory:33554432}") long bufferMemory,
+            @Value("${pixel.kafka.producer.acks:1}") String defaultAcks,
+            @Value("${pixel.kafka.producer.request-timeout-ms:5000}") int requestTimeoutMs,
+            @Value("${pixel.kafka.producer.retries:3}") int retries,
+            @Value("${pixel.kafka.producer.max-block-ms:5000}") long maxBlockMs) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+        this.maxInFlight = maxInFlight;
+        this.bufferMemory = bufferMemory;
+        this.defaultAcks = defaultAcks;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.retries = retries;
+        this.maxBlockMs = maxBlockMs;
+    }
+
+    /**
+     * Sends a record and waits for its acknowledgement, like a synchronous {@code kafka:} endpoint.
+     * Used by the kamelets through {@code bean:kafkaProducerRegistry?method=send(...)}.
+     */
+    public RecordMetadata send(String topic, String brokers, String key, String value,
+            String acks, boolean idempotence) {
+        return send(new ProducerRecord<>(topic, emptyToNull(key), value), brokers, acks,
+                idempotence);
+    }
+
+    /**
+     * Sends a prepared record (e.g. carrying Kafka headers) and waits for its acknowledgement
+     */
+    public RecordMetadata send(ProducerRecord<String, String> record, String brokers, String acks,
+            boolean idempotence) {
+        return send(record, brokers, acks, idempotence, ProducerOverrides.NONE);
+    }
+
+    /**
+     * Sends a prepared record through the producer with the given overrides and waits for its
+     * acknowledgement
+     */
+    public RecordMetadata send(ProducerRecord<String, String> record, String brokers, String acks,
+            boolean idempotence, ProducerOverrides overrides) {
+        try {
+            return producerFor(brokers, acks, idempotence, overrides).send(record).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while sending to " + record.topic(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KafkaException kafkaException) {
+                throw kafkaException;
+            }
+            throw new KafkaException("Failed to send to " + record.topic(), cause);
+        }
+    }
+
+    /**
+     * Sends a record with the default delivery profile without waiting for the acknowledgement
+     */
+    public Future<RecordMetadata> sendAsync(ProducerRecord<String, String> record, String brokers,
+            Callback callback) {
+        return producerFor(brokers).send(record, callback);
+    }
+
+    /**
+     * Producer of a broker set with the default delivery profile
+     */
+    public Producer<String, String> producerFor(String brokers) {
+        return producerFor(brokers, defaultAcks, false);
+    }
+
+    public Producer<String, String> producerFor(String brokers, String acks,
+            boolean idempotence) {
+        return producerFor(brokers, acks, idempotence, ProducerOverrides.NONE);
+    }
+
+    public Producer<String, String> producerFor(String brokers, String acks, boolean idempotence,
+            ProducerOverrides overrides) {
+        // The idempotent producer requires acks=all
+        String effectiveAcks = idempotence ? "all"
+                : acks == null || acks.isBlank() ? defaultAcks : acks;
+        // Overrides equal to the shared settings keep the shared producer
+        ProducerOverrides effectiveOverrides = overrides == null ? ProducerOverrides.NONE
+                : overrides.relativeTo(requestTimeoutMs, retries);
+        return producers.computeIfAbsent(
+                new ProducerKey(brokers, effectiveAcks, idempotence, effectiveOverrides), key -> {
+                    Producer<String, String> producer = createProducer(producerProperties(key));
+                    registerMetrics(key, producer);
+                    logger.info("[K-KAFKA-PUBLISHER] Created shared Kafka producer - brokers: {}, acks: {}, idempotence: {}, overrides: {}",
+                            key.brokers(), key.acks(), key.idempotence(), key.overrides());
+                    return producer;
+                });
+    }
+
+    public void flush() {
+        producers.values().forEach(Producer::flush);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("producers", producers.size());
+        producers.forEach((key, producer) -> {
+            Map<String, Object> producerStats = new HashMap<>();
+            for (String[] metric : EXPORTED_METRICS) {
+                producerStats.put(metric[0], metricValue(producer, metric[0]));
+            }
+            stats.put(key.clientId(), producerStats);
+        });
+        return stats;
+    }
+
+    Properties producerProperties(ProducerKey key) {
+        ProducerOverrides overrides = key.overrides();
+        int effectiveRequestTimeoutMs = overrides.requestTimeoutMs() != null
+                ? overrides.requestTimeoutMs() : requestTimeoutMs;
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, key.brokers());
+        properties.put(ProducerConfig.CLIENT_ID_CONFIG, key.clientId());
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.ACKS_CONFIG, key.acks());
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, key.idempotence());
+        properties.put(ProducerConfig.RETRIES_CONFIG,
+                overrides.retries() != null ? overrides.retries() : retries);
+        properties.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, effectiveRequestTimeoutMs);
+        properties.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG,
+                Math.max(120_000, lingerMs + effectiveRequestTimeoutMs));
+        if (overrides.connectionMaxIdleMs() != null) {
+            properties.put(ProducerConfig.CONNECTIONS_MAX_IDLE_MS_CONFIG,
+                    overrides.connectionMaxIdleMs().longValue());
+        }
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        properties.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+        // A full buffer fails the send quickly, so callers can journal the record
+        properties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        // The idempotent producer keeps ordering with up to 5 in-flight requests
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION,
+                key.idempotence() ? Math.min(maxInFlight, 5) : maxInFlight);
+        return properties;
+    }
+
+    protected Producer<String, String> createProducer(Properties properties) {
+        return new KafkaProducer<>(properties);
+    }
+
+    private void registerMetrics(ProducerKey key, Producer<String, String> producer) {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Tags tags = Tags.of("client", key.clientId());
+        for (String[] metric : EXPORTED_METRICS) {
+            String kafkaName = metric[0];
+            Gauge.builder(metric[1], producer, p -> metricValue(p, kafkaName)).tags(tags)
+                    .register(registry);
+        }
+    }
+
+    static double metricValue(Producer<String, String> producer, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : producer.metrics().entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (name.equals(metricName.name())
+                    && PRODUCER_METRICS_GROUP.equals(metricName.group())) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number number ? number.doubleValue() : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Flushes and closes every producer
+     */
+    @Override
+    public void destroy() {
+        producers.forEach((key, producer) -> {
+            try {
+                producer.flush();
+                producer.close();
+            } catch (Exception e) {
+                logger.warn("[K-KAFKA-PUBLISHER] Failed to close Kafka producer {}: {}",
+                        key.clientId(), e.getMessage());
+            }
+        });
+        producers.clear();
+    }
+
+    /**
+     * One producer per broker set and delivery profile
+     */
+    record ProducerKey(String brokers, String acks, boolean idempotence,
+            ProducerOverrides overrides) {
+
+        String clientId() {
+            return "pixel-" + brokers.replaceAll("[^A-Za-z0-9.-]", "_") + "-acks" + acks
+                    + (idempotence ? "-idempotent" : "") + overrides.clientIdSuffix();
+        }
+    }
+
+    /**
+     * Producer settings passed as kamelet parameters (requestTimeoutMs, connectionMaxIdleMs,
+     * retries). A null value keeps the shared pixel.kafka.producer.* setting; a producer with
+     * overrides is shared by every kamelet passing the same values.
+     */
+    public record ProducerOverrides(Integer requestTimeoutMs, Integer connectionMaxIdleMs,
+            Integer retries) {
+
+        public static final ProducerOverrides NONE = new ProducerOverrides(null, null, null);
+
+        /**
+         * Overrides from the kamelet parameters, blank meaning not set. The serializers are
+         * checked only: records are built as strings, so only StringSerializer is supported.
+         */
+        public static ProducerOverrides of(String keySerializer, String valueSerializer,
+                String requestTimeoutMs, String connectionMaxIdleMs, String retries) {
+            checkSerializer("keySerializer", keySerializer);
+            checkSerializer("valueSerializer", valueSerializer);
+            return new ProducerOverrides(parse("requestTimeoutMs", requestTimeoutMs),
+                    parse("connectionMaxIdleMs", connectionMaxIdleMs), parse("retries", retries));
+        }
+
+        ProducerOverrides relativeTo(int sharedRequestTimeoutMs, int sharedRetries) {
+            ProducerOverrides relative = new ProducerOverrides(
+                    Integer.valueOf(sharedRequestTimeoutMs).equals(requestTimeoutMs) ? null
+                            : requestTimeoutMs,
+                    connectionMaxIdleMs,
+                    Integer.valueOf(sharedRetries).equals(retries) ? null : retries);
+            return NONE.equals(relative) ? NONE : relative;
+        }
+
+        String clientIdSuffix() {
+            return (requestTimeoutMs != null ? "-rt" + requestTimeoutMs : "")
+                    + (connectionMaxIdleMs != null ? "-idle" + connectionMaxIdleMs : "")
+                    + (retries != null ? "-retries" + retries : "");
+        }
+
+        private static Integer parse(String name, String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be an integer: " + value, e);
+            }
+        }
+
+        private static void checkSerializer(String name, String serializer) {
+            if (serializer != null && !serializer.isBlank()
+                    && !StringSerializer.class.getName().equals(serializer.trim())) {
+                throw new IllegalArgumentException(name + " " + serializer
+                        + " is not supported: the shared producers only use "
+                        + StringSerializer.class.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.pixel.v2.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the Kafka record of an exchange for k-kafka-publisher and k-kafka-log-publisher.
+ *
+ * The record takes the body as value, the {@code kafka.KEY} header as key and only the whitelisted
+ * exchange headers as Kafka headers. The exchange is read, never modified: its headers and body are
+ * the same after the send, so the kamelets no longer save, strip and restore every header around
+ * the Kafka call.
+ */
+@Component("kafkaRecordPublisher")
+public class KafkaRecordPublisher {
+
+    /** Header holding the record key, as for the Camel Kafka component */
+    public static final String KEY_HEADER = "kafka.KEY";
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaRecordPublisher.class);
+
+    private final KafkaProducerRegistry kafkaProducerRegistry;
+
+    // The whitelist is a kamelet parameter: parsed once per distinct value
+    private final Map<String, String[]> whitelists = new ConcurrentHashMap<>();
+
+    public KafkaRecordPublisher(KafkaProducerRegistry kafkaProducerRegistry) {
+        this.kafkaProducerRegistry = kafkaProducerRegistry;
+    }
+
+    /**
+     * Sends the exchange body and waits for the acknowledgement
+     *
+     * @param exchange the exchange to publish
+     * @param topic Kafka topic
+     * @param brokers Kafka brokers
+     * @param acks acknowledgements required (0, 1, all)
+     * @param idempotence whether to use the idempotent producer
+     * @param headers comma-separated names of the exchange headers sent as Kafka headers
+     */
+    public void publish(Exchange exchange, String topic, String brokers, String acks,
+            boolean idempotence, String headers) {
+        publish(exchange, topic, brokers, acks, idempotence, headers,
+                KafkaProducerRegistry.ProducerOverrides.NONE);
+    }
+
+    /**
+     * Sends the exchange body through the producer configured by the kamelet producer
+     * parameters and waits for the acknowledgement
+     *
+     * @param keySerializer key serializer class (only StringSerializer is supported)
+     * @param valueSerializer value serializer class (only StringSerializer is supported)
+     * @param requestTimeoutMs request timeout override, blank for the shared setting
+     * @param connectionMaxIdleMs idle connection timeout override, blank for the Kafka default
+     * @param retries retries override, blank for the shared setting
+     */
+    public void publish(Exchange exchange, String topic, String brokers, String acks,
+            boolean idempotence, String headers, String keySerializer, String valueSerializer,
+            String requestTimeoutMs, String connectionMaxIdleMs, String retries) {
+        publish(exchange, topic, brokers, acks, idempotence, headers,
+                KafkaProducerRegistry.ProducerOverrides.of(keySerializer, valueSerializer,
+                        requestTimeoutMs, connectionMaxIdleMs, retries));
+    }
+
+    private void publish(Exchange exchange, String topic, String brokers, String acks,
+            boolean idempotence, String headers,
+            KafkaProducerRegistry.ProducerOverrides overrides) {
+        ProducerRecord<String, String> record = toRecord(exchange, topic, headers);
+        kafkaProducerRegistry.send(record, brokers, acks, idempotence, overrides);
+        if (logger.isDebugEnabled()) {
+            logger.debug("[K-KAFKA-PUBLISHER] Published record to topic: {}, key: {}, headers: {}",
+                    topic, record.key(), record.headers().toArray().length);
+        }
+    }
+
+    ProducerRecord<String, String> toRecord(Exchange exchange, String topic, String headers) {
+        Message in = exchange.getIn();
+        return new ProducerRecord<>(topic, null,
+                KafkaProducerRegistry.emptyToNull(in.getHeader(KEY_HEADER, String.class)),
+                in.getBody(String.class), kafkaHeaders(in, headers));
+    }
+
+    private List<Header> kafkaHeaders(Message in, String headers) {
+        if (headers == null || headers.isBlank()) {
+            return null;
+        }
+        String[] names = whitelists.computeIfAbsent(headers, KafkaRecordPublisher::parseWhitelist);
+        List<Header> kafkaHeaders = new ArrayList<>(names.length);
+        for (String name : names) {
+            byte[] value = headerValue(in.getHeader(name));
+            if (value != null) {
+                kafkaHeaders.add(new RecordHeader(name, value));
+            }
+        }
+        return kafkaHeaders;
+    }
+
+    static String[] parseWhitelist(String headers) {
+        List<String> names = new ArrayList<>();
+        for (String name : headers.split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Kafka header bytes of a header value, null to skip the header
+     */
+    static byte[] headerValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
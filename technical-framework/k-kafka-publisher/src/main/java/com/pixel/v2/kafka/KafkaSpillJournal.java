@@ -0,0 +1,604 @@
+package com.pixel.v2.kafka;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.ApiException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Local journal for Kafka-bound audit records (log events, error events, flow summaries) that
+ * could not be handed to the producer.
+ *
+ * The journal is a directory of memory-mapped, append-only segments. Records are handed off to a
+ * single append thread, so neither the callers nor the producer I/O thread (send callbacks) ever
+ * write, roll or force a segment. A record is written as length-prefixed UTF-8 fields; its length
+ * is written last, so a record is visible to the replayer only once complete and a crash
+ * mid-write leaves the previous records intact. A single background thread replays the records
+ * to Kafka in append order, waits for the acknowledgements, then stores the replayed offset in
+ * the segment header and deletes the segment once read. While records are pending, new records go
+ * to the journal too, so a flow's records reach Kafka in order after an outage. A record is sent
+ * at least once: a failure in the middle of a replay batch sends the rest of the batch again.
+ *
+ * Records Kafka refuses for good (too large, not authorized, invalid topic: non-retriable
+ * {@link ApiException}s) are logged and skipped instead of journaled or replayed, and a record
+ * that still fails after {@code max-replay-attempts} replays is skipped too, so one bad record
+ * cannot hold the journal, and every record queued behind it, forever.
+ *
+ * Segment layout: an 8-byte header holding the replayed offset, then records
+ * {@code [int length][topic][brokers][key][value]}, each field an int byte count (-1 for null)
+ * followed by the bytes. A length of -1 seals the segment, 0 marks the end of the written data.
+ */
+@Component("kafkaSpillJournal")
+public class KafkaSpillJournal implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaSpillJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = Long.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+
+    private final KafkaProducerRegistry kafkaProducerRegistry;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long replayIntervalMs;
+    private final int replayBatchSize;
+    private final int maxReplayAttempts;
+    private final int handOffCapacity;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment writeSegment;
+    private boolean closed;
+
+    private final AtomicLong pendingRecords = new AtomicLong();
+    // Records handed off to the append thread and not yet appended
+    private final AtomicLong handedOff = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private ExecutorService appender;
+    private ScheduledExecutorService replayer;
+    // Failed replays of the first pending record; replayer thread only
+    private int failedAttempts;
+
+    public KafkaSpillJournal(KafkaProducerRegistry kafkaProducerRegistry,
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${pixel.kafka.journal.enabled:true}") boolean enabled,
+            @Value("${pixel.kafka.journal.directory:${java.io.tmpdir}/pixel-kafka-journal}") String directory,
+            @Value("${pixel.kafka.journal.segment-size:67108864}") int segmentSize,
+            @Value("${pixel.kafka.journal.replay-interval-ms:1000}") long replayIntervalMs,
+            @Value("${pixel.kafka.journal.replay-batch-size:500}") int replayBatchSize,
+            @Value("${pixel.kafka.journal.max-replay-attempts:3600}") int maxReplayAttempts,
+            @Value("${pixel.kafka.journal.hand-off-capacity:65536}") int handOffCapacity) {
+        this.kafkaProducerRegistry = kafkaProducerRegistry;
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.replayIntervalMs = replayIntervalMs;
+        this.replayBatchSize = Math.max(1, replayBatchSize);
+        this.maxReplayAttempts = Math.max(1, maxReplayAttempts);
+        this.handOffCapacity = Math.max(1, handOffCapacity);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        registerMetrics();
+        if (!enabled) {
+            logger.info("[K-KAFKA-PUBLISHER] Kafka spill journal disabled");
+            return;
+        }
+        Files.createDirectories(directory);
+        recover();
+        appender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(handOffCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pixel-kafka-journal-append");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        replayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pixel-kafka-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs,
+                TimeUnit.MILLISECONDS);
+        logger.info("[K-KAFKA-PUBLISHER] Kafka spill journal started - directory: {}, pending records: {}",
+                directory, pendingRecords.get());
+    }
+
+    /**
+     * Sends a record without waiting for the acknowledgement. The record goes to the journal when
+     * records are already pending, when the producer rejects it (buffer full, closed) or when the
+     * send fails with a retriable error. Used by the kamelets through
+     * {@code bean:kafkaSpillJournal?method=send(...)}.
+     */
+    public void send(String topic, String brokers, String key, String value) {
+        if (hasPending()) {
+            spill(topic, brokers, key, value);
+            return;
+        }
+        try {
+            kafkaProducerRegistry.sendAsync(
+                    new ProducerRecord<>(topic, KafkaProducerRegistry.emptyToNull(key), value),
+                    brokers, (metadata, exception) -> {
+                        if (exception != null) {
+                            spill(topic, brokers, key, value, exception);
+                        }
+                    });
+        } catch (Exception e) {
+            logger.warn("[K-KAFKA-PUBLISHER] Kafka send to {} rejected, journaling: {}", topic,
+                    e.getMessage());
+            spill(topic, brokers, key, value, e);
+        }
+    }
+
+    /**
+     * Journals a record whose send failed, unless Kafka refused it for good. Safe to call from a
+     * producer callback. Returns false when the record is rejected or lost.
+     */
+    public boolean spill(String topic, String brokers, String key, String value,
+            Exception failure) {
+        if (failure != null && !isRetriable(failure)) {
+            reject(topic, key, value, failure);
+            return false;
+        }
+        return spill(topic, brokers, key, value);
+    }
+
+    /**
+     * Hands a record off to the append thread for replay. Returns false when the record is lost
+     * (journal disabled or closed, hand-off queue full); a later append failure is counted as lost
+     * too.
+     */
+    public boolean spill(String topic, String brokers, String key, String value) {
+        if (!enabled) {
+            lost.increment();
+            logger.warn("[K-KAFKA-PUBLISHER] Kafka record to {} lost (journal disabled)", topic);
+            return false;
+        }
+        handedOff.incrementAndGet();
+        try {
+            appender.execute(() -> {
+                try {
+                    append(topic, brokers, key, value);
+                } catch (IOException | RuntimeException e) {
+                    lost.increment();
+                    logger.error(
+                            "[K-KAFKA-PUBLISHER] Kafka record to {} lost, journal append failed: {}",
+                            topic, e.getMessage());
+                } finally {
+                    handedOff.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            handedOff.decrementAndGet();
+            lost.increment();
+            logger.error("[K-KAFKA-PUBLISHER] Kafka record to {} lost, journal {}", topic,
+                    appender.isShutdown() ? "closed" : "hand-off queue full");
+            return false;
+        }
+    }
+
+    /**
+     * Whether records wait for replay; new records must then queue behind them
+     */
+    public boolean hasPending() {
+        return pendingRecords.get() > 0 || handedOff.get() > 0;
+    }
+
+    /**
+     * Whether a failed send may succeed later. Only non-retriable {@link ApiException}s (record
+     * too large, authorization, invalid topic) are final; timeouts, a closed producer or an
+     * interrupted send are worth journaling.
+     */
+    static boolean isRetriable(Throwable failure) {
+        return !(failure instanceof ApiException) || failure instanceof RetriableException;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pendingRecords", pendingRecords.get());
+        stats.put("pendingBytes", pendingBytes.get());
+        stats.put("appended", appended.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("lost", lost.sum());
+        stats.put("rejected", rejected.sum());
+        synchronized (lock) {
+            stats.put("segments", segments.size());
+        }
+        return stats;
+    }
+
+    void append(String topic, String brokers, String key, String value) throws IOException {
+        byte[][] fields = {bytes(topic), bytes(brokers), bytes(key), bytes(value)};
+        int length = 0;
+        for (byte[] field : fields) {
+            length += Integer.BYTES + (field != null ? field.length : 0);
+        }
+        int recordBytes = Integer.BYTES + length;
+        if (HEADER_BYTES + recordBytes + Integer.BYTES > segmentSize) {
+            throw new IOException(
+                    "Record of " + recordBytes + " bytes exceeds the journal segment size");
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Journal closed");
+            }
+            Segment segment = writeSegment;
+            // Keep room for the seal marker
+            if (segment == null
+                    || segment.writePosition + recordBytes + Integer.BYTES > segmentSize) {
+                segment = roll();
+            }
+            MappedByteBuffer buffer = segment.buffer;
+            int position = segment.writePosition;
+            buffer.position(position + Integer.BYTES);
+            for (byte[] field : fields) {
+                if (field == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(field.length);
+                    buffer.put(field);
+                }
+            }
+            // Written last: the record becomes visible complete
+            buffer.putInt(position, length);
+            segment.writePosition = position + recordBytes;
+            pendingRecords.incrementAndGet();
+            pendingBytes.addAndGet(recordBytes);
+        }
+        appended.increment();
+    }
+
+    /**
+     * Replays pending records in append order until the journal is empty or a send fails with a
+     * retriable error
+     */
+    void replay() {
+        try {
+            while (hasPending()) {
+                Segment segment;
+                int limit;
+                boolean sealed;
+                synchronized (lock) {
+                    if (closed || segments.isEmpty()) {
+                        return;
+                    }
+                    segment = segments.firstEntry().getValue();
+                    limit = segment.writePosition;
+                    sealed = segment != writeSegment;
+                }
+                List<JournalRecord> batch = read(segment, limit);
+                if (batch.isEmpty()) {
+                    if (!sealed) {
+                        return;
+                    }
+                    delete(segment);
+                    continue;
+                }
+                if (!sendAll(segment, batch)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("[K-KAFKA-PUBLISHER] Kafka journal replay error: {}", e.getMessage());
+        }
+    }
+
+    private List<JournalRecord> read(Segment segment, int limit) {
+        List<JournalRecord> batch = new ArrayList<>(Math.min(replayBatchSize, 64));
+        ByteBuffer buffer = segment.reader;
+        int position = segment.readPosition;
+        while (batch.size() < replayBatchSize && position + Integer.BYTES <= limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + Integer.BYTES + length > limit) {
+                break;
+            }
+            buffer.position(position + Integer.BYTES);
+            int end = position + Integer.BYTES + length;
+            batch.add(new JournalRecord(readField(buffer), readField(buffer), readField(buffer),
+                    readField(buffer), end));
+            position = end;
+        }
+        return batch;
+    }
+
+    /**
+     * Sends a batch and commits up to the last record acknowledged or rejected in order. Returns
+     * false when the replay must pause on a retriable failure.
+     */
+    private boolean sendAll(Segment segment, List<JournalRecord> batch) {
+        List<Future<RecordMetadata>> futures = new ArrayList<>(batch.size());
+        for (JournalRecord record : batch) {
+            try {
+                futures.add(kafkaProducerRegistry.producerFor(record.brokers())
+                        .send(new ProducerRecord<>(record.topic(),
+                                KafkaProducerRegistry.emptyToNull(record.key()), record.value())));
+            } catch (RuntimeException e) {
+                // Resolved below with the records sent before it; the rest waits for the next pass
+                futures.add(CompletableFuture.failedFuture(e));
+                break;
+            }
+        }
+        int resolved = 0;
+        int acknowledged = 0;
+        try {
+            for (Future<RecordMetadata> future : futures) {
+                JournalRecord record = batch.get(resolved);
+                try {
+                    future.get();
+                    acknowledged++;
+                } catch (ExecutionException e) {
+                    Throwable failure = e.getCause();
+                    if (isRetriable(failure) && ++failedAttempts < maxReplayAttempts) {
+                        logger.warn("[K-KAFKA-PUBLISHER] Kafka journal replay paused (attempt {}/{}), {} records pending: {}",
+                                failedAttempts, maxReplayAttempts,
+                                pendingRecords.get() - resolved, failure.getMessage());
+                        break;
+                    }
+                    reject(record.topic(), record.key(), record.value(), failure);
+                }
+                failedAttempts = 0;
+                resolved++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (resolved > 0) {
+            commit(segment, batch.get(resolved - 1).end(), resolved);
+            replayed.add(acknowledged);
+        }
+        return resolved == futures.size();
+    }
+
+    private void commit(Segment segment, int end, int records) {
+        int bytes = end - segment.readPosition;
+        segment.readPosition = end;
+        segment.buffer.putLong(0, end);
+        pendingRecords.addAndGet(-records);
+        pendingBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Skips a record Kafka refused for good, or that kept failing past the replay attempts
+     */
+    private void reject(String topic, String key, String value, Throwable failure) {
+        rejected.increment();
+        logger.error("[K-KAFKA-PUBLISHER] Kafka record to {} rejected, skipped - key: {}, length: {}, error: {}",
+                topic, key, value != null ? value.length() : 0, failure.getMessage());
+    }
+
+    private void delete(Segment segment) throws IOException {
+        synchronized (lock) {
+            segments.remove(segment.sequence);
+        }
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    /**
+     * Opens a new write segment, sealing the current one. Called under lock.
+     */
+    private Segment roll() throws IOException {
+        long sequence = 1;
+        if (writeSegment != null) {
+            writeSegment.buffer.putInt(writeSegment.writePosition, END_OF_SEGMENT);
+            writeSegment.buffer.force();
+            sequence = writeSegment.sequence + 1;
+        } else if (!segments.isEmpty()) {
+            sequence = segments.lastKey() + 1;
+        }
+        Path path = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, sequence,
+                SEGMENT_SUFFIX));
+        Segment segment = Segment.open(sequence, path, segmentSize);
+        segments.put(sequence, segment);
+        writeSegment = segment;
+        return segment;
+    }
+
+    /**
+     * Reopens the segments left by a previous run and counts their unreplayed records
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        synchronized (lock) {
+            for (Path path : paths) {
+                if (Files.size(path) <= HEADER_BYTES) {
+                    Files.delete(path);
+                    continue;
+                }
+                String name = path.getFileName().toString();
+                long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                Segment segment = Segment.open(sequence, path, (int) Files.size(path));
+                int position = segment.readPosition;
+                long records = 0;
+                while (position + Integer.BYTES <= segment.buffer.capacity()) {
+                    int length = segment.buffer.getInt(position);
+                    if (length <= 0
+                            || position + Integer.BYTES + length > segment.buffer.capacity()) {
+                        break;
+                    }
+                    position += Integer.BYTES + length;
+                    records++;
+                }
+                if (records == 0) {
+                    // Fully replayed before the restart
+                    segment.channel.close();
+                    Files.delete(path);
+                    continue;
+                }
+                segment.writePosition = position;
+                segments.put(sequence, segment);
+                pendingRecords.addAndGet(records);
+                pendingBytes.addAndGet(position - segment.readPosition);
+            }
+            // Appends always go to a fresh segment after a restart
+            if (!segments.isEmpty()) {
+                Segment last = segments.lastEntry().getValue();
+                if (last.writePosition + Integer.BYTES <= last.buffer.capacity()) {
+                    last.buffer.putInt(last.writePosition, END_OF_SEGMENT);
+                }
+            }
+        }
+    }
+
+    private void registerMetrics() {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder("pixel.kafka.journal.size", pendingBytes, AtomicLong::get)
+                .description("Bytes waiting in the Kafka spill journal").baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("pixel.kafka.journal.lag", pendingRecords, AtomicLong::get)
+                .description("Records waiting for replay to Kafka").register(registry);
+        FunctionCounter.builder("pixel.kafka.journal.appended", appended, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.kafka.journal.replayed", replayed, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.kafka.journal.lost", lost, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.kafka.journal.rejected", rejected, LongAdder::sum)
+                .description("Records Kafka refused for good, skipped").register(registry);
+    }
+
+    /**
+     * Appends the records still handed off, stops the replay and forces the segments to disk;
+     * pending records are replayed at the next start
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (appender != null) {
+            appender.shutdown();
+            appender.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        if (replayer != null) {
+            replayer.shutdown();
+            replayer.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        synchronized (lock) {
+            closed = true;
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.buffer.force();
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.warn("[K-KAFKA-PUBLISHER] Failed to close journal segment {}: {}",
+                            segment.path, e.getMessage());
+                }
+            }
+            segments.clear();
+            writeSegment = null;
+        }
+        logger.info("[K-KAFKA-PUBLISHER] Kafka spill journal stopped - {}", getStatistics());
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static String readField(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record JournalRecord(String topic, String brokers, String key, String value, int end) {
+    }
+
+    /**
+     * One mapped segment file. The appending threads use {@code buffer} under the journal lock, the
+     * replayer its own {@code reader} view.
+     */
+    private static final class Segment {
+
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final ByteBuffer reader;
+        private int writePosition;
+        private int readPosition;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.reader = buffer.duplicate();
+            long replayedOffset = buffer.getLong(0);
+            this.readPosition = (int) Math.max(HEADER_BYTES,
+                    Math.min(replayedOffset, buffer.capacity()));
+            this.writePosition = this.readPosition;
+        }
+
+        private static Segment open(long sequence, Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Segment(sequence, path, channel,
+                        channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pixel.v2.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for KafkaProducerRegistry
+ */
+class KafkaProducerRegistryTest {
+
+    private final List<Properties> created = new ArrayList<>();
+    private final List<MockProducer<String, String>> mocks = new ArrayList<>();
+
+    private final KafkaProducerRegistry registry = new KafkaProducerRegistry(
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 5, 65536,
+            "lz4", 5, 33554432L, "1", 5000, 3, 5000L) {
+        @Override
+        protected Producer<String, String> createProducer(Properties properties) {
+            created.add(properties);
+            MockProducer<String, String> producer =
+                    new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+            mocks.add(producer);
+            return producer;
+        }
+    };
+
+    @Test
+    @DisplayName("Should share one producer per broker set and delivery profile")
+    void testSharedProducers() {
+        Producer<String, String> logs = registry.producerFor("kafka:29092");
+        assertSame(logs, registry.producerFor("kafka:29092"));
+        assertSame(logs, registry.producerFor("kafka:29092", "1", false));
+        assertSame(logs, registry.producerFor("kafka:29092", "", false));
+
+        assertNotSame(logs, registry.producerFor("kafka:29092", "all", false));
+        assertNotSame(logs, registry.producerFor("other:9092"));
+        assertEquals(3, created.size());
+    }
+
+    @Test
+    @DisplayName("Should tune batching and force acks=all for idempotent producers")
+    void testProducerProperties() {
+        registry.producerFor("kafka:29092", "1", true);
+        Properties properties = created.get(0);
+
+        assertEquals("all", properties.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, properties.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals(5, properties.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(65536, properties.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", properties.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(5, properties.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION));
+        assertTrue(((String) properties.get(ProducerConfig.CLIENT_ID_CONFIG)).endsWith("-idempotent"));
+    }
+
+    @Test
+    @DisplayName("Should apply kamelet producer overrides on a producer of their own")
+    void testProducerOverrides() {
+        Producer<String, String> shared = registry.producerFor("kafka:29092");
+        KafkaProducerRegistry.ProducerOverrides defaults = KafkaProducerRegistry.ProducerOverrides
+                .of(StringSerializer.class.getName(), "", "5000", "", "3");
+        assertSame(shared, registry.producerFor("kafka:29092", "1", false, defaults));
+
+        KafkaProducerRegistry.ProducerOverrides overrides =
+                KafkaProducerRegistry.ProducerOverrides.of("", "", "10000", "60000", "0");
+        Producer<String, String> tuned = registry.producerFor("kafka:29092", "1", false, overrides);
+        assertNotSame(shared, tuned);
+        assertSame(tuned, registry.producerFor("kafka:29092", "1", false,
+                KafkaProducerRegistry.ProducerOverrides.of(null, null, "10000", "60000", "0")));
+
+        Properties properties = created.get(1);
+        assertEquals(10000, properties.get(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG));
+        assertEquals(60000L, properties.get(ProducerConfig.CONNECTIONS_MAX_IDLE_MS_CONFIG));
+        assertEquals(0, properties.get(ProducerConfig.RETRIES_CONFIG));
+        assertNull(created.get(0).get(ProducerConfig.CONNECTIONS_MAX_IDLE_MS_CONFIG));
+        assertEquals(2, created.size());
+    }
+
+    @Test
+    @DisplayName("Should reject non-string serializers and malformed overrides")
+    void testInvalidOverrides() {
+        assertThrows(IllegalArgumentException.class,
+                () -> KafkaProducerRegistry.ProducerOverrides.of(
+                        "org.apache.kafka.common.serialization.ByteArraySerializer", "", "", "",
+                        ""));
+        assertThrows(IllegalArgumentException.class,
+                () -> KafkaProducerRegistry.ProducerOverrides.of("", "", "5s", "", ""));
+    }
+
+    @Test
+    @DisplayName("Should send keyed records and wait for the acknowledgement")
+    void testSend() {
+        RecordMetadata metadata =
+                registry.send("pixel-log-events", "kafka:29092", "FLOW-1", "{}", "1", false);
+        assertEquals("pixel-log-events", metadata.topic());
+
+        registry.send("pixel-log-events", "kafka:29092", "", "{}", null, false);
+
+        MockProducer<String, String> producer = mocks.get(0);
+        assertEquals(2, producer.history().size());
+        assertEquals("FLOW-1", producer.history().get(0).key());
+        assertNull(producer.history().get(1).key());
+        assertEquals(1, created.size());
+    }
+
+    @Test
+    @DisplayName("Should report missing producer metrics as NaN and close producers on destroy")
+    void testMetricsAndDestroy() {
+        Producer<String, String> producer = registry.producerFor("kafka:29092");
+        assertTrue(Double.isNaN(KafkaProducerRegistry.metricValue(producer, "batch-size-avg")));
+        assertEquals(1, registry.getStatistics().get("producers"));
+
+        registry.destroy();
+        assertTrue(mocks.get(0).closed());
+        assertEquals(0, registry.getStatistics().get("producers"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.pixel.v2.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for KafkaRecordPublisher
+ */
+class KafkaRecordPublisherTest {
+
+    private final MockProducer<String, String> producer =
+            new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+
+    private final KafkaRecordPublisher publisher = new KafkaRecordPublisher(
+            new KafkaProducerRegistry(
+                    new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 5, 65536,
+                    "lz4", 5, 33554432L, "1", 5000, 3, 5000L) {
+                @Override
+                protected Producer<String, String> createProducer(Properties properties) {
+                    return producer;
+                }
+            });
+
+    @Test
+    @DisplayName("Should send only the whitelisted headers and leave the exchange untouched")
+    void testPublish() {
+        Exchange exchange = exchange();
+
+        publisher.publish(exchange, "pixel-payments", "kafka:29092", "1", false,
+                "FlowOccurId, CorrelationId,Missing");
+
+        ProducerRecord<String, String> record = producer.history().get(0);
+        assertEquals("pixel-payments", record.topic());
+        assertEquals("FLOW-1", record.key());
+        assertEquals("<Document/>", record.value());
+        assertEquals(2, record.headers().toArray().length);
+        assertArrayEquals("FLOW-1".getBytes(StandardCharsets.UTF_8),
+                record.headers().lastHeader("FlowOccurId").value());
+        assertNull(record.headers().lastHeader("FlowCode"));
+
+        assertEquals("<Document/>", exchange.getIn().getBody());
+        assertEquals("ICHSIC", exchange.getIn().getHeader("FlowCode"));
+        assertEquals(4, exchange.getIn().getHeaders().size());
+    }
+
+    @Test
+    @DisplayName("Should send no header by default and no key when kafka.KEY is absent")
+    void testDefaults() {
+        Exchange exchange = exchange();
+        exchange.getIn().removeHeader(KafkaRecordPublisher.KEY_HEADER);
+
+        ProducerRecord<String, String> record =
+                publisher.toRecord(exchange, "pixel-log-events", "");
+        assertNull(record.key());
+        assertEquals(0, record.headers().toArray().length);
+    }
+
+    @Test
+    @DisplayName("Should convert header values to Kafka header bytes")
+    void testHeaderValue() {
+        assertNull(KafkaRecordPublisher.headerValue(null));
+        assertArrayEquals(new byte[] {1, 2}, KafkaRecordPublisher.headerValue(new byte[] {1, 2}));
+        assertArrayEquals("42".getBytes(StandardCharsets.UTF_8),
+                KafkaRecordPublisher.headerValue(42));
+        assertArrayEquals(new String[] {"A", "B"}, KafkaRecordPublisher.parseWhitelist(" A,,B "));
+    }
+
+    private static Exchange exchange() {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setBody("<Document/>");
+        exchange.getIn().setHeader(KafkaRecordPublisher.KEY_HEADER, "FLOW-1");
+        exchange.getIn().setHeader("FlowOccurId", "FLOW-1");
+        exchange.getIn().setHeader("FlowCode", "ICHSIC");
+        exchange.getIn().setHeader("CorrelationId", "CORR-1");
+        return exchange;
+    }
+}
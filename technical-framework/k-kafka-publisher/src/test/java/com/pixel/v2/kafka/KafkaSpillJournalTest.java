@@ -0,0 +1,255 @@
+package com.pixel.v2.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for KafkaSpillJournal
+ */
+class KafkaSpillJournalTest {
+
+    private static final String BROKERS = "kafka:29092";
+    private static final long NO_SCHEDULED_REPLAY = 3_600_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should replay journaled records in order and delete read segments")
+    void testReplayInOrder() throws Exception {
+        MockProducer<String, String> producer = producer(true);
+        KafkaSpillJournal journal = journal(producer, 256);
+
+        for (int i = 0; i < 10; i++) {
+            journal.append("pixel-log-events", BROKERS, "FLOW-" + i,
+                    "{\"txt\":\"event " + i + "\"}");
+        }
+        journal.append("pixel-flow-summary", BROKERS, null, "{}");
+        assertEquals(11L, journal.getStatistics().get("pendingRecords"));
+        assertTrue((int) journal.getStatistics().get("segments") > 1);
+
+        journal.replay();
+
+        List<ProducerRecord<String, String>> sent = producer.history();
+        assertEquals(11, sent.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("FLOW-" + i, sent.get(i).key());
+        }
+        assertEquals("pixel-flow-summary", sent.get(10).topic());
+        assertNull(sent.get(10).key());
+        assertFalse(journal.hasPending());
+        assertEquals(0L, journal.getStatistics().get("pendingBytes"));
+        assertEquals(1, journal.getStatistics().get("segments"));
+        journal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should journal failed sends and queue new records behind them")
+    void testSendFailure() throws Exception {
+        MockProducer<String, String> producer = producer(false);
+        KafkaSpillJournal journal = journal(producer, 1 << 16);
+
+        journal.send("pixel-log-events", BROKERS, "FLOW-1", "first");
+        producer.errorNext(new TimeoutException("broker down"));
+        assertTrue(journal.hasPending());
+
+        journal.send("pixel-log-events", BROKERS, "FLOW-2", "second");
+        assertEquals(1, producer.history().size());
+        awaitPendingRecords(journal, 2L);
+
+        producer.clear();
+        Thread replay = new Thread(journal::replay);
+        replay.start();
+        while (producer.history().size() < 2 && replay.isAlive()) {
+            Thread.sleep(5);
+        }
+        while (producer.completeNext()) {
+            // acknowledge the replayed batch
+        }
+        replay.join(5_000);
+
+        assertEquals("first", producer.history().get(0).value());
+        assertEquals("second", producer.history().get(1).value());
+        assertFalse(journal.hasPending());
+        journal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should skip a failed send Kafka refuses for good instead of journaling it")
+    void testNonRetriableSendFailure() throws Exception {
+        MockProducer<String, String> producer = producer(false);
+        KafkaSpillJournal journal = journal(producer, 1 << 16);
+
+        journal.send("pixel-log-events", BROKERS, "FLOW-1", "oversized");
+        producer.errorNext(new RecordTooLargeException("record too large"));
+
+        assertFalse(journal.hasPending());
+        assertEquals(1L, journal.getStatistics().get("rejected"));
+        assertEquals(0L, journal.getStatistics().get("appended"));
+        journal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should skip a journaled record Kafka refuses for good and replay the next ones")
+    void testReplaySkipsRejectedRecord() throws Exception {
+        MockProducer<String, String> producer =
+                failing("pixel-oversized", new RecordTooLargeException("record too large"));
+        KafkaSpillJournal journal = journal(producer, 1 << 16);
+        journal.append("pixel-log-events", BROKERS, "FLOW-1", "one");
+        journal.append("pixel-oversized", BROKERS, "FLOW-2", "two");
+        journal.append("pixel-log-events", BROKERS, "FLOW-3", "three");
+
+        journal.replay();
+
+        assertEquals(List.of("one", "three"),
+                producer.history().stream().map(ProducerRecord::value).toList());
+        assertFalse(journal.hasPending());
+        assertEquals(2L, journal.getStatistics().get("replayed"));
+        assertEquals(1L, journal.getStatistics().get("rejected"));
+        journal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should skip a record still failing after the replay attempts")
+    void testReplayAttemptsBounded() throws Exception {
+        MockProducer<String, String> producer =
+                failing("pixel-unknown", new TimeoutException("no leader"));
+        KafkaSpillJournal journal = journal(producer, 1 << 16, 3);
+        journal.append("pixel-unknown", BROKERS, "FLOW-1", "stuck");
+        journal.append("pixel-log-events", BROKERS, "FLOW-2", "next");
+
+        journal.replay();
+        journal.replay();
+        assertEquals(2L, journal.getStatistics().get("pendingRecords"));
+        assertEquals(0L, journal.getStatistics().get("rejected"));
+
+        journal.replay();
+        assertFalse(journal.hasPending());
+        assertEquals(1L, journal.getStatistics().get("rejected"));
+        assertEquals(1L, journal.getStatistics().get("replayed"));
+        journal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should keep unreplayed records across a restart")
+    void testRecovery() throws Exception {
+        KafkaSpillJournal journal = journal(producer(true), 1 << 16);
+        journal.append("pixel-log-events", BROKERS, "FLOW-1", "one");
+        journal.append("pixel-log-events", BROKERS, "FLOW-2", "two");
+        journal.destroy();
+
+        MockProducer<String, String> producer = producer(true);
+        KafkaSpillJournal restarted = journal(producer, 1 << 16);
+        assertEquals(2L, restarted.getStatistics().get("pendingRecords"));
+        restarted.append("pixel-log-events", BROKERS, "FLOW-3", "three");
+
+        restarted.replay();
+        assertEquals(List.of("one", "two", "three"),
+                producer.history().stream().map(ProducerRecord::value).toList());
+        restarted.destroy();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        KafkaSpillJournal empty = journal(producer(true), 1 << 16);
+        assertFalse(empty.hasPending());
+        empty.destroy();
+    }
+
+    @Test
+    @DisplayName("Should count records as lost when the journal is disabled")
+    void testDisabled() throws Exception {
+        KafkaSpillJournal journal = new KafkaSpillJournal(registry(producer(true)),
+                meterRegistryProvider(), false, directory.toString(), 1 << 16,
+                NO_SCHEDULED_REPLAY, 500, 3600, 1024);
+        journal.afterPropertiesSet();
+        assertFalse(journal.spill("pixel-log-events", BROKERS, "FLOW-1", "{}"));
+        assertEquals(1L, journal.getStatistics().get("lost"));
+        journal.destroy();
+    }
+
+    private KafkaSpillJournal journal(MockProducer<String, String> producer, int segmentSize)
+            throws Exception {
+        return journal(producer, segmentSize, 3600);
+    }
+
+    private KafkaSpillJournal journal(MockProducer<String, String> producer, int segmentSize,
+            int maxReplayAttempts) throws Exception {
+        KafkaSpillJournal journal = new KafkaSpillJournal(registry(producer),
+                meterRegistryProvider(), true, directory.toString(), segmentSize,
+                NO_SCHEDULED_REPLAY, 500, maxReplayAttempts, 1024);
+        journal.afterPropertiesSet();
+        return journal;
+    }
+
+    private static void awaitPendingRecords(KafkaSpillJournal journal, long expected)
+            throws InterruptedException {
+        // Appends run on the journal's own thread
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Long.valueOf(expected).equals(journal.getStatistics().get("pendingRecords"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, journal.getStatistics().get("pendingRecords"));
+    }
+
+    private static MockProducer<String, String> producer(boolean autoComplete) {
+        return new MockProducer<>(autoComplete, new StringSerializer(), new StringSerializer());
+    }
+
+    /**
+     * Auto-completing producer whose sends to one topic fail with the given exception
+     */
+    private static MockProducer<String, String> failing(String topic, RuntimeException failure) {
+        return new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record,
+                    Callback callback) {
+                if (topic.equals(record.topic())) {
+                    return CompletableFuture.failedFuture(failure);
+                }
+                return super.send(record, callback);
+            }
+        };
+    }
+
+    private static KafkaProducerRegistry registry(MockProducer<String, String> producer) {
+        return new KafkaProducerRegistry(meterRegistryProvider(), 5, 65536, "lz4", 5, 33554432L,
+                "1", 5000, 3, 5000L) {
+            @Override
+            protected Producer<String, String> createProducer(Properties properties) {
+                return producer;
+            }
+        };
+    }
+
+    private static ObjectProvider<MeterRegistry> meterRegistryProvider() {
+        return new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+    }
+}
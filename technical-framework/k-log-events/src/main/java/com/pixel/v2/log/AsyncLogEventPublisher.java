@@ -0,0 +1,222 @@
+package com.pixel.v2.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pixel.v2.kafka.KafkaProducerRegistry;
+import com.pixel.v2.kafka.KafkaSpillJournal;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Asynchronous log-event sink used by k-log-events.
+ * 
+ * The payment thread only serializes the event and offers it to a bounded lock-free ring buffer;
+ * a single background publisher drains the buffer in batches and hands each batch to the shared
+ * Kafka producer of its broker set ({@link KafkaProducerRegistry}), which batches on the wire. A
+ * full buffer is handled by the configured {@link OverflowPolicy}. Failed sends go to the local
+ * {@link KafkaSpillJournal}, which replays them in order once Kafka is back; while it holds
+ * records, new events queue behind them. Queue depth and counters are exported to Micrometer when
+ * a registry exists.
+ */
+@Component("asyncLogEventPublisher")
+public class AsyncLogEventPublisher implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogEventPublisher.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LogEventRingBuffer<PendingLogEvent> ringBuffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final KafkaProducerRegistry kafkaProducerRegistry;
+    private final KafkaSpillJournal kafkaSpillJournal;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private DistributionSummary batchSizes;
+    private Thread publisherThread;
+    private volatile boolean running;
+
+    public AsyncLogEventPublisher(ObjectProvider<MeterRegistry> meterRegistryProvider,
+            KafkaProducerRegistry kafkaProducerRegistry, KafkaSpillJournal kafkaSpillJournal,
+            @Value("${pixel.log.async.capacity:65536}") int capacity,
+            @Value("${pixel.log.async.batch-size:500}") int batchSize,
+            @Value("${pixel.log.async.overflow-policy:DROP_DEBUG}") OverflowPolicy overflowPolicy) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.kafkaProducerRegistry = kafkaProducerRegistry;
+        this.kafkaSpillJournal = kafkaSpillJournal;
+        this.ringBuffer = new LogEventRingBuffer<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        registerMetrics();
+        running = true;
+        publisherThread = new Thread(this::runPublisher, "pixel-log-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+        logger.info("[K-LOG-EVENTS] Async log publisher started - capacity: {}, batch: {}, overflow: {}",
+                ringBuffer.capacity(), batchSize, overflowPolicy);
+    }
+
+    /**
+     * Queues a serialized log event. Never waits on Kafka; only waits for a free slot under the
+     * BLOCK overflow policy.
+     */
+    public void publish(String payload, String topic, String brokers, String key, String level) {
+        PendingLogEvent event = new PendingLogEvent(topic, brokers, key, payload, level);
+        if (ringBuffer.offer(event)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                while (!ringBuffer.offer(event)) {
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+                }
+            }
+            case SPILL -> spill(event);
+            default -> {
+                if (event.isDebug()) {
+                    dropped.increment();
+                } else {
+                    spill(event);
+                }
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return ringBuffer.size();
+    }
+
+    public Map<String, Object> getStatistics() {
+        return Map.of("queueDepth", ringBuffer.size(), "capacity", ringBuffer.capacity(),
+                "published", published.sum(), "dropped", dropped.sum(), "spilled", spilled.sum(),
+                "failed", failed.sum(), "overflowPolicy", overflowPolicy.name());
+    }
+
+    private void spill(PendingLogEvent event) {
+        spill(event, null);
+    }
+
+    /**
+     * Journals the event, unless its failed send was refused by Kafka for good
+     */
+    private void spill(PendingLogEvent event, Exception failure) {
+        if (kafkaSpillJournal.spill(event.topic(), event.brokers(), event.key(),
+                event.payload(), failure)) {
+            spilled.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void runPublisher() {
+        List<PendingLogEvent> batch = new ArrayList<>(batchSize);
+        while (running || ringBuffer.size() > 0) {
+            try {
+                int drained = ringBuffer.drainTo(batch, batchSize);
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (PendingLogEvent event : batch) {
+                    send(event);
+                }
+                if (batchSizes != null) {
+                    batchSizes.record(drained);
+                }
+            } catch (Exception e) {
+                logger.error("[K-LOG-EVENTS] Async log publisher error: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(PendingLogEvent event) {
+        // Kafka is failing or catching up: keep the order behind the journaled events
+        if (kafkaSpillJournal.hasPending()) {
+            spill(event);
+            return;
+        }
+        try {
+            kafkaProducerRegistry.sendAsync(
+                    new ProducerRecord<>(event.topic(), event.key(), event.payload()),
+                    event.brokers(), (metadata, exception) -> {
+                        if (exception == null) {
+                            published.increment();
+                        } else {
+                            onSendFailure(event, exception);
+                        }
+                    });
+        } catch (Exception e) {
+            onSendFailure(event, e);
+        }
+    }
+
+    private void onSendFailure(PendingLogEvent event, Exception exception) {
+        failed.increment();
+        logger.debug("[K-LOG-EVENTS] Log event send to {} failed, journaling: {}", event.topic(),
+                exception.getMessage());
+        spill(event, exception);
+    }
+
+    private void registerMetrics() {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder("pixel.log.queue.depth", ringBuffer, LogEventRingBuffer::size)
+                .description("Log events waiting in the async ring buffer").register(registry);
+        Gauge.builder("pixel.log.queue.capacity", ringBuffer, LogEventRingBuffer::capacity)
+                .register(registry);
+        FunctionCounter.builder("pixel.log.events.published", published, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.log.events.dropped", dropped, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.log.events.spilled", spilled, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.log.events.failed", failed, LongAdder::sum)
+                .register(registry);
+        batchSizes = DistributionSummary.builder("pixel.log.batch.size")
+                .description("Log events drained per publisher batch").register(registry);
+    }
+
+    /**
+     * Drains what is queued, then flushes the producers (closed by the registry)
+     */
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        if (publisherThread != null) {
+            publisherThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        kafkaProducerRegistry.flush();
+        logger.info("[K-LOG-EVENTS] Async log publisher stopped - {}", getStatistics());
+    }
+}
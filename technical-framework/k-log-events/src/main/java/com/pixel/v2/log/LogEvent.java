@@ -0,0 +1,39 @@
+package com.pixel.v2.log;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One log event, as read from the exchange by {@link LogEventJsonWriter}
+ *
+ * @param timestamp the single clock read of the event, used for every "now" field
+ * @param processingTimestamp the processing timestamp header, or {@code timestamp} when missing
+ * @param spanBegin begin of the step when the event closes a span (null otherwise)
+ * @param component component generating the event
+ * @param level log level (INFO, WARN, DEBUG, ERROR)
+ * @param error whether the event uses the error log structure
+ * @param flowOccurId flow occurrence identifier
+ * @param flowCode flow code
+ * @param contextId context identifier
+ * @param text log text
+ * @param hostname host name of the instance
+ * @param messageId message identifier
+ * @param correlationId message correlation identifier
+ * @param applicationContextNames application context names attached to the event
+ * @param errorType short error description (error events)
+ * @param errorDetails error stack (error events)
+ * @param processStack route that raised the error (error events)
+ * @param input original message body (error events)
+ */
+public record LogEvent(LocalDateTime timestamp, LocalDateTime processingTimestamp,
+        LocalDateTime spanBegin, String component, String level, boolean error,
+        String flowOccurId, String flowCode, String contextId, String text, String hostname,
+        String messageId, String correlationId,
+        List<String> applicationContextNames, String errorType, String errorDetails,
+        String processStack, String input) {
+
+    public LogEvent {
+        applicationContextNames =
+                applicationContextNames != null ? applicationContextNames : List.of();
+    }
+}
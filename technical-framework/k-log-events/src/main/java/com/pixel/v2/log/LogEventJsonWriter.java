@@ -0,0 +1,290 @@
+package com.pixel.v2.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.pixel.v2.util.IdGenerator;
+import com.pixel.v2.util.PixelClock;
+import com.pixel.v2.util.TimestampConverter;
+
+/**
+ * Serializes log events for k-log-events.
+ *
+ * The event is read from the exchange into a {@link LogEvent} with a single clock read, then
+ * streamed field by field through a Jackson {@link JsonGenerator}. Each thread keeps its generator
+ * and output buffer across events, so an event costs no template parsing, no reflection and no
+ * intermediate strings besides the timestamps, rendered digit by digit by {@link PixelClock}. Every
+ * text value is escaped, so quotes or line breaks in the log text, the error details or the message
+ * body always produce valid JSON for the LogEventPersistenceProcessor /
+ * ErrorLogEventPersistenceProcessor consumers. Log, error and instance ids come from the
+ * {@link IdGenerator}: events of the same millisecond never share a LOGID.
+ */
+@Component("logEventJsonWriter")
+public class LogEventJsonWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogEventJsonWriter.class);
+
+    private static final int INITIAL_BUFFER_BYTES = 2048;
+    // A huge message body must not stay pinned to the thread
+    private static final int MAX_RETAINED_BUFFER_BYTES = 256 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder()
+            .rootValueSeparator((String) null)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final ThreadLocal<Buffer> buffers = new ThreadLocal<>();
+    private final Clock clock;
+    private final IdGenerator idGenerator;
+
+    @Autowired
+    public LogEventJsonWriter(IdGenerator idGenerator) {
+        this(Clock.systemDefaultZone(), idGenerator);
+    }
+
+    public LogEventJsonWriter(Clock clock, IdGenerator idGenerator) {
+        this.clock = clock;
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Builds the log event of the exchange and returns its JSON
+     *
+     * @param exchange the exchange being logged
+     * @param component component generating the event
+     * @param error whether to use the error log structure
+     * @param timestampHeader header holding the compact processing timestamp
+     * @param contextIdHeader header holding the context ID
+     */
+    public String write(Exchange exchange, String component, boolean error,
+            String timestampHeader, String contextIdHeader) {
+        return toJson(toEvent(exchange, component, error, timestampHeader, contextIdHeader));
+    }
+
+    public LogEvent toEvent(Exchange exchange, String component, boolean error,
+            String timestampHeader, String contextIdHeader) {
+        Message in = exchange.getIn();
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime spanBegin = exchange.getProperty(LogSpanRecorder.SPAN_BEGIN_PROPERTY,
+                LocalDateTime.class);
+        if (spanBegin != null) {
+            exchange.removeProperty(LogSpanRecorder.SPAN_BEGIN_PROPERTY);
+        }
+        return new LogEvent(now,
+                TimestampConverter.parseCompact(in.getHeader(timestampHeader, String.class), now),
+                spanBegin, component, in.getHeader("LogLevel", String.class), error,
+                in.getHeader("FlowOccurId", String.class), in.getHeader("FlowCode", String.class),
+                in.getHeader(contextIdHeader, String.class),
+                in.getHeader("LogMessageTxt", String.class), in.getHeader("Hostname", String.class),
+                in.getHeader("MessageId", String.class),
+                in.getHeader("CorrelationId", String.class),
+                applicationContextNames(in.getHeader("LogApplicationContextNames")),
+                in.getHeader("ErrorType", String.class), in.getHeader("ErrorDetails", String.class),
+                in.getHeader("OriginalRouteId", String.class),
+                error ? in.getHeader("OriginalBody", String.class) : null);
+    }
+
+    public String toJson(LogEvent event) {
+        Buffer buffer = buffers.get();
+        if (buffer == null) {
+            buffer = new Buffer();
+            buffers.set(buffer);
+        }
+        try {
+            if (event.error()) {
+                writeError(buffer.generator, event);
+            } else {
+                writeLog(buffer.generator, event);
+            }
+            buffer.generator.flush();
+            String json = buffer.out.toString(StandardCharsets.UTF_8);
+            if (buffer.out.size() > MAX_RETAINED_BUFFER_BYTES) {
+                buffers.remove();
+            } else {
+                buffer.out.reset();
+            }
+            return json;
+        } catch (IOException e) {
+            // The generator may be left mid-object: never reuse it
+            buffers.remove();
+            throw new UncheckedIOException("Failed to serialize log event", e);
+        } catch (RuntimeException e) {
+            buffers.remove();
+            throw e;
+        }
+    }
+
+    private void writeLog(JsonGenerator g, LogEvent event) throws IOException {
+        String now = PixelClock.format(event.timestamp());
+        String processing = PixelClock.format(event.processingTimestamp());
+
+        g.writeStartObject();
+        g.writeStringField("logId", idGenerator.nextId("LOG-"));
+        g.writeStringField("datats", processing);
+        g.writeStringField("flowId", text(event.flowOccurId()));
+        g.writeStringField("halfFlowId", text(event.flowOccurId()) + "-HALF");
+        g.writeStringField("flowCode", text(event.flowCode()));
+        g.writeStringField("halfFlowCode", text(event.flowCode()) + "-HALF");
+        g.writeStringField("contextId", text(event.contextId()));
+        g.writeStringField("clientLogTimestamp", processing);
+        g.writeStringField("txt", text(event.text()));
+        g.writeStringField("longTxt", text(event.hostname()));
+        g.writeStringField("logRole", text(event.level()));
+        g.writeStringField("code", text(event.level()));
+        g.writeStringField("customStep", text(event.text()));
+        g.writeStringField("component", text(event.component()));
+        g.writeStringField("instanceId", idGenerator.nextId("I-"));
+        g.writeStringField("servicePath", "");
+        g.writeStringField("processPath", "processing");
+        g.writeNumberField("refFlowId", 0);
+        if (event.spanBegin() != null) {
+            // Span record: the whole step in one event
+            g.writeStringField("beginProcess", PixelClock.format(event.spanBegin()));
+            g.writeStringField("endProcess", now);
+        } else {
+            g.writeStringField("beginProcess", processing);
+            g.writeNullField("endProcess");
+        }
+        g.writeStringField("contextTimestamp", now);
+        g.writeStringField("msgSentTimestamp", now);
+        g.writeStringField("messagingType", "JMS");
+        g.writeStringField("msgId", text(event.messageId()));
+        g.writeNumberField("msgPriority", 1);
+        g.writeStringField("msgCorrelationId", text(event.correlationId()));
+        g.writeStringField("msgSourceSystem", "PIXEL-V2");
+        g.writeStringField("msgPrivateContext", "");
+        g.writeStringField("msgTransactionId", text(event.messageId()));
+        g.writeStringField("msgProperties", event.spanBegin() != null
+                ? "{\"durationMs\":" + Duration.between(event.spanBegin(), event.timestamp())
+                        .toMillis() + "}"
+                : "{}");
+        g.writeNullField("msgBatchName");
+        g.writeNullField("msgBatchMsgNo");
+        g.writeNullField("msgBatchSize");
+        g.writeNullField("xmlMsgAction");
+        g.writeStringField("msgResubmitInd", "N");
+        g.writeStringField("msgBody", "");
+        g.writeStringField("logDay", PixelClock.formatDate(event.timestamp()));
+        g.writeArrayFieldStart("applicationContextNames");
+        for (String name : event.applicationContextNames()) {
+            g.writeString(name);
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+
+    private void writeError(JsonGenerator g, LogEvent event) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("logid", idGenerator.nextId("ERR-"));
+        g.writeStringField("datats", PixelClock.format(event.timestamp()));
+        g.writeStringField("errtimestamp", PixelClock.format(event.processingTimestamp()));
+        g.writeStringField("component", text(event.component()));
+        g.writeStringField("instanceid", text(event.hostname()));
+        g.writeStringField("processstack", text(event.processStack()));
+        g.writeStringField("rootprocesspath", text(event.flowCode()));
+        g.writeStringField("code", text(event.level()) + "_" + text(event.contextId()));
+        g.writeStringField("description", text(event.text()));
+        g.writeStringField("shortdesc", text(event.errorType()));
+        g.writeStringField("type", "E");
+        g.writeNumberField("severity", 3);
+        g.writeStringField("stack", text(event.errorDetails()));
+        g.writeStringField("input", text(event.input()));
+        g.writeStringField("debugdata", debugData(event));
+        g.writeEndObject();
+    }
+
+    /**
+     * The debug data column holds a small JSON document of its own, written as a string value
+     */
+    private static String debugData(LogEvent event) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("{ \"flowId\": \"").append(encoder.quoteAsString(text(event.flowOccurId())))
+                .append("\", \"flowCode\": \"").append(encoder.quoteAsString(text(event.flowCode())))
+                .append("\", \"contextId\": \"")
+                .append(encoder.quoteAsString(text(event.contextId()))).append("\" }");
+        return sb.toString();
+    }
+
+    /**
+     * Accepts a collection of names or a JSON array text such as {@code ["ctx-a","ctx-b"]}
+     */
+    static List<String> applicationContextNames(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof Collection<?> names) {
+            List<String> result = new ArrayList<>(names.size());
+            for (Object name : names) {
+                if (name != null) {
+                    result.add(name.toString());
+                }
+            }
+            return result;
+        }
+        String json = value.toString().trim();
+        if (json.isEmpty() || "[]".equals(json)) {
+            return List.of();
+        }
+        if (json.charAt(0) != '[') {
+            return List.of(json);
+        }
+        List<String> result = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    result.add(parser.getText());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("[K-LOG-EVENTS] Ignoring malformed application context names: {}", json);
+            return List.of();
+        }
+        return result;
+    }
+
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * Per-thread generator writing into a buffer that is reset, not reallocated, between events
+     */
+    private static final class Buffer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_BYTES);
+        private final JsonGenerator generator;
+
+        private Buffer() {
+            try {
+                this.generator = JSON_FACTORY.createGenerator(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
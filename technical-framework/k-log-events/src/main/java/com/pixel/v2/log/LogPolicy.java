@@ -0,0 +1,194 @@
+package com.pixel.v2.log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Log verbosity policy applied by k-log-events before an event is built.
+ *
+ * Error events and WARN/ERROR levels are always kept. Other events are kept only for flows whose
+ * REF_FLOW_RULES.LOGALL is on, then sampled per component. LOGALL is read from the cached flow
+ * configuration (RefFlowData header set by k-identification) once per configuration instance and
+ * memoized per flow code, so a dropped event costs a map lookup and a reference comparison. Flows
+ * without flow configuration (events logged before identification) use the configured default.
+ * Sampling is decided on the FlowOccurId, so the events of one payment are kept or dropped
+ * together.
+ */
+@Component("logPolicy")
+public class LogPolicy implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogPolicy.class);
+
+    private static final int SAMPLING_SCALE = 10_000;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final boolean enabled;
+    private final boolean defaultLogAll;
+    private final Map<String, Integer> samplingThresholds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, FlowDecision> flowDecisions = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder droppedByFlow = new LongAdder();
+    private final LongAdder droppedBySampling = new LongAdder();
+
+    public LogPolicy(ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${pixel.log.policy.enabled:true}") boolean enabled,
+            @Value("${pixel.log.policy.default-log-all:true}") boolean defaultLogAll,
+            @Value("${pixel.log.policy.sampling:}") String sampling) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.enabled = enabled;
+        this.defaultLogAll = defaultLogAll;
+        this.samplingThresholds = parseSampling(sampling);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            FunctionCounter.builder("pixel.log.policy.accepted", accepted, LongAdder::sum)
+                    .register(registry);
+            FunctionCounter.builder("pixel.log.policy.dropped", droppedByFlow, LongAdder::sum)
+                    .tag("reason", "logall").register(registry);
+            FunctionCounter.builder("pixel.log.policy.dropped", droppedBySampling, LongAdder::sum)
+                    .tag("reason", "sampling").register(registry);
+        }
+        logger.info("[K-LOG-EVENTS] Log policy - enabled: {}, default LOGALL: {}, sampling: {}",
+                enabled, defaultLogAll, samplingThresholds);
+    }
+
+    /**
+     * Whether k-log-events should emit this event
+     *
+     * @param exchange the exchange being logged
+     * @param component component generating the event
+     * @param defaultLevel level used when the LogLevel header is absent
+     * @param error whether the event uses the error log structure
+     */
+    public boolean accept(Exchange exchange, String component, String defaultLevel,
+            boolean error) {
+        if (!enabled) {
+            return true;
+        }
+        Message in = exchange.getIn();
+        String level = in.getHeader("LogLevel", defaultLevel, String.class);
+        if (error || "ERROR".equalsIgnoreCase(level) || "WARN".equalsIgnoreCase(level)) {
+            accepted.increment();
+            return true;
+        }
+        if (!isLogAll(in.getHeader("FlowCode", String.class), in.getHeader("RefFlowData"))) {
+            droppedByFlow.increment();
+            return false;
+        }
+        if (!sampled(component, in.getHeader("FlowOccurId", String.class))) {
+            droppedBySampling.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * LOGALL of the flow, re-read only when the cached flow configuration changes
+     */
+    boolean isLogAll(String flowCode, Object refFlowData) {
+        if (refFlowData == null) {
+            return defaultLogAll;
+        }
+        String key = flowCode != null ? flowCode : "";
+        FlowDecision decision = flowDecisions.get(key);
+        if (decision != null && Objects.equals(decision.source(), refFlowData)) {
+            return decision.logAll();
+        }
+        boolean logAll = readLogAll(refFlowData);
+        flowDecisions.put(key, new FlowDecision(refFlowData, logAll));
+        return logAll;
+    }
+
+    boolean sampled(String component, String flowOccurId) {
+        Integer threshold = component != null ? samplingThresholds.get(component) : null;
+        if (threshold == null || threshold >= SAMPLING_SCALE) {
+            return true;
+        }
+        if (threshold <= 0) {
+            return false;
+        }
+        int hash = flowOccurId != null ? mix(flowOccurId.hashCode()) : 0;
+        return Math.floorMod(hash, SAMPLING_SCALE) < threshold;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accepted", accepted.sum());
+        stats.put("droppedByLogAll", droppedByFlow.sum());
+        stats.put("droppedBySampling", droppedBySampling.sum());
+        stats.put("flows", flowDecisions.size());
+        return stats;
+    }
+
+    private boolean readLogAll(Object refFlowData) {
+        try {
+            JsonNode rules = objectMapper.readTree(refFlowData.toString()).path("flowRules");
+            JsonNode logAll = rules.isArray() ? rules.path(0).path("logAll")
+                    : rules.path("logAll");
+            return logAll.isMissingNode() || logAll.isNull() ? defaultLogAll
+                    : logAll.asBoolean(defaultLogAll);
+        } catch (Exception e) {
+            logger.debug("[K-LOG-EVENTS] No LOGALL in flow configuration: {}", e.getMessage());
+            return defaultLogAll;
+        }
+    }
+
+    /**
+     * Parses "COMPONENT:rate,COMPONENT:rate" (rate between 0 and 1)
+     */
+    static Map<String, Integer> parseSampling(String sampling) {
+        Map<String, Integer> thresholds = new HashMap<>();
+        if (sampling == null || sampling.isBlank()) {
+            return thresholds;
+        }
+        for (String entry : sampling.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid log sampling entry: " + entry);
+            }
+            double rate = Double.parseDouble(entry.substring(separator + 1).trim());
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Log sampling rate out of [0, 1]: " + entry);
+            }
+            thresholds.put(entry.substring(0, separator).trim(),
+                    (int) Math.round(rate * SAMPLING_SCALE));
+        }
+        return thresholds;
+    }
+
+    /**
+     * Spreads String.hashCode, whose low bits are weak for sequential identifiers
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private record FlowDecision(Object source, boolean logAll) {
+    }
+}
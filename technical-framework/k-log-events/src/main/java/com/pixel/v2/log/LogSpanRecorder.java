@@ -0,0 +1,64 @@
+package com.pixel.v2.log;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+import org.apache.camel.Exchange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces the Start and End log events of a kamelet step into one span record.
+ *
+ * A {@code span=start} call only keeps its timestamp in the exchange, keyed by component, and emits
+ * nothing. The matching {@code span=end} call hands that timestamp to {@link LogEventJsonWriter},
+ * which fills {@code beginProcess}, {@code endProcess} and the duration of the step into the single
+ * event it writes. An End without a recorded Start (spans disabled when the step began, start
+ * dropped by the policy) is written as a plain event.
+ */
+@Component("logSpanRecorder")
+public class LogSpanRecorder {
+
+    /** Exchange property holding the begin of the span being written */
+    public static final String SPAN_BEGIN_PROPERTY = "LogSpanBegin";
+
+    private static final String SPAN_START_PROPERTY_PREFIX = "LogSpanStart-";
+
+    private final boolean enabled;
+    private final Clock clock;
+
+    @Autowired
+    public LogSpanRecorder(@Value("${pixel.log.span.enabled:true}") boolean enabled) {
+        this(enabled, Clock.systemDefaultZone());
+    }
+
+    public LogSpanRecorder(boolean enabled, Clock clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether the event must be written now
+     *
+     * @param exchange the exchange being logged
+     * @param component component generating the event
+     * @param span {@code start}, {@code end} or {@code none}
+     */
+    public boolean emitNow(Exchange exchange, String component, String span) {
+        if ("start".equalsIgnoreCase(span)) {
+            if (!enabled) {
+                return true;
+            }
+            exchange.setProperty(SPAN_START_PROPERTY_PREFIX + component, LocalDateTime.now(clock));
+            return false;
+        }
+        if ("end".equalsIgnoreCase(span)) {
+            Object start = exchange.removeProperty(SPAN_START_PROPERTY_PREFIX + component);
+            if (start != null) {
+                exchange.setProperty(SPAN_BEGIN_PROPERTY, start);
+            }
+        }
+        return true;
+    }
+}
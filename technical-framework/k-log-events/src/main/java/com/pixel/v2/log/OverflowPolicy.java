@@ -0,0 +1,16 @@
+package com.pixel.v2.log;
+
+/**
+ * What the async log pipeline does with an event when its ring buffer is full
+ */
+public enum OverflowPolicy {
+
+    /** Drop DEBUG events; send the others to the Kafka spill journal, without waiting */
+    DROP_DEBUG,
+
+    /** Wait until the publisher frees a slot */
+    BLOCK,
+
+    /** Append the event to the Kafka spill journal, which replays it in order */
+    SPILL
+}
@@ -0,0 +1,12 @@
+package com.pixel.v2.log;
+
+/**
+ * A serialized log event waiting to be published to Kafka
+ */
+public record PendingLogEvent(String topic, String brokers, String key, String payload,
+        String level) {
+
+    public boolean isDebug() {
+        return "DEBUG".equalsIgnoreCase(level);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pixel.v2.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Unique, time-ordered identifiers for log events, contexts and correlations.
+ *
+ * A 64-bit id holds 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a 12-bit
+ * sequence, in the Snowflake layout. The millisecond and sequence are one {@link AtomicLong}
+ * advanced by compare-and-set: an id is always above the previous one of the node, a burst of more
+ * than 4096 ids in a millisecond borrows the next milliseconds instead of waiting, and a clock
+ * going backwards keeps counting from the last id. Ids of different nodes differ by their node
+ * id, so {@code pixel.id.node-id} must be unique per running instance: it has no default, and the
+ * application does not start without a node id between 0 and 1023 (a derived one, such as a host
+ * name hash, could collide and overwrite LOG_EVENT rows through the LOGID upsert).
+ *
+ * Text ids are the 13 Crockford base32 characters of the number, which sort like the numbers, after
+ * an optional prefix: {@code LOG-0CKQ3T5E4H04B}. Used by the kamelets through
+ * {@code ${bean:idGenerator.nextId('prefix-')}}.
+ */
+@Component("idGenerator")
+public class IdGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TEXT_LENGTH = 13;
+    private static final char[] CROCKFORD_BASE32 =
+            "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final int nodeId;
+    private final Clock clock;
+    // (milliseconds since the epoch << SEQUENCE_BITS) | sequence of the last id
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public IdGenerator(@Value("${pixel.id.node-id:-1}") int nodeId) {
+        this(nodeId, Clock.systemUTC());
+    }
+
+    public IdGenerator(int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("pixel.id.node-id must be set to a node id "
+                    + "between 0 and " + MAX_NODE_ID + ", unique per running instance (was "
+                    + nodeId + ")");
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Next id of the node, above every id it returned before
+     */
+    public long nextLong() {
+        long now = (clock.millis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long next = last.accumulateAndGet(now, (previous, time) -> Math.max(previous + 1, time));
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | (long) nodeId << SEQUENCE_BITS | next & SEQUENCE_MASK;
+    }
+
+    /**
+     * Next id as text, after the prefix
+     */
+    public String nextId(String prefix) {
+        return toText(prefix != null ? prefix : "", nextLong());
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Prefix followed by the fixed-width base32 form of the id, written into a single buffer
+     */
+    static String toText(String prefix, long id) {
+        int length = prefix.length();
+        char[] chars = new char[length + TEXT_LENGTH];
+        prefix.getChars(0, length, chars, 0);
+        long value = id;
+        for (int i = chars.length - 1; i >= length; i--) {
+            chars[i] = CROCKFORD_BASE32[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Milliseconds since the Unix epoch at which the id was generated (or borrowed)
+     */
+    static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    static int nodeId(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
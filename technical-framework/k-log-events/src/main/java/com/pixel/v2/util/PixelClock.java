@@ -0,0 +1,162 @@
+package com.pixel.v2.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Current time as the timestamp texts of the kamelets, without formatter.
+ *
+ * The date and time down to the second are rendered once per second into shared character
+ * arrays; a call copies them and appends the milliseconds, so it costs a clock read and the
+ * returned String. {@link #format} and {@link #formatDate} render any {@link LocalDateTime} digit
+ * by digit in the same layouts. Used by the kamelets through {@code ${bean:pixelClock.iso}} (and
+ * {@code isoMillis}, {@code compact}, {@code isoDate}) instead of {@code ${date:now:...}}.
+ */
+@Component("pixelClock")
+public class PixelClock {
+
+    private final Clock clock;
+    private volatile Second second = new Second(Long.MIN_VALUE, null);
+
+    public PixelClock() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public PixelClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * {@code yyyy-MM-dd'T'HH:mm:ss.SSSSSS}, the timestamp of the log and context headers
+     */
+    public String iso() {
+        return iso(true);
+    }
+
+    /**
+     * {@code yyyy-MM-dd'T'HH:mm:ss.SSS}
+     */
+    public String isoMillis() {
+        return iso(false);
+    }
+
+    /**
+     * {@code yyyyMMddHHmmssSSS}, the compact timestamp of file names and processing headers
+     */
+    public String compact() {
+        long millis = clock.millis();
+        char[] prefix = second(millis).compact;
+        char[] chars = new char[17];
+        System.arraycopy(prefix, 0, chars, 0, 14);
+        digits(chars, 14, 3, (int) Math.floorMod(millis, 1000L));
+        return new String(chars);
+    }
+
+    /**
+     * {@code yyyy-MM-dd}
+     */
+    public String isoDate() {
+        return new String(second(clock.millis()).iso, 0, 10);
+    }
+
+    private String iso(boolean micros) {
+        long millis = clock.millis();
+        char[] prefix = second(millis).iso;
+        char[] chars = new char[micros ? 26 : 23];
+        System.arraycopy(prefix, 0, chars, 0, 19);
+        chars[19] = '.';
+        digits(chars, 20, 3, (int) Math.floorMod(millis, 1000L));
+        if (micros) {
+            chars[23] = '0';
+            chars[24] = '0';
+            chars[25] = '0';
+        }
+        return new String(chars);
+    }
+
+    private Second second(long millis) {
+        long epochSecond = Math.floorDiv(millis, 1000L);
+        Second current = second;
+        if (current.epochSecond != epochSecond) {
+            // Racing threads render the same second; the last write wins harmlessly
+            ZoneOffset offset =
+                    clock.getZone().getRules().getOffset(Instant.ofEpochSecond(epochSecond));
+            current = new Second(epochSecond, LocalDateTime.ofEpochSecond(epochSecond, 0, offset));
+            second = current;
+        }
+        return current;
+    }
+
+    /**
+     * {@code yyyy-MM-dd'T'HH:mm:ss.SSSSSS}
+     */
+    public static String format(LocalDateTime dateTime) {
+        char[] chars = new char[26];
+        isoSecond(chars, dateTime);
+        chars[19] = '.';
+        digits(chars, 20, 6, dateTime.getNano() / 1000);
+        return new String(chars);
+    }
+
+    /**
+     * {@code yyyy-MM-dd}
+     */
+    public static String formatDate(LocalDateTime dateTime) {
+        char[] chars = new char[10];
+        isoDate(chars, dateTime);
+        return new String(chars);
+    }
+
+    private static void isoDate(char[] chars, LocalDateTime dateTime) {
+        digits(chars, 0, 4, dateTime.getYear());
+        chars[4] = '-';
+        digits(chars, 5, 2, dateTime.getMonthValue());
+        chars[7] = '-';
+        digits(chars, 8, 2, dateTime.getDayOfMonth());
+    }
+
+    private static void isoSecond(char[] chars, LocalDateTime dateTime) {
+        isoDate(chars, dateTime);
+        chars[10] = 'T';
+        digits(chars, 11, 2, dateTime.getHour());
+        chars[13] = ':';
+        digits(chars, 14, 2, dateTime.getMinute());
+        chars[16] = ':';
+        digits(chars, 17, 2, dateTime.getSecond());
+    }
+
+    private static void digits(char[] chars, int offset, int width, int value) {
+        int remaining = value;
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+    }
+
+    /**
+     * One second rendered in the ISO and compact layouts
+     */
+    private static final class Second {
+
+        private final long epochSecond;
+        private final char[] iso = new char[19];
+        private final char[] compact = new char[14];
+
+        private Second(long epochSecond, LocalDateTime dateTime) {
+            this.epochSecond = epochSecond;
+            if (dateTime != null) {
+                isoSecond(iso, dateTime);
+                digits(compact, 0, 4, dateTime.getYear());
+                digits(compact, 4, 2, dateTime.getMonthValue());
+                digits(compact, 6, 2, dateTime.getDayOfMonth());
+                digits(compact, 8, 2, dateTime.getHour());
+                digits(compact, 10, 2, dateTime.getMinute());
+                digits(compact, 12, 2, dateTime.getSecond());
+            }
+        }
+    }
+}
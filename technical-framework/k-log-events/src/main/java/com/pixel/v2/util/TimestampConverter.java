@@ -18,34 +18,43 @@ public class TimestampConverter {
      * @return ISO format timestamp (e.g., "2026-01-07T15:41:19.230000")
      */
     public static String convertToISO(String compactTimestamp) {
+        return parseCompact(compactTimestamp, null).format(ISO_FORMATTER);
+    }
+
+    /**
+     * Parses a compact timestamp yyyyMMddHHmmssSSS without intermediate substrings
+     * 
+     * @param compactTimestamp the compact format timestamp (e.g., "20260107154119230")
+     * @param fallback returned when the timestamp is missing or malformed (null: current time)
+     * @return the parsed timestamp, or the fallback
+     */
+    public static LocalDateTime parseCompact(CharSequence compactTimestamp,
+            LocalDateTime fallback) {
         if (compactTimestamp == null || compactTimestamp.length() != 17) {
-            // Return current timestamp as fallback
-            return LocalDateTime.now().format(ISO_FORMATTER);
+            return fallback != null ? fallback : LocalDateTime.now();
         }
 
         try {
-            String year = compactTimestamp.substring(0, 4);
-            String month = compactTimestamp.substring(4, 6);
-            String day = compactTimestamp.substring(6, 8);
-            String hour = compactTimestamp.substring(8, 10);
-            String minute = compactTimestamp.substring(10, 12);
-            String second = compactTimestamp.substring(12, 14);
-            String millis = compactTimestamp.substring(14, 17);
-
-            LocalDateTime dateTime =
-                    LocalDateTime.of(Integer.parseInt(year), Integer.parseInt(month),
-                            Integer.parseInt(day), Integer.parseInt(hour), Integer.parseInt(minute),
-                            Integer.parseInt(second), Integer.parseInt(millis) * 1_000_000 // Convert
-                                                                                           // millis
-                                                                                           // to
-                                                                                           // nanos
-                    );
-
-            return dateTime.format(ISO_FORMATTER);
-
+            return LocalDateTime.of(digits(compactTimestamp, 0, 4),
+                    digits(compactTimestamp, 4, 6), digits(compactTimestamp, 6, 8),
+                    digits(compactTimestamp, 8, 10), digits(compactTimestamp, 10, 12),
+                    digits(compactTimestamp, 12, 14),
+                    digits(compactTimestamp, 14, 17) * 1_000_000); // Convert millis to nanos
         } catch (Exception e) {
             // Return current timestamp as fallback
-            return LocalDateTime.now().format(ISO_FORMATTER);
+            return fallback != null ? fallback : LocalDateTime.now();
+        }
+    }
+
+    private static int digits(CharSequence value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a digit: " + c);
+            }
+            result = result * 10 + (c - '0');
         }
+        return result;
     }
 }
@@ -0,0 +1,150 @@
+package com.pixel.v2.kamelet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pixel.v2.kafka.KafkaProducerRegistry;
+import com.pixel.v2.kafka.KafkaSpillJournal;
+import com.pixel.v2.log.AsyncLogEventPublisher;
+import com.pixel.v2.log.LogEventJsonWriter;
+import com.pixel.v2.log.LogPolicy;
+import com.pixel.v2.log.LogSpanRecorder;
+import com.pixel.v2.log.OverflowPolicy;
+import com.pixel.v2.util.IdGenerator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.spring.junit5.CamelSpringBootTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+/**
+ * Soak test for k-log-events: sending many log events with distinct flow occurrences, timestamps
+ * and texts must not create routes or endpoints beyond the first call.
+ */
+@CamelSpringBootTest
+@SpringBootTest(classes = LogEventsSoakTest.SoakTestConfiguration.class,
+    properties = "pixel.hostname=soak-test-host")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LogEventsSoakTest {
+
+  private static final int EVENTS = 5_000;
+
+  @Autowired
+  private CamelContext camelContext;
+
+  @Autowired
+  private ProducerTemplate producerTemplate;
+
+  @Test
+  public void testRouteAndEndpointCountsStayConstant() throws Exception {
+    MockEndpoint kafkaLog = camelContext.getEndpoint("mock:kafka-log", MockEndpoint.class);
+    kafkaLog.expectedMessageCount(EVENTS);
+
+    send(0);
+    int routes = camelContext.getRoutesSize();
+    int endpoints = camelContext.getEndpoints().size();
+
+    for (int i = 1; i < EVENTS; i++) {
+      send(i);
+    }
+
+    kafkaLog.assertIsSatisfied();
+    assertEquals(routes, camelContext.getRoutesSize(), "route count grew with traffic");
+    assertEquals(endpoints, camelContext.getEndpoints().size(), "endpoint count grew with traffic");
+
+    Exchange last = kafkaLog.getReceivedExchanges().get(EVENTS - 1);
+    String json = last.getMessage().getBody(String.class);
+    assertTrue(json.contains("\"flowId\":\"FLOW-" + (EVENTS - 1) + "\""), json);
+    assertTrue(json.contains("Step " + (EVENTS - 1) + " done"), json);
+    assertEquals("FLOW-" + (EVENTS - 1), last.getMessage().getHeader("kafka.KEY"));
+  }
+
+  @Test
+  public void testPerCallHeadersAreRemoved() {
+    Exchange exchange = send(1);
+    assertNull(exchange.getMessage().getHeader("LogMessageTxt"));
+    assertNull(exchange.getMessage().getHeader("LogLevel"));
+    assertNull(exchange.getMessage().getHeader("kafka.KEY"));
+    assertEquals("payload-1", exchange.getMessage().getBody(String.class));
+  }
+
+  private Exchange send(int i) {
+    return producerTemplate.request("direct:log", e -> {
+      e.getIn().setBody("payload-" + i);
+      e.getIn().setHeader("FlowOccurId", "FLOW-" + i);
+      e.getIn().setHeader("FlowCode", "ICHSIC");
+      e.getIn().setHeader("ContextId", "ctx-" + i);
+      e.getIn().setHeader("ProcessingTimestamp", String.format("20260107154119%03d", i % 1000));
+      e.getIn().setHeader("KafkaLogTopicName", "pixel-log-events");
+      e.getIn().setHeader("Brokers", "localhost:9092");
+      e.getIn().setHeader("LogMessageTxt", "Step " + i + " done");
+    });
+  }
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  static class SoakTestConfiguration {
+
+    @org.springframework.context.annotation.Bean
+    public KafkaProducerRegistry kafkaProducerRegistry(
+        ObjectProvider<MeterRegistry> meterRegistryProvider) {
+      return new KafkaProducerRegistry(meterRegistryProvider, 5, 65536, "lz4", 5, 33554432L, "1",
+          5000, 3, 5000L);
+    }
+
+    @org.springframework.context.annotation.Bean
+    public KafkaSpillJournal kafkaSpillJournal(KafkaProducerRegistry kafkaProducerRegistry,
+        ObjectProvider<MeterRegistry> meterRegistryProvider) {
+      return new KafkaSpillJournal(kafkaProducerRegistry, meterRegistryProvider, false,
+          System.getProperty("java.io.tmpdir"), 1 << 20, 1000, 500, 3600, 65536);
+    }
+
+    @org.springframework.context.annotation.Bean
+    public AsyncLogEventPublisher asyncLogEventPublisher(
+        ObjectProvider<MeterRegistry> meterRegistryProvider,
+        KafkaProducerRegistry kafkaProducerRegistry, KafkaSpillJournal kafkaSpillJournal) {
+      return new AsyncLogEventPublisher(meterRegistryProvider, kafkaProducerRegistry,
+          kafkaSpillJournal, 1024, 100, OverflowPolicy.DROP_DEBUG);
+    }
+
+    @org.springframework.context.annotation.Bean
+    public LogEventJsonWriter logEventJsonWriter() {
+      return new LogEventJsonWriter(new IdGenerator(1, Clock.systemUTC()));
+    }
+
+    @org.springframework.context.annotation.Bean
+    public LogPolicy logPolicy(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+      return new LogPolicy(meterRegistryProvider, true, true, "");
+    }
+
+    @org.springframework.context.annotation.Bean
+    public LogSpanRecorder logSpanRecorder() {
+      return new LogSpanRecorder(true);
+    }
+
+    @org.springframework.context.annotation.Bean
+    public RouteBuilder testRoutes() {
+      return new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("direct:log")
+              .to("kamelet:k-log-events?component=K-SOAK-TEST&asyncPublish=false");
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.pixel.v2.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import com.pixel.v2.kafka.KafkaProducerRegistry;
+import com.pixel.v2.kafka.KafkaSpillJournal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for AsyncLogEventPublisher
+ */
+class AsyncLogEventPublisherTest {
+
+    @TempDir
+    Path directory;
+
+    private KafkaSpillJournal kafkaSpillJournal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectProvider<MeterRegistry> meterRegistryProvider =
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+        KafkaProducerRegistry kafkaProducerRegistry = new KafkaProducerRegistry(
+                meterRegistryProvider, 5, 65536, "lz4", 5, 33554432L, "1", 5000, 3, 5000L);
+        // No replay during the test: the journal only has to accept the spilled events
+        kafkaSpillJournal = new KafkaSpillJournal(kafkaProducerRegistry, meterRegistryProvider,
+                true, directory.toString(), 1 << 20, 600_000, 500, 3600, 65536);
+        kafkaSpillJournal.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        kafkaSpillJournal.destroy();
+    }
+
+    @Test
+    @DisplayName("Should drop DEBUG events and spill the others at once when the buffer is full")
+    void testDropDebugSpillsOtherLevels() {
+        // Publisher thread not started: the buffer stays full
+        AsyncLogEventPublisher publisher = new AsyncLogEventPublisher(
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), null,
+                kafkaSpillJournal, 2, 100, OverflowPolicy.DROP_DEBUG);
+        publisher.publish("{}", "pixel-logs", "localhost:9092", "1001", "INFO");
+        publisher.publish("{}", "pixel-logs", "localhost:9092", "1001", "INFO");
+        publisher.publish("{}", "pixel-logs", "localhost:9092", "1001", "DEBUG");
+        publisher.publish("{}", "pixel-logs", "localhost:9092", "1001", "ERROR");
+        publisher.publish("{}", "pixel-logs", "localhost:9092", "1001", "INFO");
+
+        assertEquals(2, publisher.getQueueDepth());
+        assertEquals(1L, publisher.getStatistics().get("dropped"));
+        assertEquals(2L, publisher.getStatistics().get("spilled"));
+        assertTrue(kafkaSpillJournal.hasPending());
+    }
+}
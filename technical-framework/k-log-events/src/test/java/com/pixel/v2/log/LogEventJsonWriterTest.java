@@ -0,0 +1,182 @@
+package com.pixel.v2.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pixel.v2.util.IdGenerator;
+
+/**
+ * Unit tests for LogEventJsonWriter
+ */
+class LogEventJsonWriterTest {
+
+    private static final Clock CLOCK =
+            Clock.fixed(Instant.parse("2026-01-07T15:41:19.230Z"), ZoneOffset.UTC);
+
+    private final LogEventJsonWriter writer =
+            new LogEventJsonWriter(CLOCK, new IdGenerator(7, CLOCK));
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should write the LogEvent structure with timestamps from one clock read")
+    void testLogEvent() throws Exception {
+        Exchange exchange = exchange();
+        exchange.getIn().setHeader("ProcessingTimestamp", "20260107154000001");
+
+        JsonNode json = objectMapper.readTree(
+                writer.write(exchange, "K-MQ-STARTER", false, "ProcessingTimestamp", "ContextId"));
+
+        assertTrue(json.get("logId").asText().matches("LOG-[0-9A-HJKMNP-TV-Z]{13}"));
+        assertEquals("2026-01-07T15:40:00.001000", json.get("datats").asText());
+        assertEquals("2026-01-07T15:40:00.001000", json.get("beginProcess").asText());
+        assertEquals("2026-01-07T15:41:19.230000", json.get("contextTimestamp").asText());
+        assertEquals("2026-01-07T15:41:19.230000", json.get("msgSentTimestamp").asText());
+        assertTrue(json.get("instanceId").asText().matches("I-[0-9A-HJKMNP-TV-Z]{13}"));
+        assertEquals("2026-01-07", json.get("logDay").asText());
+        assertEquals("FLOW-1", json.get("flowId").asText());
+        assertEquals("FLOW-1-HALF", json.get("halfFlowId").asText());
+        assertEquals("INFO", json.get("logRole").asText());
+        assertEquals("K-MQ-STARTER", json.get("component").asText());
+        assertTrue(json.get("endProcess").isNull());
+        assertEquals(2, json.get("applicationContextNames").size());
+        assertEquals("ctx-b", json.get("applicationContextNames").get(1).asText());
+    }
+
+    @Test
+    @DisplayName("Should give distinct log ids to events of the same millisecond")
+    void testDistinctLogIds() throws Exception {
+        Exchange exchange = exchange();
+
+        String first = objectMapper.readTree(writer.write(exchange, "K-TEST", false,
+                "ProcessingTimestamp", "ContextId")).get("logId").asText();
+        String second = objectMapper.readTree(writer.write(exchange, "K-TEST", false,
+                "ProcessingTimestamp", "ContextId")).get("logId").asText();
+
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    @DisplayName("Should write one span record covering the step from its start to its end")
+    void testSpanRecord() throws Exception {
+        LogSpanRecorder spans = new LogSpanRecorder(true,
+                Clock.offset(CLOCK, Duration.ofMillis(-1250)));
+        Exchange exchange = exchange();
+
+        assertFalse(spans.emitNow(exchange, "K-XSD-VALIDATION", "start"));
+        assertTrue(spans.emitNow(exchange, "K-XSD-VALIDATION", "end"));
+        JsonNode json = objectMapper.readTree(writer.write(exchange, "K-XSD-VALIDATION", false,
+                "ProcessingTimestamp", "ContextId"));
+
+        assertEquals("2026-01-07T15:41:17.980000", json.get("beginProcess").asText());
+        assertEquals("2026-01-07T15:41:19.230000", json.get("endProcess").asText());
+        assertEquals(1250, objectMapper.readTree(json.get("msgProperties").asText())
+                .get("durationMs").asLong());
+        assertNull(exchange.getProperty(LogSpanRecorder.SPAN_BEGIN_PROPERTY));
+
+        // The next event of the exchange is a plain one again
+        JsonNode next = objectMapper.readTree(writer.write(exchange, "K-MQ-PUBLISHER", false,
+                "ProcessingTimestamp", "ContextId"));
+        assertTrue(next.get("endProcess").isNull());
+        assertEquals("{}", next.get("msgProperties").asText());
+    }
+
+    @Test
+    @DisplayName("Should emit Start events as is when spans are disabled or unmatched")
+    void testSpanFallback() {
+        Exchange exchange = exchange();
+        assertTrue(new LogSpanRecorder(false).emitNow(exchange, "K-MQ-STARTER", "start"));
+        assertTrue(new LogSpanRecorder(true).emitNow(exchange, "K-MQ-STARTER", "end"));
+        assertNull(exchange.getProperty(LogSpanRecorder.SPAN_BEGIN_PROPERTY));
+        assertTrue(new LogSpanRecorder(true).emitNow(exchange, "K-MQ-STARTER", "none"));
+    }
+
+    @Test
+    @DisplayName("Should escape quotes and line breaks in text, details and body")
+    void testEscaping() throws Exception {
+        Exchange exchange = exchange();
+        exchange.getIn().setHeader("LogMessageTxt", "Rejected \"pacs.008\"\nline 2 \\ end");
+        exchange.getIn().setHeader("ErrorDetails", "java.lang.Exception: \"boom\"\n\tat Foo");
+        exchange.getIn().setHeader("OriginalBody", "{\"Document\": \"<a b=\\\"c\\\"/>\"}");
+
+        JsonNode log = objectMapper.readTree(
+                writer.write(exchange, "K-TEST", false, "ProcessingTimestamp", "ContextId"));
+        assertEquals("Rejected \"pacs.008\"\nline 2 \\ end", log.get("txt").asText());
+
+        JsonNode error = objectMapper.readTree(
+                writer.write(exchange, "K-TEST", true, "ProcessingTimestamp", "ContextId"));
+        assertTrue(error.get("logid").asText().matches("ERR-[0-9A-HJKMNP-TV-Z]{13}"));
+        assertEquals("java.lang.Exception: \"boom\"\n\tat Foo", error.get("stack").asText());
+        assertEquals("{\"Document\": \"<a b=\\\"c\\\"/>\"}", error.get("input").asText());
+        assertEquals("INFO_ctx-1", error.get("code").asText());
+        assertEquals("FLOW-1",
+                objectMapper.readTree(error.get("debugdata").asText()).get("flowId").asText());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the event clock for a missing or malformed timestamp")
+    void testTimestampFallback() throws Exception {
+        Exchange exchange = exchange();
+        exchange.getIn().setHeader("ProcessingTimestamp", "2026-01-07");
+
+        JsonNode json = objectMapper.readTree(
+                writer.write(exchange, "K-TEST", false, "ProcessingTimestamp", "ContextId"));
+        assertEquals("2026-01-07T15:41:19.230000", json.get("datats").asText());
+    }
+
+    @Test
+    @DisplayName("Should reuse the thread buffer without leaking the previous event")
+    void testBufferReuse() throws Exception {
+        String large = "x".repeat(300 * 1024);
+        Exchange exchange = exchange();
+        exchange.getIn().setHeader("LogMessageTxt", large);
+        assertEquals(large, objectMapper.readTree(writer.write(exchange, "K-TEST", false,
+                "ProcessingTimestamp", "ContextId")).get("txt").asText());
+
+        for (int i = 0; i < 3; i++) {
+            exchange.getIn().setHeader("LogMessageTxt", "event " + i);
+            String json = writer.write(exchange, "K-TEST", false, "ProcessingTimestamp",
+                    "ContextId");
+            assertEquals("event " + i, objectMapper.readTree(json).get("txt").asText());
+            assertTrue(json.startsWith("{") && json.endsWith("}"), json);
+        }
+    }
+
+    @Test
+    @DisplayName("Should read application context names from a collection or JSON text")
+    void testApplicationContextNames() {
+        assertEquals(List.of(), LogEventJsonWriter.applicationContextNames(null));
+        assertEquals(List.of(), LogEventJsonWriter.applicationContextNames("[]"));
+        assertEquals(List.of("a", "b"), LogEventJsonWriter.applicationContextNames(List.of("a", "b")));
+        assertEquals(List.of("test-app-context"),
+                LogEventJsonWriter.applicationContextNames("[\"test-app-context\"]"));
+        assertEquals(List.of("single"), LogEventJsonWriter.applicationContextNames("single"));
+        assertEquals(List.of(), LogEventJsonWriter.applicationContextNames("[\"broken"));
+    }
+
+    private static Exchange exchange() {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("FlowOccurId", "FLOW-1");
+        exchange.getIn().setHeader("FlowCode", "ICHSIC");
+        exchange.getIn().setHeader("ContextId", "ctx-1");
+        exchange.getIn().setHeader("LogLevel", "INFO");
+        exchange.getIn().setHeader("LogMessageTxt", "Start MQ processing");
+        exchange.getIn().setHeader("LogApplicationContextNames", "[\"ctx-a\",\"ctx-b\"]");
+        return exchange;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pixel.v2.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for LogPolicy
+ */
+class LogPolicyTest {
+
+    private static final String LOG_ALL_OFF =
+            "{\"flow\":{\"flowCode\":\"ICHSIC\"},\"flowRules\":[{\"flowCode\":\"ICHSIC\",\"logAll\":false}]}";
+    private static final String LOG_ALL_ON =
+            "{\"flow\":{\"flowCode\":\"ICHSIC\"},\"flowRules\":[{\"flowCode\":\"ICHSIC\",\"logAll\":\"true\"}]}";
+
+    @Test
+    @DisplayName("Should keep only errors and warnings for flows with LOGALL off")
+    void testLogAllOff() {
+        LogPolicy policy = policy("");
+        Exchange exchange = exchange("FLOW-1", LOG_ALL_OFF);
+
+        assertFalse(policy.accept(exchange, "K-MQ-STARTER", "INFO", false));
+        assertTrue(policy.accept(exchange, "K-ERROR-HANDLING", "ERROR", true));
+        assertTrue(policy.accept(exchange, "K-MQ-STARTER", "WARN", false));
+
+        exchange.getIn().setHeader("LogLevel", "ERROR");
+        assertTrue(policy.accept(exchange, "K-MQ-STARTER", "INFO", false));
+        assertEquals(1L, policy.getStatistics().get("droppedByLogAll"));
+    }
+
+    @Test
+    @DisplayName("Should keep every event for flows with LOGALL on and for unidentified flows")
+    void testLogAllOnAndDefault() {
+        LogPolicy policy = policy("");
+        assertTrue(policy.accept(exchange("FLOW-1", LOG_ALL_ON), "K-MQ-STARTER", "INFO", false));
+        assertTrue(policy.accept(exchange("FLOW-1", null), "K-MQ-STARTER", "INFO", false));
+        assertTrue(policy.accept(exchange("FLOW-1", "{\"error\":\"referential_service_unavailable\"}"),
+                "K-MQ-STARTER", "INFO", false));
+    }
+
+    @Test
+    @DisplayName("Should re-read LOGALL only when the cached flow configuration changes")
+    void testFlowDecisionFollowsConfiguration() {
+        LogPolicy policy = policy("");
+        assertFalse(policy.isLogAll("ICHSIC", LOG_ALL_OFF));
+        assertFalse(policy.isLogAll("ICHSIC", LOG_ALL_OFF));
+        assertTrue(policy.isLogAll("ICHSIC", LOG_ALL_ON));
+        assertEquals(1, policy.getStatistics().get("flows"));
+    }
+
+    @Test
+    @DisplayName("Should sample per component and keep the events of one payment together")
+    void testSampling() {
+        LogPolicy policy = policy("K-MQ-STARTER:0.1, K-XSD-VALIDATION:0");
+
+        int kept = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String flowOccurId = "FLOW-" + i;
+            boolean sampled = policy.sampled("K-MQ-STARTER", flowOccurId);
+            assertEquals(sampled, policy.sampled("K-MQ-STARTER", flowOccurId));
+            if (sampled) {
+                kept++;
+            }
+        }
+        assertTrue(kept > 800 && kept < 1200, "kept " + kept);
+        assertFalse(policy.sampled("K-XSD-VALIDATION", "FLOW-1"));
+        assertTrue(policy.sampled("K-IDENTIFICATION", "FLOW-1"));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed sampling settings")
+    void testParseSampling() {
+        assertEquals(2500, LogPolicy.parseSampling("K-MQ-STARTER:0.25").get("K-MQ-STARTER"));
+        assertThrows(IllegalArgumentException.class, () -> LogPolicy.parseSampling("K-MQ-STARTER"));
+        assertThrows(IllegalArgumentException.class,
+                () -> LogPolicy.parseSampling("K-MQ-STARTER:2"));
+    }
+
+    @Test
+    @DisplayName("Should keep everything when disabled")
+    void testDisabled() {
+        LogPolicy policy = new LogPolicy(meterRegistryProvider(), false, true, "K-MQ-STARTER:0");
+        assertTrue(policy.accept(exchange("FLOW-1", LOG_ALL_OFF), "K-MQ-STARTER", "INFO", false));
+    }
+
+    private static LogPolicy policy(String sampling) {
+        return new LogPolicy(meterRegistryProvider(), true, true, sampling);
+    }
+
+    private static ObjectProvider<MeterRegistry> meterRegistryProvider() {
+        return new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+    }
+
+    private static Exchange exchange(String flowOccurId, String refFlowData) {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("FlowOccurId", flowOccurId);
+        exchange.getIn().setHeader("FlowCode", "ICHSIC");
+        if (refFlowData != null) {
+            exchange.getIn().setHeader("RefFlowData", refFlowData);
+        }
+        return exchange;
+    }
+}
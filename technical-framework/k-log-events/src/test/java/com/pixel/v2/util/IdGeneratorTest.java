@@ -0,0 +1,141 @@
+package com.pixel.v2.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for IdGenerator
+ */
+class IdGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-07T15:41:19.230Z");
+
+    @Test
+    @DisplayName("Should carry the millisecond and the node id in the id")
+    void testLayout() {
+        IdGenerator generator = new IdGenerator(7, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        long id = generator.nextLong();
+
+        assertEquals(NOW.toEpochMilli(), IdGenerator.timestampMillis(id));
+        assertEquals(7, IdGenerator.nodeId(id));
+        assertEquals(7, generator.getNodeId());
+    }
+
+    @Test
+    @DisplayName("Should refuse to start without a valid node id")
+    void testNodeIdRequired() {
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IdGenerator(1024, Clock.systemUTC()));
+        assertEquals(1023, new IdGenerator(1023).getNodeId());
+    }
+
+    @Test
+    @DisplayName("Should keep increasing past 4096 ids a millisecond and when the clock goes back")
+    void testMonotonic() {
+        TestClock clock = new TestClock(NOW.toEpochMilli());
+        IdGenerator generator = new IdGenerator(1, clock);
+
+        long previous = 0;
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextLong();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 10000 ids in one millisecond borrowed the next ones
+        assertEquals(NOW.toEpochMilli() + 2, IdGenerator.timestampMillis(previous));
+
+        clock.millis.addAndGet(-60000);
+        assertTrue(generator.nextLong() > previous);
+    }
+
+    @Test
+    @DisplayName("Should never return the same id to concurrent callers")
+    void testConcurrentUniqueness() throws Exception {
+        IdGenerator generator = new IdGenerator(3, Clock.systemUTC());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25000; i++) {
+                        ids.add(generator.nextLong());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Should write fixed-width base32 text sorting like the ids")
+    void testText() {
+        IdGenerator generator = new IdGenerator(7, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        String first = generator.nextId("LOG-");
+        String second = generator.nextId("LOG-");
+
+        assertTrue(first.matches("LOG-[0-9A-HJKMNP-TV-Z]{13}"));
+        assertTrue(first.compareTo(second) < 0);
+        assertEquals("0000000000001", IdGenerator.toText("", 1));
+        assertEquals("000000000000Z", IdGenerator.toText("", 31));
+        assertEquals("7ZZZZZZZZZZZZ", IdGenerator.toText("", Long.MAX_VALUE));
+    }
+
+    /**
+     * Clock moved by hand
+     */
+    private static final class TestClock extends Clock {
+
+        private final AtomicLong millis;
+
+        private TestClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
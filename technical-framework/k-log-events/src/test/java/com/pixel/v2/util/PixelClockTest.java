@@ -0,0 +1,84 @@
+package com.pixel.v2.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for PixelClock
+ */
+class PixelClockTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-07T15:41:19.030Z");
+
+    @Test
+    @DisplayName("Should render the current time in the kamelet layouts")
+    void testLayouts() {
+        PixelClock clock = new PixelClock(Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertEquals("2026-01-07T15:41:19.030000", clock.iso());
+        assertEquals("2026-01-07T15:41:19.030", clock.isoMillis());
+        assertEquals("20260107154119030", clock.compact());
+        assertEquals("2026-01-07", clock.isoDate());
+    }
+
+    @Test
+    @DisplayName("Should render the local time of the clock zone")
+    void testZone() {
+        PixelClock clock = new PixelClock(Clock.fixed(NOW, ZoneId.of("Europe/Paris")));
+
+        assertEquals("2026-01-07T16:41:19.030", clock.isoMillis());
+        assertEquals("20260107164119030", clock.compact());
+    }
+
+    @Test
+    @DisplayName("Should move on when the second changes")
+    void testNextSecond() {
+        AtomicLong millis = new AtomicLong(NOW.toEpochMilli());
+        PixelClock clock = new PixelClock(new Clock() {
+            @Override
+            public long millis() {
+                return millis.get();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis.get());
+            }
+
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+        });
+        assertEquals("2026-01-07T15:41:19.030", clock.isoMillis());
+
+        millis.addAndGet(969);
+        assertEquals("2026-01-07T15:41:19.999", clock.isoMillis());
+        millis.addAndGet(45011);
+        assertEquals("2026-01-07T15:42:05.010", clock.isoMillis());
+        assertEquals("20260107154205010", clock.compact());
+    }
+
+    @Test
+    @DisplayName("Should format any date-time to microseconds without formatter")
+    void testFormat() {
+        LocalDateTime dateTime = LocalDateTime.of(2026, 1, 7, 5, 4, 3, 123456789);
+
+        assertEquals("2026-01-07T05:04:03.123456", PixelClock.format(dateTime));
+        assertEquals("2026-01-07", PixelClock.formatDate(dateTime));
+    }
+}
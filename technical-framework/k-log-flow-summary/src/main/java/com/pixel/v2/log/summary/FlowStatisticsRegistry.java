@@ -0,0 +1,369 @@
+package com.pixel.v2.log.summary;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.pixel.v2.kafka.KafkaSpillJournal;
+
+/**
+ * Live statistics of the flow occurrences, published as compact flow-summary snapshots.
+ *
+ * The kamelets record what happens to a flow occurrence as it happens: k-log-flow-summary its
+ * steps and, on IN_PROGRESS, the transaction and its size; k-dynamic-publisher the outputs
+ * expected and those completed per partner; k-dynamic-publisher and k-error-handling the errors.
+ * Counters are {@link LongAdder}s. A background thread sends, every interval, one flow-summary
+ * record per occurrence changed since its last record, keyed by FlowOccurId through the
+ * {@link KafkaSpillJournal}. The first record of an occurrence carries its descriptive fields and
+ * every counter; later ones only the status, the non-zero counters and the update timestamps,
+ * which the FlowSummary upserts merge into the row. Finished occurrences are forgotten once
+ * unchanged for the retention, abandoned ones after the idle timeout.
+ */
+@Component("flowStatisticsRegistry")
+public class FlowStatisticsRegistry implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowStatisticsRegistry.class);
+
+    private static final DateTimeFormatter ISO_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Set<String> FINAL_STEPS = Set.of("COMPLETED", "FAILURE", "ERROR");
+    // RECIPIENT_PARTNER_CODE column length
+    private static final int MAX_PARTNERS_LENGTH = 255;
+
+    private final KafkaSpillJournal kafkaSpillJournal;
+    private final long snapshotIntervalMs;
+    private final long retentionNanos;
+    private final long idleTimeoutNanos;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, FlowStatistics> flows = new ConcurrentHashMap<>();
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    private ScheduledExecutorService emitter;
+
+    @Autowired
+    public FlowStatisticsRegistry(KafkaSpillJournal kafkaSpillJournal,
+            @Value("${pixel.flow-summary.snapshot-interval-ms:1000}") long snapshotIntervalMs,
+            @Value("${pixel.flow-summary.retention-ms:60000}") long retentionMs,
+            @Value("${pixel.flow-summary.idle-timeout-ms:3600000}") long idleTimeoutMs) {
+        this(kafkaSpillJournal, snapshotIntervalMs, retentionMs, idleTimeoutMs,
+                Clock.systemDefaultZone());
+    }
+
+    FlowStatisticsRegistry(KafkaSpillJournal kafkaSpillJournal, long snapshotIntervalMs,
+            long retentionMs, long idleTimeoutMs, Clock clock) {
+        this.kafkaSpillJournal = kafkaSpillJournal;
+        this.snapshotIntervalMs = Math.max(50, snapshotIntervalMs);
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMs);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        emitter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pixel-flow-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        emitter.scheduleWithFixedDelay(this::emitSafely, snapshotIntervalMs, snapshotIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a step of the flow occurrence of the exchange, with the topic and brokers its
+     * summaries go to. An IN_PROGRESS step also counts the transaction and its size. Used by
+     * k-log-flow-summary through {@code bean:flowStatisticsRegistry?method=step(*, ...)}.
+     */
+    public void step(Exchange exchange, String step, String topic, String brokers) {
+        Message message = exchange.getMessage();
+        String flowOccurId = message.getHeader("FlowOccurId", String.class);
+        if (flowOccurId == null || flowOccurId.isEmpty()) {
+            return;
+        }
+        long bytes = "IN_PROGRESS".equals(step) ? size(message.getBody()) : -1;
+        update(flowOccurId, flow -> {
+            flow.status = step;
+            flow.topic = topic;
+            flow.brokers = brokers;
+            flow.flowCode = header(message, "FlowCode", flow.flowCode);
+            flow.flowCountryCode = header(message, "FlowCountryCode", flow.flowCountryCode);
+            flow.flowCountryId = header(message, "FlowCountryId", flow.flowCountryId);
+            if (bytes >= 0) {
+                flow.transactions.increment();
+                flow.bytes.add(bytes);
+            }
+            if (FINAL_STEPS.contains(step)) {
+                flow.endFlowDatetime = LocalDateTime.now(clock);
+            }
+        });
+    }
+
+    /**
+     * Records the number of outputs the flow occurrence must deliver
+     */
+    public void outExpected(String flowOccurId, int outputs) {
+        update(flowOccurId, flow -> flow.outExpected = outputs);
+    }
+
+    /**
+     * Records an output delivered to a partner
+     */
+    public void outCompleted(String flowOccurId, String partnerCode) {
+        update(flowOccurId, flow -> flow.outCompleted
+                .computeIfAbsent(partnerCode != null ? partnerCode : "unknown",
+                        partner -> new LongAdder())
+                .increment());
+    }
+
+    /**
+     * Records an error of the flow occurrence
+     */
+    public void error(String flowOccurId) {
+        update(flowOccurId, flow -> flow.errors.increment());
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("flows", flows.size());
+        stats.put("snapshots", snapshots.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (emitter != null) {
+            emitter.shutdown();
+            emitter.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        emit();
+        logger.info("[K-LOG-FLOW-SUMMARY] Flow statistics stopped - {}", getStatistics());
+    }
+
+    private void update(String flowOccurId, Consumer<FlowStatistics> change) {
+        if (flowOccurId == null || flowOccurId.isEmpty()) {
+            return;
+        }
+        flows.compute(flowOccurId, (key, flow) -> {
+            FlowStatistics current =
+                    flow != null ? flow : new FlowStatistics(key, LocalDateTime.now(clock));
+            change.accept(current);
+            current.version++;
+            current.touchedNanos = System.nanoTime();
+            return current;
+        });
+    }
+
+    private void emitSafely() {
+        try {
+            emit();
+        } catch (RuntimeException e) {
+            logger.warn("[K-LOG-FLOW-SUMMARY] Flow summary snapshots failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a snapshot of every occurrence changed since its last one, then forgets the
+     * occurrences finished or idle for long enough
+     */
+    void emit() {
+        long now = System.nanoTime();
+        for (String flowOccurId : flows.keySet()) {
+            String[] pending = new String[3];
+            flows.computeIfPresent(flowOccurId, (key, flow) -> {
+                if (flow.version != flow.emittedVersion && flow.topic != null) {
+                    pending[0] = flow.topic;
+                    pending[1] = flow.brokers;
+                    pending[2] = snapshot(flow);
+                    flow.emittedVersion = flow.version;
+                }
+                long idle = now - flow.touchedNanos;
+                // No status until the first step: error() or outCompleted() may come first
+                boolean finished = flow.status != null && FINAL_STEPS.contains(flow.status)
+                        && idle >= retentionNanos;
+                if (flow.version == flow.emittedVersion && finished || idle >= idleTimeoutNanos) {
+                    evicted.increment();
+                    return null;
+                }
+                return flow;
+            });
+            // Sent outside the map lock; the journal keeps the record when Kafka refuses it
+            if (pending[2] != null) {
+                kafkaSpillJournal.send(pending[0], pending[1], flowOccurId, pending[2]);
+                snapshots.increment();
+            }
+        }
+    }
+
+    /**
+     * Compact FlowSummary JSON of the occurrence: descriptive fields and all counters in the first
+     * snapshot, then the status and the non-zero counters
+     */
+    String snapshot(FlowStatistics flow) {
+        boolean first = flow.emittedVersion == 0;
+        String now = ISO_FORMATTER.format(LocalDateTime.now(clock));
+        StringWriter writer = new StringWriter(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("flowOccurId", flow.flowOccurId);
+            if (flow.status != null) {
+                generator.writeStringField("flowStatusCode", flow.status);
+            }
+            if (first) {
+                writeIfPresent(generator, "flowCode", flow.flowCode);
+                writeIfPresent(generator, "flowCountryCode", flow.flowCountryCode);
+                writeIfPresent(generator, "flowCountryId", flow.flowCountryId);
+                generator.writeNumberField("flowTypeId", 1);
+                generator.writeStringField("beginFlowDatetime",
+                        ISO_FORMATTER.format(flow.beginFlowDatetime));
+                generator.writeStringField("lastUpdateUser", "system");
+                generator.writeStringField("region", "EU");
+            }
+            long outCompleted = 0;
+            Set<String> partners = new TreeSet<>();
+            for (Map.Entry<String, LongAdder> entry : flow.outCompleted.entrySet()) {
+                outCompleted += entry.getValue().sum();
+                partners.add(entry.getKey());
+            }
+            writeCounter(generator, "nbOutExpected", flow.outExpected, first);
+            writeCounter(generator, "nbOutCompleted", outCompleted, first);
+            writeCounter(generator, "nbError", flow.errors.sum(), first);
+            writeCounter(generator, "nbTransaction", flow.transactions.sum(), first);
+            long bytes = flow.bytes.sum();
+            if (first || bytes > 0) {
+                generator.writeStringField("inputFileSize", bytes + "B");
+            }
+            if (!partners.isEmpty()) {
+                String recipients = String.join(",", partners);
+                generator.writeStringField("recipientPartnerCode",
+                        recipients.length() > MAX_PARTNERS_LENGTH
+                                ? recipients.substring(0, MAX_PARTNERS_LENGTH)
+                                : recipients);
+            }
+            if (flow.endFlowDatetime != null) {
+                generator.writeStringField("endFlowDatetime",
+                        ISO_FORMATTER.format(flow.endFlowDatetime));
+            }
+            generator.writeStringField("lastUpdateDatetime", now);
+            generator.writeStringField("currentClientDatetime", now);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    FlowStatistics flow(String flowOccurId) {
+        return flows.get(flowOccurId);
+    }
+
+    private static void writeIfPresent(JsonGenerator generator, String field, String value)
+            throws IOException {
+        if (value != null && !value.isEmpty()) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private static void writeCounter(JsonGenerator generator, String field, long value,
+            boolean always) throws IOException {
+        if (always || value > 0) {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    private static String header(Message message, String name, String current) {
+        String value = message.getHeader(name, String.class);
+        return value != null && !value.isEmpty() ? value : current;
+    }
+
+    /**
+     * Size of the body without converting it: UTF-8 bytes of a String, bytes of an array
+     */
+    static long size(Object body) {
+        if (body instanceof CharSequence text) {
+            return utf8Length(text);
+        }
+        if (body instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return 0;
+    }
+
+    private static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Statistics of one flow occurrence. Fields are written under the map lock of its key;
+     * counters may also be read by the snapshot while written.
+     */
+    static final class FlowStatistics {
+
+        private final String flowOccurId;
+        private final LocalDateTime beginFlowDatetime;
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final Map<String, LongAdder> outCompleted = new ConcurrentHashMap<>();
+
+        private volatile String status;
+        private volatile String topic;
+        private volatile String brokers;
+        private volatile String flowCode;
+        private volatile String flowCountryCode;
+        private volatile String flowCountryId;
+        private volatile int outExpected;
+        private volatile LocalDateTime endFlowDatetime;
+        private long version;
+        private long emittedVersion;
+        private volatile long touchedNanos;
+
+        private FlowStatistics(String flowOccurId, LocalDateTime beginFlowDatetime) {
+            this.flowOccurId = flowOccurId;
+            this.beginFlowDatetime = beginFlowDatetime;
+        }
+    }
+}
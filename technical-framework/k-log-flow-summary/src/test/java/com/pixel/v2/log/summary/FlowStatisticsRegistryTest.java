@@ -0,0 +1,107 @@
+package com.pixel.v2.log.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for FlowStatisticsRegistry
+ */
+class FlowStatisticsRegistryTest {
+
+    private static final Clock CLOCK =
+            Clock.fixed(Instant.parse("2025-12-01T10:30:45.123Z"), ZoneId.of("UTC"));
+    private static final String TOPIC = "flow-summary";
+    private static final String BROKERS = "kafka:9092";
+
+    private final CamelContext camelContext = new DefaultCamelContext();
+    private final FlowStatisticsRegistry registry =
+            new FlowStatisticsRegistry(null, 1000, 60000, 3600000, CLOCK);
+
+    @Test
+    @DisplayName("Should send descriptive fields and every counter in the first snapshot")
+    void testFirstSnapshot() {
+        registry.step(exchange("FLOW-1", "<Document/>"), "IN_PROGRESS", TOPIC, BROKERS);
+
+        String json = registry.snapshot(registry.flow("FLOW-1"));
+
+        assertEquals("{\"flowOccurId\":\"FLOW-1\",\"flowStatusCode\":\"IN_PROGRESS\","
+                + "\"flowCode\":\"ICHSIC\",\"flowCountryCode\":\"FR\",\"flowTypeId\":1,"
+                + "\"beginFlowDatetime\":\"2025-12-01T10:30:45.123\",\"lastUpdateUser\":\"system\","
+                + "\"region\":\"EU\",\"nbOutExpected\":0,\"nbOutCompleted\":0,\"nbError\":0,"
+                + "\"nbTransaction\":1,\"inputFileSize\":\"11B\","
+                + "\"lastUpdateDatetime\":\"2025-12-01T10:30:45.123\","
+                + "\"currentClientDatetime\":\"2025-12-01T10:30:45.123\"}", json);
+    }
+
+    @Test
+    @DisplayName("Should count outputs per partner, errors and set the end of a finished flow")
+    void testCounters() {
+        registry.step(exchange("FLOW-2", new byte[42]), "IN_PROGRESS", TOPIC, BROKERS);
+        registry.outExpected("FLOW-2", 3);
+        registry.outCompleted("FLOW-2", "PARTNER_B");
+        registry.outCompleted("FLOW-2", "PARTNER_A");
+        registry.error("FLOW-2");
+        registry.step(exchange("FLOW-2", "ignored"), "FAILURE", TOPIC, BROKERS);
+
+        String json = registry.snapshot(registry.flow("FLOW-2"));
+
+        assertTrue(json.contains("\"flowStatusCode\":\"FAILURE\""));
+        assertTrue(json.contains("\"nbOutExpected\":3,\"nbOutCompleted\":2,\"nbError\":1,"
+                + "\"nbTransaction\":1,\"inputFileSize\":\"42B\""));
+        assertTrue(json.contains("\"recipientPartnerCode\":\"PARTNER_A,PARTNER_B\""));
+        assertTrue(json.contains("\"endFlowDatetime\":\"2025-12-01T10:30:45.123\""));
+    }
+
+    @Test
+    @DisplayName("Should ignore exchanges without flow occurrence")
+    void testWithoutFlowOccurId() {
+        registry.step(exchange(null, "body"), "IN_PROGRESS", TOPIC, BROKERS);
+        registry.error(null);
+
+        assertEquals(0, registry.getStatistics().get("flows"));
+        assertNull(registry.flow(""));
+    }
+
+    @Test
+    @DisplayName("Should forget an idle flow, unsent while no step gave its topic")
+    void testIdleEviction() {
+        FlowStatisticsRegistry shortLived = new FlowStatisticsRegistry(null, 1000, 0, 0, CLOCK);
+        shortLived.error("FLOW-3");
+
+        // No topic yet: nothing is sent, the null journal is never called
+        shortLived.emit();
+
+        assertEquals(0, shortLived.getStatistics().get("flows"));
+        assertEquals(1L, shortLived.getStatistics().get("evicted"));
+    }
+
+    @Test
+    @DisplayName("Should measure String bodies in UTF-8 bytes")
+    void testInputFileSize() {
+        assertEquals(11L, FlowStatisticsRegistry.size("<Document/>"));
+        assertEquals(17L, FlowStatisticsRegistry.size("<Nm>Zo\u00EB \u20AC</Nm>"));
+        assertEquals(4L, FlowStatisticsRegistry.size("\uD83D\uDCB6"));
+        assertEquals(42L, FlowStatisticsRegistry.size(new byte[42]));
+    }
+
+    private Exchange exchange(String flowOccurId, Object body) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getMessage().setHeader("FlowOccurId", flowOccurId);
+        exchange.getMessage().setHeader("FlowCode", "ICHSIC");
+        exchange.getMessage().setHeader("FlowCountryCode", "FR");
+        exchange.getMessage().setBody(body);
+        return exchange;
+    }
+}
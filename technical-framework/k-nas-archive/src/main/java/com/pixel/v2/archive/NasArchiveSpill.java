@@ -0,0 +1,220 @@
+package com.pixel.v2.archive;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.pixel.v2.archive.NasArchiveWriter.ArchiveRecord;
+
+/**
+ * Local spill of the archive records the NAS did not take (NAS unreachable, archive directory not
+ * writable), written back to the NAS by the writer thread once it answers again.
+ *
+ * The spill is a directory of append-only files {@code spill-<sequence>.rec} on local disk. The
+ * writer appends to one file and closes it before a replay, so a replay only reads closed files,
+ * oldest first. A file is deleted once all its records are written and forced to the NAS; a replay
+ * cut by a new failure starts the file again, so a record can be archived twice (the lookup
+ * returns the latest copy, with the same payload). The files left by a previous run are replayed
+ * after a restart. Used by the writer thread only.
+ *
+ * Record: {@code [int length][directory][day][flowCode][direction][flowOccurId][int payload
+ * length][payload]}, the strings in {@link DataOutputStream#writeUTF} format. A record cut by a
+ * crash ends its file.
+ */
+final class NasArchiveSpill {
+
+    private static final String FILE_PREFIX = "spill-";
+    private static final String FILE_SUFFIX = ".rec";
+
+    private final Path directory;
+    private final long fileSize;
+    private final Deque<Path> closedFiles = new ArrayDeque<>();
+    private long sequence;
+    private FileChannel current;
+    private long currentSize;
+    private boolean dirty;
+
+    NasArchiveSpill(Path directory, long fileSize) {
+        this.directory = directory;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Takes over the files left by a previous run
+     */
+    void recover() throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(FILE_PREFIX.length(),
+                            name.length() - FILE_SUFFIX.length())), path);
+                } catch (NumberFormatException e) {
+                    // Not a spill file
+                }
+            }
+        }
+        closedFiles.addAll(files.values());
+        if (!files.isEmpty()) {
+            sequence = Math.max(sequence, files.lastKey());
+        }
+    }
+
+    boolean hasPending() {
+        return current != null || !closedFiles.isEmpty();
+    }
+
+    int pendingFiles() {
+        return closedFiles.size() + (current != null ? 1 : 0);
+    }
+
+    void append(ArchiveRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(record.payload().length + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeUTF(record.directory());
+        out.writeUTF(record.day());
+        out.writeUTF(record.flowCode());
+        out.writeUTF(record.direction());
+        out.writeUTF(record.flowOccurId());
+        out.writeInt(record.payload().length);
+        out.write(record.payload());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.capacity() - Integer.BYTES);
+
+        if (current != null && currentSize > 0 && currentSize + buffer.capacity() > fileSize) {
+            rotate();
+        }
+        try {
+            if (current == null) {
+                Files.createDirectories(directory);
+                current = FileChannel.open(directory.resolve(fileName(sequence + 1)),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                sequence++;
+                currentSize = 0;
+            }
+            while (buffer.hasRemaining()) {
+                currentSize += current.write(buffer);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            // A partial record must stay the last one of its file
+            if (current != null) {
+                try {
+                    closeCurrent();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    void force() throws IOException {
+        if (dirty) {
+            current.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Closes the file being appended to, so that the next replay reads it
+     */
+    void rotate() throws IOException {
+        if (current == null) {
+            return;
+        }
+        try {
+            force();
+        } finally {
+            closeCurrent();
+        }
+    }
+
+    /**
+     * Oldest closed file, null when none
+     */
+    Path oldest() {
+        return closedFiles.peekFirst();
+    }
+
+    /**
+     * Deletes a closed file whose records are all on the NAS
+     */
+    void remove(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        closedFiles.remove(file);
+    }
+
+    /**
+     * Hands the records of a closed file to the consumer in append order, up to the first one it
+     * refuses. True when the consumer took them all.
+     */
+    static boolean replay(Path file, Predicate<ArchiveRecord> consumer) throws IOException {
+        long size = Files.size(file);
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] data;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > size) {
+                        // Record cut by a crash
+                        return true;
+                    }
+                    data = new byte[length];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    return true;
+                }
+                if (!consumer.test(decode(data))) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static ArchiveRecord decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        String directory = in.readUTF();
+        String day = in.readUTF();
+        String flowCode = in.readUTF();
+        String direction = in.readUTF();
+        String flowOccurId = in.readUTF();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new ArchiveRecord(directory, day, flowCode, direction, flowOccurId, payload);
+    }
+
+    private void closeCurrent() throws IOException {
+        Path file = directory.resolve(fileName(sequence));
+        try {
+            current.close();
+        } finally {
+            current = null;
+            dirty = false;
+            closedFiles.add(file);
+        }
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("%s%06d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+}
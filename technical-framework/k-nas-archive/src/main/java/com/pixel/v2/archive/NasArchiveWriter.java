@@ -0,0 +1,787 @@
+package com.pixel.v2.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pixel.v2.util.IdGenerator;
+import com.pixel.v2.util.PixelClock;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * NAS archive of the messages received (IN) and published (OUT) by the flows.
+ *
+ * The payment thread only copies the body and offers it to a bounded queue; a single background
+ * writer appends the messages to rolling segment files sharded by day and flow,
+ * {@code <archive>/<yyyyMMdd>/<flowCode>/<IN|OUT>-<node>-<sequence>.seg}, and records each
+ * message in the index file of its segment ({@code .idx}) keyed by FlowOccurId. The node is the
+ * IdGenerator node id, unique per instance, so the pods sharing the NAS never pick the same segment
+ * name; a name already taken is skipped all the same. The writer forces the files it wrote to disk
+ * once per fsync interval rather than once per message (group commit), and closes the shards left
+ * idle. Messages of flows whose REF_FLOW_RULES.WRITE_FILE is off are not archived; the flag is read
+ * from the cached flow configuration (RefFlowData header) and memoized per flow code, so messages
+ * received before identification follow the last configuration seen for their flow (the default
+ * until then). A full queue waits up to the offer timeout, then fails the exchange as the former
+ * synchronous file write did.
+ *
+ * A failed write closes its segment, so the next record never follows a partial one, and is tried
+ * once more on a new segment. A message the NAS still refuses goes to the local spill
+ * ({@link NasArchiveSpill}), as do the next messages while spilled ones wait; the spill is written
+ * back to the NAS once per retry interval. Messages still queued or not yet forced are lost if the
+ * process dies; they are written on a regular shutdown.
+ *
+ * Segment record: {@code [int length][short id length][id][byte codec][payload]}, the payload
+ * deflated when compression is on. Index entry: {@code [short id length][id][long offset][int
+ * length]}, the offset and length of the whole record. A segment written by a previous run is
+ * never appended to. Used by the kamelets through
+ * {@code bean:nasArchiveWriter?method=archive(*, 'IN')}.
+ */
+@Component("nasArchiveWriter")
+public class NasArchiveWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(NasArchiveWriter.class);
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String INDEX_SUFFIX = ".idx";
+    static final byte CODEC_NONE = 0;
+    static final byte CODEC_DEFLATE = 1;
+
+    private static final long SHARD_IDLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int APPEND_ATTEMPTS = 2;
+    private static final int ROLL_ATTEMPTS = 100;
+
+    private final PixelClock pixelClock;
+    private final int nodeId;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final boolean enabled;
+    private final String defaultArchiveUrl;
+    private final boolean defaultWriteFile;
+    private final byte codec;
+    private final long segmentSize;
+    private final int batchSize;
+    private final long fsyncIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final long retryIntervalNanos;
+    private final BlockingQueue<ArchiveRecord> queue;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, FlowDecision> writeFileDecisions = new ConcurrentHashMap<>();
+    // Writer thread only
+    private final Map<String, Shard> shards = new HashMap<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final NasArchiveSpill spill;
+    private long nextReplay = System.nanoTime();
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public NasArchiveWriter(PixelClock pixelClock, IdGenerator idGenerator,
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${pixel.nas.archive.enabled:true}") boolean enabled,
+            @Value("${pixel.nas.archive.url:${java.io.tmpdir}/pixel-nas-archive}") String defaultArchiveUrl,
+            @Value("${pixel.nas.archive.default-write-file:true}") boolean defaultWriteFile,
+            @Value("${pixel.nas.archive.compression:none}") String compression,
+            @Value("${pixel.nas.archive.segment-size:134217728}") long segmentSize,
+            @Value("${pixel.nas.archive.queue-capacity:10000}") int queueCapacity,
+            @Value("${pixel.nas.archive.batch-size:500}") int batchSize,
+            @Value("${pixel.nas.archive.fsync-interval-ms:200}") long fsyncIntervalMs,
+            @Value("${pixel.nas.archive.offer-timeout-ms:5000}") long offerTimeoutMs,
+            @Value("${pixel.nas.archive.spill-directory:${java.io.tmpdir}/pixel-nas-archive-spill}") String spillDirectory,
+            @Value("${pixel.nas.archive.retry-interval-ms:5000}") long retryIntervalMs) {
+        this.pixelClock = pixelClock;
+        this.nodeId = idGenerator.getNodeId();
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.enabled = enabled;
+        this.defaultArchiveUrl = defaultArchiveUrl;
+        this.defaultWriteFile = defaultWriteFile;
+        this.codec = parseCompression(compression);
+        this.segmentSize = segmentSize;
+        this.batchSize = Math.max(1, batchSize);
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMs));
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(retryIntervalMs);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.spill = new NasArchiveSpill(Path.of(spillDirectory), segmentSize);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        registerMetrics();
+        if (!enabled) {
+            logger.info("[K-NAS-ARCHIVE] NAS archive disabled");
+            return;
+        }
+        spill.recover();
+        running = true;
+        writerThread = new Thread(this::runWriter, "pixel-nas-archive");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("[K-NAS-ARCHIVE] NAS archive writer started - default archive: {}, node: {}, compression: {}, queue: {}, spilled files: {}",
+                defaultArchiveUrl, nodeId, codec == CODEC_DEFLATE ? "deflate" : "none",
+                queue.remainingCapacity(), spill.pendingFiles());
+    }
+
+    /**
+     * Queues the message body for the archive of its flow, under the FlowOccurId, FlowCode and
+     * NasArchiveUrl headers. Returns at once when WRITE_FILE is off for the flow.
+     *
+     * @param exchange the exchange whose body is archived
+     * @param direction {@code IN} or {@code OUT}
+     * @throws IllegalStateException when the queue stays full for the offer timeout
+     */
+    public void archive(Exchange exchange, String direction) throws InterruptedException {
+        Message in = exchange.getIn();
+        String flowCode = in.getHeader("FlowCode", String.class);
+        if (!enabled || !isWriteFile(flowCode, in.getHeader("RefFlowData"))) {
+            skipped.increment();
+            return;
+        }
+        String flowOccurId = in.getHeader("FlowOccurId", String.class);
+        byte[] payload = in.getBody(byte[].class);
+        ArchiveRecord record = new ArchiveRecord(
+                directory(in.getHeader("NasArchiveUrl", defaultArchiveUrl, String.class)),
+                pixelClock.compact().substring(0, 8), pathElement(flowCode),
+                pathElement(direction), flowOccurId != null ? flowOccurId : "",
+                payload != null ? payload : new byte[0]);
+        if (!queue.offer(record, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            rejected.increment();
+            throw new IllegalStateException(
+                    "NAS archive queue full, " + direction + " message " + flowOccurId
+                            + " not archived");
+        }
+        queued.increment();
+    }
+
+    /**
+     * Archived message of a flow occurrence, found through the segment indexes of its shard; the
+     * latest one when it was archived several times. Null when not archived (or still queued).
+     *
+     * @param archiveUrl archive root, as the NasArchiveUrl header
+     * @param day archive day, {@code yyyyMMdd}
+     */
+    public byte[] read(String archiveUrl, String day, String flowCode, String direction,
+            String flowOccurId) throws IOException {
+        Path shardDirectory = Path.of(directory(archiveUrl), day, pathElement(flowCode));
+        if (!Files.isDirectory(shardDirectory)) {
+            return null;
+        }
+        List<Path> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardDirectory,
+                pathElement(direction) + "-*" + INDEX_SUFFIX)) {
+            stream.forEach(indexes::add);
+        }
+        // Newest first. The segments of several nodes interleave, so the names only order the
+        // segments of one node (fixed-width sequences).
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path index : indexes) {
+            modified.put(index, Files.getLastModifiedTime(index));
+        }
+        indexes.sort(Comparator.comparing((Path index) -> modified.get(index))
+                .thenComparing(index -> index.getFileName().toString()).reversed());
+        byte[] id = flowOccurId.getBytes(StandardCharsets.UTF_8);
+        for (Path index : indexes) {
+            long[] entry = find(index, id);
+            if (entry != null) {
+                String name = index.getFileName().toString();
+                return readRecord(index.resolveSibling(
+                        name.substring(0, name.length() - INDEX_SUFFIX.length()) + SEGMENT_SUFFIX),
+                        entry[0], (int) entry[1]);
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", queue.size());
+        stats.put("queued", queued.sum());
+        stats.put("written", written.sum());
+        stats.put("writtenBytes", writtenBytes.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("lost", lost.sum());
+        stats.put("fsyncs", fsyncs.sum());
+        stats.put("flows", writeFileDecisions.size());
+        return stats;
+    }
+
+    /**
+     * WRITE_FILE of the flow, re-read only when the cached flow configuration changes; without
+     * configuration, the last one seen for the flow code
+     */
+    boolean isWriteFile(String flowCode, Object refFlowData) {
+        String key = flowCode != null ? flowCode : "";
+        FlowDecision decision = writeFileDecisions.get(key);
+        if (refFlowData == null) {
+            return decision != null ? decision.writeFile() : defaultWriteFile;
+        }
+        if (decision != null && Objects.equals(decision.source(), refFlowData)) {
+            return decision.writeFile();
+        }
+        boolean writeFile = readWriteFile(refFlowData);
+        writeFileDecisions.put(key, new FlowDecision(refFlowData, writeFile));
+        return writeFile;
+    }
+
+    private boolean readWriteFile(Object refFlowData) {
+        try {
+            JsonNode rules = objectMapper.readTree(refFlowData.toString()).path("flowRules");
+            JsonNode writeFile = rules.isArray() ? rules.path(0).path("writeFile")
+                    : rules.path("writeFile");
+            return writeFile.isMissingNode() || writeFile.isNull() ? defaultWriteFile
+                    : writeFile.asBoolean(defaultWriteFile);
+        } catch (Exception e) {
+            logger.debug("[K-NAS-ARCHIVE] No WRITE_FILE in flow configuration: {}",
+                    e.getMessage());
+            return defaultWriteFile;
+        }
+    }
+
+    private void runWriter() {
+        List<ArchiveRecord> batch = new ArrayList<>(Math.min(batchSize, 64));
+        long lastSync = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            try {
+                ArchiveRecord first = queue.poll(fsyncIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    for (ArchiveRecord record : batch) {
+                        write(record);
+                    }
+                    batch.clear();
+                }
+                long now = System.nanoTime();
+                if (first == null || now - lastSync >= fsyncIntervalNanos) {
+                    sync(now);
+                    replay(now);
+                    lastSync = now;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("[K-NAS-ARCHIVE] NAS archive writer error: {}", e.getMessage());
+            }
+        }
+        sync(System.nanoTime());
+        closeShards();
+    }
+
+    /**
+     * Appends the record to its shard; to the local spill when the NAS refuses it, and while
+     * spilled records wait, so that they reach the NAS before the newer ones
+     */
+    void write(ArchiveRecord record) {
+        if (spill.hasPending() || !append(record)) {
+            spill(record);
+        }
+    }
+
+    /**
+     * Appends the record to the open segment of its shard, or once more to a new segment when that
+     * fails. A failed shard is closed, so no record follows a partial one.
+     */
+    private boolean append(ArchiveRecord record) {
+        String key = record.directory() + '/' + record.day() + '/' + record.flowCode() + '/'
+                + record.direction();
+        for (int attempt = 1;; attempt++) {
+            Shard shard = shards.get(key);
+            try {
+                if (shard == null) {
+                    shard = Shard.open(Path.of(record.directory(), record.day(), record.flowCode()),
+                            record.direction(), nodeId);
+                    shards.put(key, shard);
+                }
+                byte[] payload = codec == CODEC_DEFLATE ? deflate(record.payload())
+                        : record.payload();
+                shard.append(record.flowOccurId().getBytes(StandardCharsets.UTF_8), codec, payload,
+                        segmentSize);
+                written.increment();
+                writtenBytes.add(payload.length);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                if (shard != null) {
+                    shards.remove(key);
+                    shard.closeQuietly();
+                }
+                if (attempt >= APPEND_ATTEMPTS) {
+                    logger.warn("[K-NAS-ARCHIVE] {} message {} of flow {} not written to the NAS: {}",
+                            record.direction(), record.flowOccurId(), record.flowCode(),
+                            e.getMessage());
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void spill(ArchiveRecord record) {
+        try {
+            if (!spill.hasPending()) {
+                nextReplay = System.nanoTime() + retryIntervalNanos;
+            }
+            spill.append(record);
+            spilled.increment();
+        } catch (IOException | RuntimeException e) {
+            lost.increment();
+            logger.error("[K-NAS-ARCHIVE] {} message {} of flow {} not archived: {}",
+                    record.direction(), record.flowOccurId(), record.flowCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the spilled records back to the NAS, oldest first, at most once per retry interval.
+     * A spill file is deleted only once its records are forced to the NAS.
+     */
+    void replay(long now) {
+        if (!spill.hasPending() || now - nextReplay < 0) {
+            return;
+        }
+        try {
+            spill.rotate();
+            Path file;
+            while ((file = spill.oldest()) != null) {
+                if (!NasArchiveSpill.replay(file, this::replayRecord)) {
+                    nextReplay = now + retryIntervalNanos;
+                    return;
+                }
+                for (Shard shard : shards.values()) {
+                    if (shard.dirty) {
+                        shard.force();
+                    }
+                }
+                spill.remove(file);
+            }
+            logger.info("[K-NAS-ARCHIVE] Spilled messages written back to the NAS - replayed: {}",
+                    replayed.sum());
+        } catch (IOException e) {
+            nextReplay = now + retryIntervalNanos;
+            logger.error("[K-NAS-ARCHIVE] Failed to replay the NAS archive spill: {}",
+                    e.getMessage());
+        }
+    }
+
+    private boolean replayRecord(ArchiveRecord record) {
+        if (!append(record)) {
+            return false;
+        }
+        replayed.increment();
+        return true;
+    }
+
+    /**
+     * Forces the shards written since the last sync and closes the idle ones
+     */
+    void sync(long now) {
+        boolean forced = false;
+        Iterator<Shard> iterator = shards.values().iterator();
+        while (iterator.hasNext()) {
+            Shard shard = iterator.next();
+            try {
+                if (shard.dirty) {
+                    shard.force();
+                    forced = true;
+                }
+                if (now - shard.lastWrite > SHARD_IDLE_NANOS) {
+                    shard.close();
+                    iterator.remove();
+                }
+            } catch (IOException e) {
+                // Records forced in vain are not retried; the next ones go to a new segment
+                iterator.remove();
+                shard.closeQuietly();
+                logger.error("[K-NAS-ARCHIVE] Failed to sync NAS archive {}: {}", shard.directory,
+                        e.getMessage());
+            }
+        }
+        if (forced) {
+            fsyncs.increment();
+        }
+        try {
+            spill.force();
+        } catch (IOException e) {
+            logger.error("[K-NAS-ARCHIVE] Failed to sync NAS archive spill: {}", e.getMessage());
+        }
+    }
+
+    private void closeShards() {
+        for (Shard shard : shards.values()) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                logger.warn("[K-NAS-ARCHIVE] Failed to close NAS archive {}: {}", shard.directory,
+                        e.getMessage());
+            }
+        }
+        shards.clear();
+        try {
+            spill.rotate();
+        } catch (IOException e) {
+            logger.warn("[K-NAS-ARCHIVE] Failed to close NAS archive spill: {}", e.getMessage());
+        }
+        deflater.end();
+    }
+
+    private byte[] deflate(byte[] payload) {
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, payload.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated archive record");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted archive record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Offset and length of the last entry of the id in an index file, null when absent
+     */
+    private static long[] find(Path index, byte[] id) throws IOException {
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(index));
+        long[] found = null;
+        while (entries.remaining() >= Short.BYTES) {
+            int idLength = entries.getShort() & 0xFFFF;
+            if (entries.remaining() < idLength + Long.BYTES + Integer.BYTES) {
+                // Entry cut by a crash
+                break;
+            }
+            boolean match = idLength == id.length;
+            for (int i = 0; match && i < idLength; i++) {
+                match = entries.get(entries.position() + i) == id[i];
+            }
+            entries.position(entries.position() + idLength);
+            long offset = entries.getLong();
+            int length = entries.getInt();
+            if (match) {
+                found = new long[] {offset, length};
+            }
+        }
+        return found;
+    }
+
+    private static byte[] readRecord(Path segment, long offset, int length) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    throw new IOException("Archive record beyond the end of " + segment);
+                }
+            }
+        }
+        record.flip();
+        record.getInt();
+        int idLength = record.getShort() & 0xFFFF;
+        record.position(record.position() + idLength);
+        byte recordCodec = record.get();
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        return recordCodec == CODEC_DEFLATE ? inflate(payload) : payload;
+    }
+
+    /**
+     * Archive root of a {@code file:} URL or plain path
+     */
+    static String directory(String archiveUrl) {
+        String directory = archiveUrl;
+        int query = directory.indexOf('?');
+        if (query >= 0) {
+            directory = directory.substring(0, query);
+        }
+        if (directory.startsWith("file://")) {
+            directory = directory.substring("file://".length());
+        } else if (directory.startsWith("file:")) {
+            directory = directory.substring("file:".length());
+        }
+        return directory;
+    }
+
+    /**
+     * Flow code or direction usable as a file name
+     */
+    static String pathElement(String value) {
+        if (value == null || value.isBlank()) {
+            return "UNKNOWN";
+        }
+        StringBuilder element = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            element.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return element.toString();
+    }
+
+    static byte parseCompression(String compression) {
+        return switch (compression == null ? "" : compression.trim().toLowerCase()) {
+            case "", "none" -> CODEC_NONE;
+            case "deflate" -> CODEC_DEFLATE;
+            default -> throw new IllegalArgumentException(
+                    "Unsupported NAS archive compression: " + compression + " (none, deflate)");
+        };
+    }
+
+    private void registerMetrics() {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Gauge.builder("pixel.nas.archive.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting for the NAS archive writer").register(registry);
+        FunctionCounter.builder("pixel.nas.archive.written", written, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.skipped", skipped, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.rejected", rejected, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.failed", failed, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.spilled", spilled, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.replayed", replayed, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.lost", lost, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("pixel.nas.archive.fsyncs", fsyncs, LongAdder::sum)
+                .register(registry);
+    }
+
+    /**
+     * Writes the queued messages, forces the files to disk and closes them
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        logger.info("[K-NAS-ARCHIVE] NAS archive writer stopped - {}", getStatistics());
+    }
+
+    record ArchiveRecord(String directory, String day, String flowCode, String direction,
+            String flowOccurId, byte[] payload) {
+    }
+
+    private record FlowDecision(Object source, boolean writeFile) {
+    }
+
+    /**
+     * The open segment and index of one day, flow and direction
+     */
+    private static final class Shard {
+
+        private final Path directory;
+        private final String prefix;
+        private long sequence;
+        private FileChannel segment;
+        private FileChannel index;
+        private boolean dirty;
+        private long lastWrite;
+
+        private Shard(Path directory, String prefix, long sequence) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Opens a new segment after the ones of this node already in the directory
+         */
+        private static Shard open(Path directory, String direction, int nodeId)
+                throws IOException {
+            Files.createDirectories(directory);
+            String prefix = String.format("%s-%04d", direction, nodeId);
+            long last = 0;
+            try (DirectoryStream<Path> stream =
+                    Files.newDirectoryStream(directory, prefix + "-*" + SEGMENT_SUFFIX)) {
+                for (Path path : stream) {
+                    String name = path.getFileName().toString();
+                    try {
+                        last = Math.max(last, Long.parseLong(name.substring(
+                                prefix.length() + 1, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a segment of this writer
+                    }
+                }
+            }
+            Shard shard = new Shard(directory, prefix, last);
+            shard.roll();
+            return shard;
+        }
+
+        private void append(byte[] id, byte codec, byte[] payload, long segmentSize)
+                throws IOException {
+            if (id.length > 0xFFFF) {
+                throw new IOException("FlowOccurId of " + id.length + " bytes");
+            }
+            int length = Short.BYTES + id.length + 1 + payload.length;
+            // The channel position, not a count of our own: it is where the last write really ended
+            long offset = segment.position();
+            if (offset > 0 && offset + Integer.BYTES + length > segmentSize) {
+                force();
+                closeFiles();
+                roll();
+                offset = segment.position();
+            }
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + id.length + 1);
+            header.putInt(length).putShort((short) id.length).put(id).put(codec).flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                segment.write(new ByteBuffer[] {header, body});
+            }
+            ByteBuffer entry = ByteBuffer.allocate(Short.BYTES + id.length + Long.BYTES
+                    + Integer.BYTES);
+            entry.putShort((short) id.length).put(id).putLong(offset)
+                    .putInt(Integer.BYTES + length).flip();
+            while (entry.hasRemaining()) {
+                index.write(entry);
+            }
+            dirty = true;
+            lastWrite = System.nanoTime();
+        }
+
+        /**
+         * Opens the next free sequence. A name already taken (a failed roll, another writer with
+         * the same node id) is skipped.
+         */
+        private void roll() throws IOException {
+            for (int attempt = 1;; attempt++) {
+                sequence++;
+                String name = String.format("%s-%06d", prefix, sequence);
+                Path segmentPath = directory.resolve(name + SEGMENT_SUFFIX);
+                try {
+                    segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE);
+                } catch (FileAlreadyExistsException e) {
+                    if (attempt >= ROLL_ATTEMPTS) {
+                        throw e;
+                    }
+                    continue;
+                }
+                try {
+                    index = FileChannel.open(directory.resolve(name + INDEX_SUFFIX),
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                } catch (FileAlreadyExistsException e) {
+                    segment.close();
+                    Files.deleteIfExists(segmentPath);
+                    if (attempt >= ROLL_ATTEMPTS) {
+                        throw e;
+                    }
+                    continue;
+                } catch (IOException e) {
+                    segment.close();
+                    throw e;
+                }
+                lastWrite = System.nanoTime();
+                return;
+            }
+        }
+
+        private void force() throws IOException {
+            segment.force(false);
+            index.force(false);
+            dirty = false;
+        }
+
+        private void close() throws IOException {
+            if (dirty) {
+                force();
+            }
+            closeFiles();
+        }
+
+        private void closeFiles() throws IOException {
+            try {
+                segment.close();
+            } finally {
+                index.close();
+            }
+        }
+
+        /**
+         * Closes a failed shard without forcing it
+         */
+        private void closeQuietly() {
+            try {
+                closeFiles();
+            } catch (IOException | RuntimeException e) {
+                logger.debug("[K-NAS-ARCHIVE] Failed to close NAS archive {}: {}", directory,
+                        e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.pixel.v2.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import com.pixel.v2.util.IdGenerator;
+import com.pixel.v2.util.PixelClock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Unit tests for NasArchiveWriter
+ */
+class NasArchiveWriterTest {
+
+    private static final String WRITE_FILE_OFF =
+            "{\"flowRules\":[{\"flowCode\":\"ICHSIC\",\"writeFile\":false}]}";
+    private static final String WRITE_FILE_ON =
+            "{\"flowRules\":[{\"flowCode\":\"ICHSIC\",\"writeFile\":true}]}";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should append messages to one segment and find them through the index")
+    void testWriteAndRead() throws Exception {
+        NasArchiveWriter writer = writer(7, "none", 1 << 20);
+        String url = "file://" + directory;
+
+        writer.write(record(url, "1001", "<Document>1</Document>"));
+        writer.write(record(url, "1002", "<Document>2</Document>"));
+        writer.write(record(url, "1001", "<Document>1 again</Document>"));
+        writer.sync(System.nanoTime());
+
+        assertEquals("<Document>2</Document>", read(writer, url, "1002"));
+        assertEquals("<Document>1 again</Document>", read(writer, url, "1001"));
+        assertNull(writer.read(url, "20260107", "ICHSIC", "IN", "1003"));
+        assertNull(writer.read(url, "20260107", "ICHSIC", "OUT", "1001"));
+        assertTrue(Files.exists(directory.resolve("20260107/ICHSIC/IN-0007-000001.seg")));
+        assertTrue(Files.exists(directory.resolve("20260107/ICHSIC/IN-0007-000001.idx")));
+        assertEquals(3L, writer.getStatistics().get("written"));
+        assertEquals(1L, writer.getStatistics().get("fsyncs"));
+    }
+
+    @Test
+    @DisplayName("Should roll to a new segment and restore deflated payloads")
+    void testRollAndDeflate() throws Exception {
+        NasArchiveWriter writer = writer(7, "deflate", 256);
+        String url = directory.toString();
+        String payload = "<Document>" + "A".repeat(1000) + "</Document>";
+
+        for (int i = 0; i < 20; i++) {
+            writer.write(record(url, "FO-" + i, payload + i));
+        }
+        writer.sync(System.nanoTime());
+
+        assertEquals(payload + 0, read(writer, url, "FO-0"));
+        assertEquals(payload + 19, read(writer, url, "FO-19"));
+        assertTrue(Files.exists(directory.resolve("20260107/ICHSIC/IN-0007-000002.seg")));
+        assertTrue((long) writer.getStatistics().get("writtenBytes") < 20L * payload.length());
+    }
+
+    @Test
+    @DisplayName("Should skip segment names already taken and keep the segments of each node apart")
+    void testSegmentNameTaken() throws Exception {
+        String url = directory.toString();
+        Path shard = Files.createDirectories(directory.resolve("20260107/ICHSIC"));
+        // Index left without its segment: the first free sequence is 2
+        Files.createFile(shard.resolve("IN-0007-000001.idx"));
+        NasArchiveWriter writer = writer(7, "none", 1 << 20);
+        NasArchiveWriter otherNode = writer(8, "none", 1 << 20);
+
+        writer.write(record(url, "1001", "<Document>1</Document>"));
+        otherNode.write(record(url, "1002", "<Document>2</Document>"));
+        writer.sync(System.nanoTime());
+        otherNode.sync(System.nanoTime());
+
+        assertFalse(Files.exists(shard.resolve("IN-0007-000001.seg")));
+        assertTrue(Files.exists(shard.resolve("IN-0007-000002.seg")));
+        assertTrue(Files.exists(shard.resolve("IN-0008-000001.seg")));
+        assertEquals("<Document>1</Document>", read(writer, url, "1001"));
+        assertEquals("<Document>2</Document>", read(writer, url, "1002"));
+        assertEquals(0L, writer.getStatistics().get("failed"));
+    }
+
+    @Test
+    @DisplayName("Should spill the messages the NAS refuses and write them back once it recovers")
+    void testSpillAndReplay() throws Exception {
+        // A file where the archive root should be: every write to the NAS fails
+        Path nas = Files.createFile(directory.resolve("nas"));
+        String url = nas.toString();
+        NasArchiveWriter writer = writer(7, "none", 1 << 20);
+
+        writer.write(record(url, "1001", "<Document>1</Document>"));
+        writer.write(record(url, "1002", "<Document>2</Document>"));
+        writer.sync(System.nanoTime());
+        assertEquals(2L, writer.getStatistics().get("failed"));
+        assertEquals(2L, writer.getStatistics().get("spilled"));
+        assertEquals(0L, writer.getStatistics().get("written"));
+
+        // Still failing: the spill is kept for the next retry
+        writer.replay(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        assertEquals(0L, writer.getStatistics().get("replayed"));
+        assertEquals(1L, spillFiles());
+
+        Files.delete(nas);
+        writer.replay(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+        assertEquals(2L, writer.getStatistics().get("replayed"));
+        assertEquals("<Document>1</Document>", read(writer, url, "1001"));
+        assertEquals("<Document>2</Document>", read(writer, url, "1002"));
+        assertEquals(0L, spillFiles());
+        assertEquals(0L, writer.getStatistics().get("lost"));
+
+        writer.write(record(url, "1003", "<Document>3</Document>"));
+        assertEquals("<Document>3</Document>", read(writer, url, "1003"));
+        assertEquals(2L, writer.getStatistics().get("spilled"));
+    }
+
+    @Test
+    @DisplayName("Should follow WRITE_FILE, also for messages received before identification")
+    void testWriteFile() throws Exception {
+        NasArchiveWriter writer = writer(7, "none", 1 << 20);
+
+        writer.archive(exchange(WRITE_FILE_OFF), "OUT");
+        writer.archive(exchange(null), "IN");
+        assertEquals(2L, writer.getStatistics().get("skipped"));
+        assertEquals(0L, writer.getStatistics().get("queued"));
+
+        writer.archive(exchange(WRITE_FILE_ON), "OUT");
+        writer.archive(exchange(null), "IN");
+        assertEquals(2L, writer.getStatistics().get("queued"));
+
+        assertTrue(writer.isWriteFile("OTHER", null));
+        assertFalse(writer.isWriteFile("OTHER", WRITE_FILE_OFF));
+        assertTrue(writer.isWriteFile("OTHER", "{\"error\":\"referential_service_unavailable\"}"));
+    }
+
+    @Test
+    @DisplayName("Should strip the file scheme and reject unknown compressions")
+    void testSettings() {
+        assertEquals("/opt/nas/CH", NasArchiveWriter.directory("file:///opt/nas/CH"));
+        assertEquals("/opt/nas/CH", NasArchiveWriter.directory("file:/opt/nas/CH?autoCreate=true"));
+        assertEquals("FLOW_1", NasArchiveWriter.pathElement("FLOW/1"));
+        assertEquals("UNKNOWN", NasArchiveWriter.pathElement(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> NasArchiveWriter.parseCompression("zstd"));
+    }
+
+    private NasArchiveWriter writer(int nodeId, String compression, long segmentSize) {
+        Clock clock = Clock.fixed(Instant.parse("2026-01-07T15:41:19.030Z"), ZoneOffset.UTC);
+        return new NasArchiveWriter(new PixelClock(clock), new IdGenerator(nodeId, clock),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), true,
+                directory.toString(), true, compression, segmentSize, 100, 10, 200, 0,
+                directory.resolve("spill-" + nodeId).toString(), 30_000);
+    }
+
+    private long spillFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory.resolve("spill-7"))) {
+            return files.count();
+        }
+    }
+
+    private static NasArchiveWriter.ArchiveRecord record(String url, String flowOccurId,
+            String payload) {
+        return new NasArchiveWriter.ArchiveRecord(NasArchiveWriter.directory(url), "20260107",
+                "ICHSIC", "IN", flowOccurId, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(NasArchiveWriter writer, String url, String flowOccurId)
+            throws Exception {
+        byte[] payload = writer.read(url, "20260107", "ICHSIC", "IN", flowOccurId);
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    private static Exchange exchange(String refFlowData) {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader("FlowOccurId", "1001");
+        exchange.getIn().setHeader("FlowCode", "ICHSIC");
+        if (refFlowData != null) {
+            exchange.getIn().setHeader("RefFlowData", refFlowData);
+        }
+        exchange.getIn().setBody("<Document/>");
+        return exchange;
+    }
+}